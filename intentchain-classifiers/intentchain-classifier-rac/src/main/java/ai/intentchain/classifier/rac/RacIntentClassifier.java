@@ -4,6 +4,8 @@ import ai.intentchain.core.classifiers.IntentClassifier;
 import ai.intentchain.core.classifiers.IntentTrainer;
 import ai.intentchain.core.classifiers.data.Intent;
 import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.classifiers.data.TrainingBatch;
+import ai.intentchain.core.store.BulkLoadEmbeddingStore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,7 +37,7 @@ import java.util.stream.Collectors;
  * Intent classifier using the RAC (Retrieval-Augmented Classification)
  */
 @Slf4j
-public class RacIntentClassifier implements IntentTrainer, IntentClassifier {
+public class RacIntentClassifier implements IntentTrainer, IntentClassifier, AutoCloseable {
 
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
     private static final String LABEL = "label";
@@ -178,15 +180,40 @@ public class RacIntentClassifier implements IntentTrainer, IntentClassifier {
     @Override
     public List<String> train(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
         log.debug("RAC - Start training " + textLabels.size() + " pieces of data.");
-        List<TextSegment> textSegments = textLabels.stream()
-                .map(d -> TextSegment.from(d.getText(), Metadata.from(LABEL, d.getLabel())))
-                .toList();
-        List<Embedding> embeddings = embeddingModel.embedAll(textSegments).content();
-        embeddingStore.addAll(ids, embeddings, textSegments);
+        write(prepare(ids, textLabels));
         log.debug("RAC - Training has been completed.");
         return ids;
     }
 
+    @Override
+    public TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
+        List<TextSegment> textSegments = textSegments(textLabels);
+        List<Embedding> embeddings = embeddingModel.embedAll(textSegments).content();
+        return new TrainingBatch(ids, textLabels, textSegments, embeddings);
+    }
+
+    @Override
+    public EmbeddingModel embeddingModel() {
+        return embeddingModel;
+    }
+
+    @Override
+    public TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels,
+                                 @NonNull List<Embedding> embeddings) {
+        return new TrainingBatch(ids, textLabels, textSegments(textLabels), embeddings);
+    }
+
+    private static List<TextSegment> textSegments(List<TextLabel> textLabels) {
+        return textLabels.stream()
+                .map(d -> TextSegment.from(d.getText(), Metadata.from(LABEL, d.getLabel())))
+                .toList();
+    }
+
+    @Override
+    public void write(@NonNull TrainingBatch batch) {
+        embeddingStore.addAll(batch.ids(), batch.embeddings(), batch.textSegments());
+    }
+
     @Override
     public void remove(@NonNull Collection<String> ids) {
         log.debug("RAC - Start remove the training data: " + String.join(", ", ids));
@@ -194,6 +221,27 @@ public class RacIntentClassifier implements IntentTrainer, IntentClassifier {
         log.debug("RAC - The training data has been removed.");
     }
 
+    @Override
+    public void clear() {
+        log.debug("RAC - Start clear the training data");
+        embeddingStore.removeAll();
+        log.debug("RAC - The training data has been cleared.");
+    }
+
+    @Override
+    public void finishTraining() {
+        if (embeddingStore instanceof BulkLoadEmbeddingStore bulkLoad) {
+            bulkLoad.finishBulkLoad();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (embeddingStore instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
     private interface Assistant {
         @UserMessage(fromResource = "prompts/rac/text_classification_user_prompt.txt")
         CategoryResult textClassification(@V("input_text") String inputText,
@@ -4,6 +4,8 @@ import ai.intentchain.core.classifiers.IntentClassifier;
 import ai.intentchain.core.classifiers.IntentTrainer;
 import ai.intentchain.core.classifiers.data.Intent;
 import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.classifiers.data.TrainingBatch;
+import ai.intentchain.core.store.BulkLoadEmbeddingStore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
@@ -31,7 +33,7 @@ import java.util.stream.Collectors;
  * Intent classifier using the retrieval
  */
 @Slf4j
-public class RetrievalIntentClassifier implements IntentTrainer, IntentClassifier {
+public class RetrievalIntentClassifier implements IntentTrainer, IntentClassifier, AutoCloseable {
 
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
     private static final String LABEL = "label";
@@ -181,19 +183,65 @@ public class RetrievalIntentClassifier implements IntentTrainer, IntentClassifie
     @Override
     public List<String> train(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
         log.debug("Retrieval - Start training " + textLabels.size() + " pieces of data.");
-        List<TextSegment> textSegments = textLabels.stream()
-                .map(d -> TextSegment.from(d.getText(), Metadata.from(LABEL, d.getLabel())))
-                .toList();
-        List<Embedding> embeddings = embeddingModel.embedAll(textSegments).content();
-        embeddingStore.addAll(ids, embeddings, textSegments);
+        write(prepare(ids, textLabels));
         log.debug("Retrieval - Training has been completed.");
         return ids;
     }
 
+    @Override
+    public TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
+        List<TextSegment> textSegments = textSegments(textLabels);
+        List<Embedding> embeddings = embeddingModel.embedAll(textSegments).content();
+        return new TrainingBatch(ids, textLabels, textSegments, embeddings);
+    }
+
+    @Override
+    public EmbeddingModel embeddingModel() {
+        return embeddingModel;
+    }
+
+    @Override
+    public TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels,
+                                 @NonNull List<Embedding> embeddings) {
+        return new TrainingBatch(ids, textLabels, textSegments(textLabels), embeddings);
+    }
+
+    private static List<TextSegment> textSegments(List<TextLabel> textLabels) {
+        return textLabels.stream()
+                .map(d -> TextSegment.from(d.getText(), Metadata.from(LABEL, d.getLabel())))
+                .toList();
+    }
+
+    @Override
+    public void write(@NonNull TrainingBatch batch) {
+        embeddingStore.addAll(batch.ids(), batch.embeddings(), batch.textSegments());
+    }
+
     @Override
     public void remove(@NonNull Collection<String> ids) {
         log.debug("Retrieval - Start remove the training data: " + String.join(", ", ids));
         embeddingStore.removeAll(ids);
         log.debug("Retrieval - The training data has been removed.");
     }
+
+    @Override
+    public void clear() {
+        log.debug("Retrieval - Start clear the training data");
+        embeddingStore.removeAll();
+        log.debug("Retrieval - The training data has been cleared.");
+    }
+
+    @Override
+    public void finishTraining() {
+        if (embeddingStore instanceof BulkLoadEmbeddingStore bulkLoad) {
+            bulkLoad.finishBulkLoad();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (embeddingStore instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
 }
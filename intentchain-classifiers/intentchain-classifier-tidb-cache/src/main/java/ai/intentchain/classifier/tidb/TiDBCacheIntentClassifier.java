@@ -10,13 +10,16 @@ import com.zaxxer.hikari.HikariDataSource;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import javax.sql.DataSource;
+import java.nio.ByteBuffer;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Intent classifier using the TiDB cache
@@ -27,9 +30,11 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
 
     // SQL 语句模板
+    // cache_key 为文本的 SHA-256 摘要（定长二进制主键），cache_text 保存原文用于命中校验
     private static final String CREATE_TABLE_TEMPLATE = """
             CREATE TABLE IF NOT EXISTS %s (
-                cache_key VARCHAR(512) PRIMARY KEY,
+                cache_key BINARY(32) PRIMARY KEY,
+                cache_text TEXT NOT NULL,
                 cache_value TEXT NOT NULL,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                 updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -41,26 +46,58 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
             ALTER TABLE %s CACHE
             """;
 
+    // 缓存表需先取消缓存才能执行 DDL
+    private static final String ALTER_TABLE_NOCACHE_TEMPLATE = """
+            ALTER TABLE %s NOCACHE
+            """;
+
+    private static final String DROP_TABLE_TEMPLATE = """
+            DROP TABLE IF EXISTS %s
+            """;
+
+    // 只读取列信息，表名可以带库名前缀
+    private static final String SELECT_COLUMNS_TEMPLATE = """
+            SELECT * FROM %s WHERE 1 = 0
+            """;
+
+    // 旧版本以原文作为主键的表结构
+    private static final Set<String> OUTDATED_COLUMNS = Set.of("cache_key", "cache_value", "created_at", "updated_at");
+
     private static final String SELECT_CACHE_TEMPLATE = """
-            SELECT cache_value FROM %s WHERE cache_key = ?
+            SELECT cache_key, cache_text, cache_value FROM %s WHERE cache_key IN (%s)
             """;
 
     private static final String UPSERT_CACHE_TEMPLATE = """
-            INSERT INTO %s (cache_key, cache_value) VALUES (?, ?)
-            ON DUPLICATE KEY UPDATE cache_value = ?, updated_at = CURRENT_TIMESTAMP
+            INSERT INTO %s (cache_key, cache_text, cache_value) VALUES %s
+            ON DUPLICATE KEY UPDATE cache_text = VALUES(cache_text), cache_value = VALUES(cache_value),
+            updated_at = CURRENT_TIMESTAMP
             """;
 
     private static final String DELETE_CACHE_TEMPLATE = """
             DELETE FROM %s WHERE cache_key = ?
             """;
 
+    private static final String CACHE_KEY_COLUMN_LABEL = "cache_key";
+    private static final String CACHE_TEXT_COLUMN_LABEL = "cache_text";
     private static final String CACHE_VALUE_COLUMN_LABEL = "cache_value";
 
+    private static final int MAX_LOOKUP_BATCH_SIZE = 256;
+
     private final String name;
     private final DataSource dataSource;
     private final String tableName;
     private final Integer maxTextLength;
     private final Boolean useCachedTable;
+    private final Integer writeBatchSize;
+
+    private final String deleteSQL;
+    // 按行数缓存多行 SQL，保证相同行数的批次复用同一条（服务端）预编译语句
+    private final Map<Integer, String> selectSQLs = new ConcurrentHashMap<>();
+    private final Map<Integer, String> upsertSQLs = new ConcurrentHashMap<>();
+
+    // 待批量写入的缓存（key: 原文），在达到批次大小或定时刷新时写入 TiDB
+    private final Map<String, String> pendingWrites = new LinkedHashMap<>();
+    private final ScheduledExecutorService flushExecutor;
 
     @Builder
     public TiDBCacheIntentClassifier(@NonNull String name,
@@ -69,6 +106,10 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
                                      @NonNull String tableName,
                                      Integer maxTextLength,
                                      Boolean useCachedTable,
+                                     Integer writeBatchSize,
+                                     Long writeFlushInterval,
+                                     Boolean cachePreparedStatements,
+                                     Integer preparedStatementCacheSize,
                                      Integer maxPoolSize,
                                      Integer minIdleConnections,
                                      Long connectionTimeout,
@@ -79,6 +120,8 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
         this.tableName = tableName;
         this.maxTextLength = Optional.ofNullable(maxTextLength).orElse(128);
         this.useCachedTable = Optional.ofNullable(useCachedTable).orElse(true);
+        this.writeBatchSize = Optional.ofNullable(writeBatchSize).orElse(64);
+        this.deleteSQL = String.format(DELETE_CACHE_TEMPLATE, tableName);
 
         // 初始化 HikariCP 连接池
         HikariConfig config = new HikariConfig();
@@ -101,6 +144,15 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
             config.setPassword(password);
         }
 
+        // 开启服务端预编译语句及客户端语句缓存，避免每次调用重复解析 SQL
+        if (Optional.ofNullable(cachePreparedStatements).orElse(true)) {
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize",
+                    String.valueOf(Optional.ofNullable(preparedStatementCacheSize).orElse(256)));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "8192");
+        }
+
         // 配置连接池参数
         config.setMaximumPoolSize(Optional.ofNullable(maxPoolSize).orElse(10));
         config.setMinimumIdle(Optional.ofNullable(minIdleConnections).orElse(2));
@@ -119,6 +171,19 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
             log.error("TiDB Cache - Failed to initialize table", e);
             throw new RuntimeException("Failed to initialize TiDB cache table", e);
         }
+
+        // 批量写入模式下，定时刷新未满批次的缓存
+        if (this.writeBatchSize > 1) {
+            long interval = Optional.ofNullable(writeFlushInterval).orElse(500L); // 500ms
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "tidb-cache-flush-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flushExecutor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.flushExecutor = null;
+        }
     }
 
     private void initializeTable() throws SQLException {
@@ -129,6 +194,32 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
             stmt.execute(createTableSQL);
             log.debug("TiDB Cache - Table '{}' initialized.", tableName);
 
+            // 旧版本以原文作为主键，表结构不兼容；缓存内容可由下游分类器重新生成，直接删除重建。
+            // 只迁移列与旧版本完全一致的表，无法识别的表不做任何修改
+            Set<String> columns = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery(String.format(SELECT_COLUMNS_TEMPLATE, tableName))) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    columns.add(metaData.getColumnName(i).toLowerCase(Locale.ROOT));
+                }
+            }
+            if (!columns.containsAll(List.of(CACHE_KEY_COLUMN_LABEL, CACHE_TEXT_COLUMN_LABEL, CACHE_VALUE_COLUMN_LABEL))) {
+                if (!columns.equals(OUTDATED_COLUMNS)) {
+                    throw new IllegalStateException("Table '" + tableName + "' exists but is not a TiDB cache table "
+                                                    + "(columns: " + columns + "), please configure another table name");
+                }
+                log.warn("TiDB Cache - Table '{}' uses the outdated layout without the '{}' column, " +
+                         "dropping and recreating it.", tableName, CACHE_TEXT_COLUMN_LABEL);
+                try {
+                    stmt.execute(String.format(ALTER_TABLE_NOCACHE_TEMPLATE, tableName));
+                } catch (SQLException e) {
+                    // 表不是缓存表
+                    log.debug("TiDB Cache - Failed to set table as NOCACHE: {}", e.getMessage());
+                }
+                stmt.execute(String.format(DROP_TABLE_TEMPLATE, tableName));
+                stmt.execute(createTableSQL);
+            }
+
             // 将表设置为缓存表（内存表），提升查询性能
             if (useCachedTable) {
                 try {
@@ -154,38 +245,65 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
     @Override
     public List<Intent> classify(@NonNull String text) {
         log.debug("TiDB Cache - Start get cache content.");
-        String selectSQL = String.format(SELECT_CACHE_TEMPLATE, tableName);
+        List<Intent> intents = classifyAll(Collections.singletonList(text)).get(text);
+        if (intents == null) {
+            log.debug("TiDB Cache - Cache miss fallback.");
+            return Collections.emptyList();
+        }
+        try {
+            log.debug("TiDB Cache - Return the intents: " + JSON_MAPPER.writeValueAsString(intents));
+        } catch (JsonProcessingException e) {
+            //
+        }
+        return intents;
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
-
-            pstmt.setString(1, text);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String cacheValue = rs.getString(CACHE_VALUE_COLUMN_LABEL);
-                    String[] labels = cacheValue.split(",");
-                    List<Intent> intents = new ArrayList<>();
-                    for (String label : labels) {
-                        if (label != null && !label.trim().isEmpty()) {
-                            intents.add(Intent.from(label.trim()));
-                        }
+    /**
+     * Looks up the cached intents of multiple texts with batched {@code IN (...)} queries.
+     *
+     * @param texts Texts to classify.
+     * @return The cached intents keyed by text, texts that miss the cache are absent.
+     */
+    public Map<String, List<Intent>> classifyAll(@NonNull Collection<String> texts) {
+        Map<String, List<Intent>> results = new LinkedHashMap<>();
+        Map<ByteBuffer, String> lookups = new LinkedHashMap<>();
+        synchronized (pendingWrites) {
+            for (String text : texts) {
+                String pending = pendingWrites.get(text);
+                if (pending != null) {
+                    results.put(text, toIntents(pending));
+                } else {
+                    lookups.put(ByteBuffer.wrap(cacheKey(text)), text);
+                }
+            }
+        }
+        if (lookups.isEmpty()) {
+            return results;
+        }
+
+        List<ByteBuffer> keys = new ArrayList<>(lookups.keySet());
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < keys.size(); from += MAX_LOOKUP_BATCH_SIZE) {
+                List<ByteBuffer> chunk = keys.subList(from, Math.min(from + MAX_LOOKUP_BATCH_SIZE, keys.size()));
+                try (PreparedStatement pstmt = conn.prepareStatement(selectSQL(chunk.size()))) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setBytes(i + 1, chunk.get(i).array());
                     }
-                    try {
-                        log.debug("TiDB Cache - Return the intents: " + JSON_MAPPER.writeValueAsString(intents));
-                    } catch (JsonProcessingException e) {
-                        //
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String text = lookups.get(ByteBuffer.wrap(rs.getBytes(CACHE_KEY_COLUMN_LABEL)));
+                            // 校验原文，防止摘要碰撞导致误命中
+                            if (text != null && text.equals(rs.getString(CACHE_TEXT_COLUMN_LABEL))) {
+                                results.put(text, toIntents(rs.getString(CACHE_VALUE_COLUMN_LABEL)));
+                            }
+                        }
                     }
-                    return intents;
-                } else {
-                    log.debug("TiDB Cache - Cache miss fallback.");
-                    return Collections.emptyList();
                 }
             }
         } catch (SQLException e) {
             log.error("TiDB Cache - Error retrieving cache", e);
-            return Collections.emptyList();
         }
+        return results;
     }
 
     @Override
@@ -200,31 +318,72 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
         log.debug("TiDB Cache - Set key: " + key + ", and value: [" + String.join(",", value) + "]");
 
         String cacheValue = String.join(",", value);
-        String upsertSQL = String.format(UPSERT_CACHE_TEMPLATE, tableName);
+        if (flushExecutor == null) {
+            upsert(Collections.singletonMap(key, cacheValue));
+            return;
+        }
+        boolean full;
+        synchronized (pendingWrites) {
+            pendingWrites.put(key, cacheValue);
+            full = pendingWrites.size() >= writeBatchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(upsertSQL)) {
+    /**
+     * Writes all pending cache entries to TiDB with multi-row upserts.
+     */
+    public synchronized void flush() {
+        Map<String, String> entries;
+        synchronized (pendingWrites) {
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            entries = new LinkedHashMap<>(pendingWrites);
+            pendingWrites.clear();
+        }
+        upsert(entries);
+    }
 
-            pstmt.setString(1, key);
-            pstmt.setString(2, cacheValue);
-            pstmt.setString(3, cacheValue);
-            pstmt.executeUpdate();
-            log.debug("TiDB Cache - The cache has been completed.");
+    private void upsert(Map<String, String> entries) {
+        List<Map.Entry<String, String>> rows = new ArrayList<>(entries.entrySet());
+        int batchSize = Math.max(writeBatchSize, 1);
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                List<Map.Entry<String, String>> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+                try (PreparedStatement pstmt = conn.prepareStatement(upsertSQL(chunk.size()))) {
+                    int index = 1;
+                    for (Map.Entry<String, String> row : chunk) {
+                        pstmt.setBytes(index++, cacheKey(row.getKey()));
+                        pstmt.setString(index++, row.getKey());
+                        pstmt.setString(index++, row.getValue());
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+            log.debug("TiDB Cache - The cache has been completed. Rows written: {}", rows.size());
         } catch (SQLException e) {
             log.error("TiDB Cache - Error setting cache", e);
         }
     }
 
+    /**
+     * 与 {@link #flush()} 使用同一把锁，避免删除发生在刷新取出待写入缓存之后、写入 TiDB 之前，导致已删除的缓存被重新写回
+     */
     @Override
-    public void del(@NonNull String key) {
+    public synchronized void del(@NonNull String key) {
         log.debug("TiDB Cache - Start delete cache the key: " + key);
 
-        String deleteSQL = String.format(DELETE_CACHE_TEMPLATE, tableName);
+        synchronized (pendingWrites) {
+            pendingWrites.remove(key);
+        }
 
         try (Connection conn = dataSource.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(deleteSQL)) {
 
-            pstmt.setString(1, key);
+            pstmt.setBytes(1, cacheKey(key));
             int deleted = pstmt.executeUpdate();
             log.debug("TiDB Cache - The cache has been deleted. Rows affected: {}", deleted);
         } catch (SQLException e) {
@@ -232,8 +391,36 @@ public class TiDBCacheIntentClassifier implements IntentClassifier, IntentCache,
         }
     }
 
+    private String selectSQL(int rows) {
+        return selectSQLs.computeIfAbsent(rows, n ->
+                String.format(SELECT_CACHE_TEMPLATE, tableName, String.join(", ", Collections.nCopies(n, "?"))));
+    }
+
+    private String upsertSQL(int rows) {
+        return upsertSQLs.computeIfAbsent(rows, n ->
+                String.format(UPSERT_CACHE_TEMPLATE, tableName, String.join(", ", Collections.nCopies(n, "(?, ?, ?)"))));
+    }
+
+    private static byte[] cacheKey(String text) {
+        return DigestUtils.sha256(text);
+    }
+
+    private static List<Intent> toIntents(String cacheValue) {
+        List<Intent> intents = new ArrayList<>();
+        for (String label : cacheValue.split(",")) {
+            if (label != null && !label.trim().isEmpty()) {
+                intents.add(Intent.from(label.trim()));
+            }
+        }
+        return intents;
+    }
+
     @Override
     public void close() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flush();
+        }
         if (dataSource instanceof HikariDataSource) {
             ((HikariDataSource) dataSource).close();
             log.info("TiDB Cache - Connection pool closed for '{}'.", name);
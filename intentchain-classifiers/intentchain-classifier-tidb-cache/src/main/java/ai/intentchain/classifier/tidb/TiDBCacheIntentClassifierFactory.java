@@ -80,6 +80,32 @@ public class TiDBCacheIntentClassifierFactory implements IntentClassifierFactory
                     .withDescription("Maximum number of characters allowed for the text to be cached. " +
                                      "Texts whose length exceeds this value will not be written into the cache.");
 
+    public static final ConfigOption<Integer> WRITE_BATCH_SIZE =
+            ConfigOptions.key("write-batch-size")
+                    .intType()
+                    .defaultValue(64)
+                    .withDescription("Maximum number of cache entries written with one multi-row upsert. " +
+                                     "Entries are buffered until the batch is full or the flush interval elapses, " +
+                                     "a value of 1 writes every entry immediately.");
+
+    public static final ConfigOption<Duration> WRITE_FLUSH_INTERVAL =
+            ConfigOptions.key("write-flush-interval")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(500))
+                    .withDescription("Interval for flushing buffered cache entries that have not filled a batch.");
+
+    public static final ConfigOption<Boolean> CACHE_PREPARED_STATEMENTS =
+            ConfigOptions.key("cache-prepared-statements")
+                    .booleanType()
+                    .defaultValue(true)
+                    .withDescription("Whether to use server-side prepared statements and cache them per connection.");
+
+    public static final ConfigOption<Integer> PREPARED_STATEMENT_CACHE_SIZE =
+            ConfigOptions.key("prepared-statement-cache-size")
+                    .intType()
+                    .defaultValue(256)
+                    .withDescription("Number of prepared statements cached per connection.");
+
     public static final ConfigOption<Integer> MAX_POOL_SIZE =
             ConfigOptions.key("max-pool-size")
                     .intType()
@@ -136,6 +162,8 @@ public class TiDBCacheIntentClassifierFactory implements IntentClassifierFactory
         return new LinkedHashSet<>(List.of(
                 JDBC_URL, HOST, PORT, DATABASE, USERNAME, PASSWORD,
                 TABLE_NAME, USE_CACHED_TABLE, MAX_TEXT_LENGTH,
+                WRITE_BATCH_SIZE, WRITE_FLUSH_INTERVAL,
+                CACHE_PREPARED_STATEMENTS, PREPARED_STATEMENT_CACHE_SIZE,
                 MAX_POOL_SIZE, MIN_IDLE_CONNECTIONS, CONNECTION_TIMEOUT,
                 IDLE_TIMEOUT, MAX_LIFETIME, LEAK_DETECTION_THRESHOLD
         ));
@@ -167,6 +195,11 @@ public class TiDBCacheIntentClassifierFactory implements IntentClassifierFactory
         config.getOptional(USE_CACHED_TABLE).ifPresent(builder::useCachedTable);
         config.getOptional(MAX_TEXT_LENGTH).ifPresent(builder::maxTextLength);
 
+        config.getOptional(WRITE_BATCH_SIZE).ifPresent(builder::writeBatchSize);
+        config.getOptional(WRITE_FLUSH_INTERVAL).ifPresent(d -> builder.writeFlushInterval(d.toMillis()));
+        config.getOptional(CACHE_PREPARED_STATEMENTS).ifPresent(builder::cachePreparedStatements);
+        config.getOptional(PREPARED_STATEMENT_CACHE_SIZE).ifPresent(builder::preparedStatementCacheSize);
+
         config.getOptional(MAX_POOL_SIZE).ifPresent(builder::maxPoolSize);
         config.getOptional(MIN_IDLE_CONNECTIONS).ifPresent(builder::minIdleConnections);
         config.getOptional(CONNECTION_TIMEOUT).ifPresent(d -> builder.connectionTimeout(d.toMillis()));
@@ -190,6 +223,16 @@ public class TiDBCacheIntentClassifierFactory implements IntentClassifierFactory
         Preconditions.checkArgument(maxTextLength > 0,
                 "'" + MAX_TEXT_LENGTH.key() + "' value must be greater than 0");
 
+        Integer writeBatchSize = config.get(WRITE_BATCH_SIZE);
+        Preconditions.checkArgument(writeBatchSize > 0,
+                "'" + WRITE_BATCH_SIZE.key() + "' value must be greater than 0");
+        Duration writeFlushInterval = config.get(WRITE_FLUSH_INTERVAL);
+        Preconditions.checkArgument(writeFlushInterval.toMillis() > 0,
+                "'" + WRITE_FLUSH_INTERVAL.key() + "' value must be greater than 0");
+        Integer preparedStatementCacheSize = config.get(PREPARED_STATEMENT_CACHE_SIZE);
+        Preconditions.checkArgument(preparedStatementCacheSize > 0,
+                "'" + PREPARED_STATEMENT_CACHE_SIZE.key() + "' value must be greater than 0");
+
         Integer maxPoolSize = config.get(MAX_POOL_SIZE);
         Preconditions.checkArgument(maxPoolSize > 0,
                 "'" + MAX_POOL_SIZE.key() + "' value must be greater than 0");
@@ -227,6 +227,10 @@ start_server() {
     # Start the server in background with dynamic subcommand
     # Set Java options
     JAVA_OPTS="-Dfile.encoding=UTF-8 -Dsun.jnu.encoding=UTF-8 -Xms256m -Xmx1g -Dintentchain.logs.root.path=$PROJECT_PATH"
+    # Enable the Vector API for SIMD scoring of the flat store when the JVM contains it (a minimal JRE may not)
+    if "$JAVA_CMD" --list-modules 2>/dev/null | grep -q "^jdk.incubator.vector@"; then
+        JAVA_OPTS="$JAVA_OPTS --add-modules jdk.incubator.vector"
+    fi
 
     # Standard mode - use JAR file
     nohup $JAVA_CMD $JAVA_OPTS -jar "$JAR_FILE" server $service_type \
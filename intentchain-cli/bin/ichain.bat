@@ -36,6 +36,9 @@ exit /b 1
 
 :: Common Java options
 set JAVA_OPTS=-Dfile.encoding=UTF-8 -Dsun.jnu.encoding=UTF-8 -Xms256m -Xmx1g
+:: Enable the Vector API for SIMD scoring of the flat store when the JVM contains it (a minimal JRE may not)
+%JAVA_CMD% --list-modules 2>nul | findstr /b /c:"jdk.incubator.vector@" >nul
+if not errorlevel 1 set JAVA_OPTS=%JAVA_OPTS% --add-modules jdk.incubator.vector
 
 :: Get first parameter as command
 set COMMAND=%1
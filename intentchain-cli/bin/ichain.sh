@@ -34,6 +34,10 @@ fi
 
 # Common Java options
 JAVA_OPTS="-Dfile.encoding=UTF-8 -Dsun.jnu.encoding=UTF-8 -Xms256m -Xmx1g"
+# Enable the Vector API for SIMD scoring of the flat store when the JVM contains it (a minimal JRE may not)
+if "$JAVA_CMD" --list-modules 2>/dev/null | grep -q "^jdk.incubator.vector@"; then
+    JAVA_OPTS="$JAVA_OPTS --add-modules jdk.incubator.vector"
+fi
 
 # Function: Check if command supports -p/--project-path parameter
 check_supports_project_path() {
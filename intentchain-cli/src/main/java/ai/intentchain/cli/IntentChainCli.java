@@ -28,6 +28,7 @@ import java.util.concurrent.Callable;
                 BuildCommand.class,
                 RunCommand.class,
                 TestCommand.class,
+                TuneCommand.class,
                 CleanCommand.class,
                 ServerCommand.class
         }
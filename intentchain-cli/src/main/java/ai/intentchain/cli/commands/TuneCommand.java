@@ -0,0 +1,70 @@
+package ai.intentchain.cli.commands;
+
+import ai.intentchain.cli.provider.VersionProvider;
+import ai.intentchain.cli.utils.AnsiUtil;
+import ai.intentchain.sdk.ProjectTuner;
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Tune project commands
+ */
+@Command(
+        name = "tune",
+        mixinStandardHelpOptions = true,
+        versionProvider = VersionProvider.class,
+        description = "Tune the thread count of the in-process (ONNX) models of IntentChain project"
+)
+@Slf4j
+public class TuneCommand implements Callable<Integer> {
+
+    @Option(names = {"-p", "--project-path"},
+            description = "Project path (default: current directory)",
+            defaultValue = ".")
+    private String projectPath;
+
+    @Override
+    public Integer call() {
+        try {
+            Path path = Paths.get(projectPath).toAbsolutePath();
+            log.info("Start tuning the project: {}", path);
+            System.out.println("📁 Project path: " + path);
+
+            System.out.println("⏱️ Start measuring the in-process models...");
+            ProjectTuner tuner = new ProjectTuner(path);
+            List<ProjectTuner.Result> results = tuner.tune();
+            if (results.isEmpty()) {
+                System.out.println(AnsiUtil.string(
+                        "@|fg(yellow) ⚠️ No in-process model supports thread tuning.|@"));
+                return 0;
+            }
+
+            for (ProjectTuner.Result result : results) {
+                System.out.printf("  %-10s %-30s threads=%-7s latency=%.2f ms%n",
+                        result.component(), result.provider(),
+                        result.sharedPool() ? "shared" : String.valueOf(result.threads()),
+                        result.latencyMillis());
+            }
+
+            Map<String, ProjectTuner.Result> best = ProjectTuner.best(results);
+            best.forEach((component, result) -> System.out.println(AnsiUtil.string(result.sharedPool()
+                    ? "@|fg(green),bold ✅ Recommended for " + component + ": leave 'session.intra-op-threads' "
+                      + "unset to share the global thread pool|@"
+                    : "@|fg(green),bold ✅ Recommended for " + component + ": set 'session.intra-op-threads: "
+                      + result.threads() + "' in the " + component + " configuration|@")));
+            return 0;
+        } catch (Exception e) {
+            log.error("Project tuning failed", e);
+            System.err.println(AnsiUtil.string(
+                    "@|fg(red) ❌ Tuning failed: " + e.getMessage() + "|@"));
+            return 1;
+        }
+    }
+}
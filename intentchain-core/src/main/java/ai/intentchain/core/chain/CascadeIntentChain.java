@@ -7,6 +7,10 @@ import ai.intentchain.core.classifiers.IntentClassifier;
 import ai.intentchain.core.classifiers.IntentTrainer;
 import ai.intentchain.core.classifiers.data.Intent;
 import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.classifiers.data.TrainingBatch;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -14,13 +18,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * Cascade Intent Chain
  */
 @Slf4j
-public class CascadeIntentChain {
+public class CascadeIntentChain implements AutoCloseable {
     private final List<IntentClassifier> classifiers;
     private final List<IntentCache> caches;
     private final Map<String, IntentTrainer> trainers;
@@ -97,8 +102,66 @@ public class CascadeIntentChain {
     }
 
     public Map<String, List<String>> train(@NonNull List<TextLabel> textLabels) {
-        return trainers.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().train(textLabels)));
+        return write(prepare(textLabels));
+    }
+
+    /**
+     * 流水线构建的准备阶段：由各训练器准备（如向量化）同一批训练数据，可并发调用；
+     * 使用同一向量模型的训练器只向量化一次，向量由这些训练器共享
+     *
+     * @return Map&lt;训练器, 准备好的训练数据&gt;
+     */
+    public Map<String, TrainingBatch> prepare(@NonNull List<TextLabel> textLabels) {
+        return prepare(textLabels, trainers.keySet());
+    }
+
+    /**
+     * 只由指定的训练器准备训练数据，用于补建部分分类器
+     */
+    public Map<String, TrainingBatch> prepare(@NonNull List<TextLabel> textLabels, @NonNull Collection<String> keys) {
+        List<String> ids = IntentTrainer.ids(textLabels);
+        Map<String, TrainingBatch> batches = new HashMap<>();
+        Map<EmbeddingModel, List<Embedding>> embeddingsMap = new IdentityHashMap<>();
+        trainers.forEach((key, trainer) -> {
+            if (!keys.contains(key)) {
+                return;
+            }
+            EmbeddingModel embeddingModel = trainer.embeddingModel();
+            if (embeddingModel == null) {
+                batches.put(key, trainer.prepare(ids, textLabels));
+                return;
+            }
+            List<Embedding> embeddings = embeddingsMap.computeIfAbsent(embeddingModel, m -> m.embedAll(
+                    textLabels.stream().map(t -> TextSegment.from(t.getText())).toList()).content());
+            batches.put(key, trainer.prepare(ids, textLabels, embeddings));
+        });
+        return batches;
+    }
+
+    /**
+     * 流水线构建的写入阶段：并行写入 {@link #prepare(List)} 准备好的训练数据
+     *
+     * @return Map&lt;训练器, 写入的 id&gt;
+     */
+    public Map<String, List<String>> write(@NonNull Map<String, TrainingBatch> batches) {
+        List<Map.Entry<String, TrainingBatch>> entries = batches.entrySet().stream()
+                .filter(e -> trainers.containsKey(e.getKey()))
+                .toList();
+        Map<String, List<String>> idsMap = new ConcurrentHashMap<>();
+        (entries.size() > 1 ? entries.parallelStream() : entries.stream()).forEach(e -> {
+            IntentTrainer trainer = trainers.get(e.getKey());
+            trainer.remove(e.getValue().ids());
+            trainer.write(e.getValue());
+            idsMap.put(e.getKey(), e.getValue().ids());
+        });
+        return new HashMap<>(idsMap);
+    }
+
+    /**
+     * 持久化训练器的 key（分类器指纹）
+     */
+    public Set<String> trainerKeys() {
+        return Collections.unmodifiableSet(trainers.keySet());
     }
 
     public void remove(@NonNull Map<String, List<String>> keysMap) {
@@ -106,4 +169,47 @@ public class CascadeIntentChain {
                 .filter(e -> trainers.containsKey(e.getKey()))
                 .forEach(e -> trainers.get(e.getKey()).remove(e.getValue()));
     }
+
+    /**
+     * 清空全部持久化训练器的数据
+     */
+    public void clear() {
+        trainers.values().forEach(IntentTrainer::clear);
+    }
+
+    /**
+     * 构建成功完成后通知全部持久化训练器
+     */
+    public void finishTraining() {
+        trainers.values().forEach(IntentTrainer::finishTraining);
+    }
+
+    @Override
+    public void close() {
+        for (IntentClassifier classifier : classifiers) {
+            if (classifier instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Intent classifier '" + classifier.classifierName() + "' close exception.", e);
+                }
+            }
+        }
+        // 向量模型由各训练器共享，在分类器关闭后统一关闭一次（如释放向量缓存的文件通道）
+        Set<EmbeddingModel> embeddingModels = Collections.newSetFromMap(new IdentityHashMap<>());
+        classifiers.stream()
+                .filter(c -> c instanceof IntentTrainer)
+                .map(c -> ((IntentTrainer) c).embeddingModel())
+                .filter(Objects::nonNull)
+                .forEach(embeddingModels::add);
+        for (EmbeddingModel embeddingModel : embeddingModels) {
+            if (embeddingModel instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Embedding model '" + embeddingModel.modelName() + "' close exception.", e);
+                }
+            }
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package ai.intentchain.core.classifiers;
 
 import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.classifiers.data.TrainingBatch;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import lombok.NonNull;
 import org.apache.commons.codec.digest.DigestUtils;
 
@@ -18,8 +21,15 @@ public interface IntentTrainer {
         return true;
     }
 
+    /**
+     * 训练数据的 id，由文本内容决定，相同文本重复训练时覆盖旧数据
+     */
+    static List<String> ids(@NonNull List<TextLabel> textLabels) {
+        return textLabels.stream().map(t -> DigestUtils.md5Hex(t.getText())).toList();
+    }
+
     default List<String> train(@NonNull List<TextLabel> textLabels) {
-        List<String> ids = textLabels.stream().map(t -> DigestUtils.md5Hex(t.getText())).toList();
+        List<String> ids = ids(textLabels);
         remove(ids);
         train(ids, textLabels);
         return ids;
@@ -27,5 +37,47 @@ public interface IntentTrainer {
 
     List<String> train(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels);
 
+    /**
+     * 准备训练数据（如向量化），与 {@link #write(TrainingBatch)} 分开调用时，
+     * 耗时的准备阶段可以与写入阶段流水线并行，实现需保证本方法线程安全
+     */
+    default TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
+        return new TrainingBatch(ids, textLabels, null, null);
+    }
+
+    /**
+     * 准备训练数据时使用的向量模型，不需要向量化的训练器返回 null；
+     * 使用同一向量模型的训练器由 {@link ai.intentchain.core.chain.CascadeIntentChain} 统一向量化一次
+     */
+    default EmbeddingModel embeddingModel() {
+        return null;
+    }
+
+    /**
+     * 使用已计算好的向量准备训练数据，embeddings 与 textLabels 按下标一一对应
+     */
+    default TrainingBatch prepare(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels,
+                                  @NonNull List<Embedding> embeddings) {
+        return prepare(ids, textLabels);
+    }
+
+    /**
+     * 写入 {@link #prepare(List, List)} 准备好的训练数据
+     */
+    default void write(@NonNull TrainingBatch batch) {
+        train(batch.ids(), batch.textLabels());
+    }
+
     void remove(@NonNull Collection<String> keys);
+
+    /**
+     * 清空全部训练数据，强制重建时调用
+     */
+    void clear();
+
+    /**
+     * 构建成功完成后调用，用于构建批量导入期间推迟的索引
+     */
+    default void finishTraining() {
+    }
 }
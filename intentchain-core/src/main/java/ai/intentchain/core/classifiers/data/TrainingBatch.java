@@ -0,0 +1,21 @@
+package ai.intentchain.core.classifiers.data;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * 已准备好（如完成向量化）、等待写入的一批训练数据，各列表按下标一一对应
+ *
+ * @param ids          训练数据 id
+ * @param textLabels   训练数据
+ * @param textSegments 写入向量存储的文本片段，不使用向量存储的训练器为 null
+ * @param embeddings   文本片段的向量，不使用向量存储的训练器为 null
+ */
+public record TrainingBatch(@NonNull List<String> ids,
+                            @NonNull List<TextLabel> textLabels,
+                            List<TextSegment> textSegments,
+                            List<Embedding> embeddings) {
+}
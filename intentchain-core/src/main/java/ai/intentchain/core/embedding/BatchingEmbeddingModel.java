@@ -0,0 +1,160 @@
+package ai.intentchain.core.embedding;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.utils.MicroBatcher;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 动态微批向量模型
+ * <p>
+ * 并发的单条 {@link #embed(TextSegment)} 调用（查询路径）由 {@link MicroBatcher} 合并为一次
+ * {@link EmbeddingModel#embedAll(List)}：批次凑满 maxBatchSize 条，或到达批次内各请求截止时间中最早的一个
+ * （入队时间 + 各自的最长等待时间）时执行，再将向量按请求拆分返回。
+ * 批量调用 {@link #embedAll(List)}（训练路径）不排队，直接交给底层模型。
+ * 批次大小按 2 的幂分桶统计，并按 reportInterval 输出到日志。
+ */
+@Slf4j
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    public static final ConfigOption<Boolean> BATCH_ENABLED =
+            ConfigOptions.key("batch.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether to merge concurrent single-text embedding requests " +
+                                     "into one batch inference");
+
+    public static final ConfigOption<Integer> BATCH_MAX_SIZE =
+            ConfigOptions.key("batch.max-size")
+                    .intType()
+                    .defaultValue(32)
+                    .withDescription("The maximum number of texts merged into one batch inference");
+
+    public static final ConfigOption<Duration> BATCH_MAX_WAIT =
+            ConfigOptions.key("batch.max-wait")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(2))
+                    .withDescription("The default maximum time a request waits for other concurrent requests " +
+                                     "to fill the batch");
+
+    public static final ConfigOption<Duration> BATCH_REPORT_INTERVAL =
+            ConfigOptions.key("batch.report-interval")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(1))
+                    .withDescription("The interval for logging the batch size histogram, 0 disables the report");
+
+    // 桶 i 统计大小在 [2^i, 2^(i+1)) 内的批次
+    private static final int HISTOGRAM_BUCKETS = 16;
+
+    private final EmbeddingModel delegate;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final long reportIntervalNanos;
+    private final MicroBatcher<TextSegment, Embedding> batcher;
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private long lastReport = System.nanoTime();
+
+    @Builder
+    public BatchingEmbeddingModel(@NonNull EmbeddingModel delegate,
+                                  Integer maxBatchSize,
+                                  Duration maxWait,
+                                  Duration reportInterval) {
+        this.delegate = delegate;
+        this.maxBatchSize = Optional.ofNullable(maxBatchSize).orElse(32);
+        Preconditions.checkArgument(this.maxBatchSize >= 1,
+                "maxBatchSize must be greater than or equal to 1");
+        this.maxWait = Optional.ofNullable(maxWait).orElse(Duration.ofMillis(2));
+        Preconditions.checkArgument(!this.maxWait.isNegative(), "maxWait must not be negative");
+        this.reportIntervalNanos = Optional.ofNullable(reportInterval).orElse(Duration.ofMinutes(1)).toNanos();
+        this.batcher = new MicroBatcher<>("embedding-batcher", this.maxBatchSize, t -> 1, this::embedBatch);
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment, maxWait);
+    }
+
+    /**
+     * 单条向量化，maxWait 为本次请求等待合并的最长时间，0 表示只与队列中已有的请求合并
+     */
+    public Response<Embedding> embed(@NonNull TextSegment textSegment, @NonNull Duration maxWait) {
+        if (maxBatchSize == 1) {
+            return delegate.embed(textSegment);
+        }
+        return Response.from(batcher.submit(textSegment, maxWait));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    /**
+     * 批次大小直方图，键为批次大小区间，值为批次数
+     */
+    public Map<String, Long> batchSizeHistogram() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            long count = histogram.get(i);
+            if (count > 0) {
+                int low = 1 << i;
+                int high = (1 << (i + 1)) - 1;
+                snapshot.put(low == high ? String.valueOf(low) : low + "-" + high, count);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 停止合并线程并关闭底层模型，合并线程中正在执行的批次结束后才关闭
+     */
+    @Override
+    public void close() throws Exception {
+        batcher.close();
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private List<Embedding> embedBatch(List<TextSegment> textSegments) {
+        try {
+            return textSegments.size() == 1
+                    ? List.of(delegate.embed(textSegments.get(0)).content())
+                    : delegate.embedAll(textSegments).content();
+        } finally {
+            record(textSegments.size());
+        }
+    }
+
+    private void record(int batchSize) {
+        int bucket = Math.min(31 - Integer.numberOfLeadingZeros(batchSize), HISTOGRAM_BUCKETS - 1);
+        histogram.incrementAndGet(bucket);
+        long now = System.nanoTime();
+        if (reportIntervalNanos > 0 && now - lastReport >= reportIntervalNanos) {
+            lastReport = now;
+            log.info("Embedding batch size histogram of {}: {}", modelName(), batchSizeHistogram());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ai.intentchain.core.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import lombok.NonNull;
+
+import java.util.*;
+
+/**
+ * 带磁盘缓存的向量模型
+ * <p>
+ * 批量向量化（训练路径）先查缓存，只把未命中的文本交给底层模型，并将结果写回缓存；
+ * 单条向量化（查询路径）只读缓存，查询文本不会写入，避免缓存随请求无限增长。
+ */
+public class CachedEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final EmbeddingCache cache;
+
+    public CachedEmbeddingModel(@NonNull EmbeddingModel delegate, @NonNull EmbeddingCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        float[] vector = cache.get(textSegment.text());
+        if (vector != null) {
+            return Response.from(Embedding.from(vector));
+        }
+        return delegate.embed(textSegment);
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        Embedding[] embeddings = new Embedding[textSegments.size()];
+        // 未命中的文本 -> 所在下标，相同文本只向量化一次
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < textSegments.size(); i++) {
+            String text = textSegments.get(i).text();
+            float[] vector = cache.get(text);
+            if (vector != null) {
+                embeddings[i] = Embedding.from(vector);
+            } else {
+                misses.computeIfAbsent(text, k -> new ArrayList<>()).add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return Response.from(Arrays.asList(embeddings));
+        }
+
+        List<String> texts = new ArrayList<>(misses.keySet());
+        List<TextSegment> segments = texts.stream()
+                .map(text -> textSegments.get(misses.get(text).get(0)))
+                .toList();
+        Response<List<Embedding>> response = delegate.embedAll(segments);
+        List<Embedding> embedded = response.content();
+        List<float[]> vectors = new ArrayList<>(embedded.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Embedding embedding = embedded.get(i);
+            vectors.add(embedding.vector());
+            misses.get(texts.get(i)).forEach(index -> embeddings[index] = embedding);
+        }
+        cache.putAll(texts, vectors);
+        return Response.from(Arrays.asList(embeddings), response.tokenUsage(),
+                response.finishReason(), response.metadata());
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    /**
+     * 关闭缓存及底层模型
+     */
+    @Override
+    public void close() throws Exception {
+        try (EmbeddingCache ignored = cache) {
+            if (delegate instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package ai.intentchain.core.embedding;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内容寻址的向量磁盘缓存
+ * <p>
+ * 一个目录对应一个向量模型，以文本的 MD5 作为键，目录内包含两个只追加的文件：
+ * <ul>
+ *     <li>{@value #VECTORS_FILE_NAME}：定长的 float32 向量记录，读取时按段内存映射</li>
+ *     <li>{@value #INDEX_FILE_NAME}：文件头（魔数、版本、维度）以及 (文本 MD5, 向量记录号) 索引记录</li>
+ * </ul>
+ * 先写向量再写索引，进程中断时最多留下没有索引的向量记录，重新打开时会被忽略并覆盖。
+ * 追加时持有索引文件的文件锁，多个进程可以共享同一个缓存目录。
+ * 进程内读取共享读锁并发执行，追加与关闭持有写锁；已映射的段通过 volatile 数组发布，扩展映射时整体替换。
+ */
+@Slf4j
+public class EmbeddingCache implements AutoCloseable {
+
+    public static final String VECTORS_FILE_NAME = "vectors.bin";
+    public static final String INDEX_FILE_NAME = "index.bin";
+
+    private static final int MAGIC = 0x49434543; // "ICEC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_RECORD_BYTES = 24;
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel vectorsChannel;
+    private final FileChannel indexChannel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Key, Long> index = new HashMap<>();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private int dimension;
+    private int recordBytes;
+    private long recordsPerSegment;
+    // 已写入索引、可以读取的向量记录数
+    private long records;
+    private boolean closed;
+
+    public EmbeddingCache(@NonNull Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.vectorsChannel = FileChannel.open(directory.resolve(VECTORS_FILE_NAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE_NAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try (FileLock ignored = indexChannel.lock()) {
+                load();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedding cache " + directory, e);
+        }
+        log.info("Loaded {} cached embeddings from {}", index.size(), directory);
+    }
+
+    /**
+     * 读取文本的缓存向量，未命中返回 null
+     */
+    public float[] get(@NonNull String text) {
+        Key key = Key.of(text);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Long record = index.get(key);
+            if (record == null) {
+                return null;
+            }
+            MappedByteBuffer segment = segment(record);
+            int offset = (int) (record % recordsPerSegment) * recordBytes;
+            float[] vector = new float[dimension];
+            segment.slice(offset, recordBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+            return vector;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加缓存，已存在的文本会被跳过，texts 与 vectors 按下标一一对应
+     */
+    public void putAll(@NonNull List<String> texts, @NonNull List<float[]> vectors) {
+        Preconditions.checkArgument(texts.size() == vectors.size(),
+                "The number of texts and vectors must match");
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            append(texts, vectors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(List<String> texts, List<float[]> vectors) {
+        Map<Key, float[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            Key key = Key.of(texts.get(i));
+            if (!index.containsKey(key)) {
+                entries.putIfAbsent(key, vectors.get(i));
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (FileLock ignored = indexChannel.lock()) {
+            if (dimension == 0) {
+                writeHeader(entries.values().iterator().next().length);
+            }
+            // 从最后一条完整的向量记录之后开始写，覆盖中断时残留的不完整记录
+            long firstRecord = vectorsChannel.size() / recordBytes;
+            ByteBuffer vectorBuffer = ByteBuffer.allocate(entries.size() * recordBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer indexBuffer = ByteBuffer.allocate(entries.size() * INDEX_RECORD_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long record = firstRecord;
+            for (Map.Entry<Key, float[]> entry : entries.entrySet()) {
+                Preconditions.checkArgument(entry.getValue().length == dimension,
+                        "The embedding dimension " + entry.getValue().length
+                        + " does not match the cache dimension " + dimension);
+                for (float v : entry.getValue()) {
+                    vectorBuffer.putFloat(v);
+                }
+                indexBuffer.putLong(entry.getKey().high()).putLong(entry.getKey().low()).putLong(record++);
+            }
+            writeFully(vectorsChannel, vectorBuffer.flip(), firstRecord * recordBytes);
+            long indexPosition = HEADER_BYTES
+                                 + (indexChannel.size() - HEADER_BYTES) / INDEX_RECORD_BYTES * INDEX_RECORD_BYTES;
+            writeFully(indexChannel, indexBuffer.flip(), indexPosition);
+
+            record = firstRecord;
+            for (Key key : entries.keySet()) {
+                index.put(key, record++);
+            }
+            records = Math.max(records, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to embedding cache", e);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关闭文件通道，已映射的段随之失去引用
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segments = new MappedByteBuffer[0];
+            try (FileChannel ignored = indexChannel) {
+                vectorsChannel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        Preconditions.checkState(!closed, "The embedding cache is closed");
+    }
+
+    private void load() throws IOException {
+        if (indexChannel.size() < HEADER_BYTES) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(indexChannel, header, 0);
+        header.flip();
+        Preconditions.checkState(header.getInt() == MAGIC && header.getInt() == VERSION,
+                "Unsupported embedding cache index file format");
+        initDimension(header.getInt());
+
+        long vectorRecords = vectorsChannel.size() / recordBytes;
+        long indexRecords = (indexChannel.size() - HEADER_BYTES) / INDEX_RECORD_BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_RECORD_BYTES * 4096).order(ByteOrder.LITTLE_ENDIAN);
+        long position = HEADER_BYTES;
+        long end = HEADER_BYTES + indexRecords * INDEX_RECORD_BYTES;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(indexChannel, buffer, position);
+            position += buffer.limit();
+            buffer.flip();
+            while (buffer.remaining() >= INDEX_RECORD_BYTES) {
+                Key key = new Key(buffer.getLong(), buffer.getLong());
+                long record = buffer.getLong();
+                // 忽略指向不完整向量记录的索引
+                if (record < vectorRecords) {
+                    index.put(key, record);
+                    records = Math.max(records, record + 1);
+                }
+            }
+        }
+    }
+
+    private void writeHeader(int dimension) throws IOException {
+        // 其他进程可能已写入文件头
+        if (indexChannel.size() >= HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(indexChannel, header, 0);
+            header.flip().position(8);
+            initDimension(header.getInt());
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(0);
+        writeFully(indexChannel, header.flip(), 0);
+        vectorsChannel.truncate(0);
+        initDimension(dimension);
+    }
+
+    private void initDimension(int dimension) {
+        Preconditions.checkState(dimension > 0, "Invalid embedding cache dimension " + dimension);
+        this.dimension = dimension;
+        this.recordBytes = dimension * Float.BYTES;
+        this.recordsPerSegment = Math.max(1, SEGMENT_BYTES / recordBytes);
+    }
+
+    /**
+     * 映射记录所在的段，调用方需持有读锁或写锁
+     */
+    private MappedByteBuffer segment(long record) {
+        int s = (int) (record / recordsPerSegment);
+        long needed = (record % recordsPerSegment + 1) * recordBytes;
+        MappedByteBuffer[] mapped = segments;
+        MappedByteBuffer segment = s < mapped.length ? mapped[s] : null;
+        if (segment == null || segment.capacity() < needed) {
+            segment = remap(s, needed);
+        }
+        return segment;
+    }
+
+    /**
+     * 段内新追加的记录超出已映射范围时重新映射，并发读取时只由一个线程映射
+     */
+    private synchronized MappedByteBuffer remap(int s, long needed) {
+        MappedByteBuffer[] mapped = segments;
+        if (s < mapped.length && mapped[s] != null && mapped[s].capacity() >= needed) {
+            return mapped[s];
+        }
+        long start = s * recordsPerSegment * recordBytes;
+        long length = Math.min(recordsPerSegment, records - s * recordsPerSegment) * recordBytes;
+        MappedByteBuffer segment;
+        try {
+            segment = vectorsChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map embedding cache vectors", e);
+        }
+        MappedByteBuffer[] remapped = Arrays.copyOf(mapped, Math.max(mapped.length, s + 1));
+        remapped[s] = segment;
+        segments = remapped;
+        return segment;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of embedding cache file");
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private record Key(long high, long low) {
+        static Key of(String text) {
+            ByteBuffer md5 = ByteBuffer.wrap(DigestUtils.md5(text));
+            return new Key(md5.getLong(), md5.getLong());
+        }
+    }
+}
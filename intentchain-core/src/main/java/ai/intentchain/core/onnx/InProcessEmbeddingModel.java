@@ -0,0 +1,97 @@
+package ai.intentchain.core.onnx;
+
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.model.embedding.onnx.AbstractInProcessEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.OnnxBertBiEncoder;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 进程内（ONNX）向量模型
+ * <p>
+ * 与 langchain4j 内置模型的推理逻辑相同，但会话在 {@link OnnxRuntime} 的共享环境中按文件路径创建，
+ * 打包在 jar 中的模型先解压到本地缓存目录，会话配置见 {@link OnnxSessionOptions}。
+ */
+public class InProcessEmbeddingModel extends AbstractInProcessEmbeddingModel implements AutoCloseable {
+
+    private final OrtSession session;
+    private final OnnxBertBiEncoder model;
+    private final Integer knownDimension;
+
+    private InProcessEmbeddingModel(OrtSession session, OnnxBertBiEncoder model, Integer knownDimension) {
+        super(null);
+        this.session = session;
+        this.model = model;
+        this.knownDimension = knownDimension;
+    }
+
+    /**
+     * 加载类路径中的模型与分词器
+     */
+    public static InProcessEmbeddingModel fromResources(@NonNull String modelResourceName,
+                                                        @NonNull String tokenizerResourceName,
+                                                        @NonNull PoolingMode poolingMode,
+                                                        Integer knownDimension,
+                                                        @NonNull ReadableConfig sessionConfig) {
+        InputStream tokenizer = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(tokenizerResourceName);
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("The resource " + tokenizerResourceName + " does not exist");
+        }
+        return load(OnnxRuntime.extractResource(modelResourceName), tokenizer, poolingMode, knownDimension,
+                sessionConfig);
+    }
+
+    /**
+     * 加载本地文件中的模型与分词器
+     */
+    public static InProcessEmbeddingModel fromFiles(@NonNull Path modelPath,
+                                                    @NonNull Path tokenizerPath,
+                                                    @NonNull PoolingMode poolingMode,
+                                                    @NonNull ReadableConfig sessionConfig) {
+        try {
+            return load(modelPath, Files.newInputStream(tokenizerPath), poolingMode, null, sessionConfig);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the tokenizer " + tokenizerPath, e);
+        }
+    }
+
+    private static InProcessEmbeddingModel load(Path modelPath, InputStream tokenizer,
+                                                PoolingMode poolingMode, Integer knownDimension,
+                                                ReadableConfig sessionConfig) {
+        try (InputStream tokenizerStream = tokenizer) {
+            OrtSession session = OnnxSessionOptions.createSession(modelPath, sessionConfig);
+            return new InProcessEmbeddingModel(session,
+                    new OnnxBertBiEncoder(OnnxRuntime.environment(), session, tokenizerStream, poolingMode),
+                    knownDimension);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected OnnxBertBiEncoder model() {
+        return model;
+    }
+
+    @Override
+    protected Integer knownDimension() {
+        return knownDimension;
+    }
+
+    /**
+     * 释放会话，共享的运行环境不受影响
+     */
+    @Override
+    public void close() throws OrtException {
+        session.close();
+    }
+}
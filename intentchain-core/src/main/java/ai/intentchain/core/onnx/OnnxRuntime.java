@@ -0,0 +1,131 @@
+package ai.intentchain.core.onnx;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtLoggingLevel;
+import ai.onnxruntime.OrtSession;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 进程内共享的 ONNX Runtime 环境
+ * <p>
+ * 所有进程内（ONNX）向量模型与重排序模型共用一个 {@link OrtEnvironment}，
+ * 会话使用环境的全局线程池而不是各自创建线程池，避免多个模型同时推理时线程数超过 CPU 核数。
+ * 打包在 jar 中的模型文件首次使用时解压到 {@link #MODEL_CACHE_DIR}，之后按文件路径创建会话，
+ * 模型不再经过 Java 堆。
+ */
+@Slf4j
+public final class OnnxRuntime {
+
+    public static final Path MODEL_CACHE_DIR = Path.of(System.getProperty("user.home"), ".intentchain", "models");
+
+    private static final String ENVIRONMENT_NAME = "intentchain";
+
+    private static OrtEnvironment environment;
+    // 环境是否带有全局线程池，其他组件先创建了默认环境时为 false
+    private static boolean globalThreadPools;
+
+    private OnnxRuntime() {
+    }
+
+    /**
+     * 共享环境，首次调用时创建，全局计算线程数为 CPU 核数
+     */
+    public static synchronized OrtEnvironment environment() {
+        if (environment == null) {
+            try (OrtEnvironment.ThreadingOptions threadingOptions = new OrtEnvironment.ThreadingOptions()) {
+                threadingOptions.setGlobalIntraOpNumThreads(Runtime.getRuntime().availableProcessors());
+                threadingOptions.setGlobalInterOpNumThreads(1);
+                environment = OrtEnvironment.getEnvironment(OrtLoggingLevel.ORT_LOGGING_LEVEL_WARNING,
+                        ENVIRONMENT_NAME, threadingOptions);
+                globalThreadPools = true;
+            } catch (OrtException e) {
+                throw new RuntimeException("Failed to create the ONNX Runtime environment", e);
+            } catch (IllegalStateException e) {
+                // 默认环境已存在，无法再指定全局线程池
+                log.warn("The ONNX Runtime environment already exists, sessions use their own thread pools");
+                environment = OrtEnvironment.getEnvironment();
+                globalThreadPools = false;
+            }
+        }
+        return environment;
+    }
+
+    /**
+     * 使用共享环境全局线程池的会话配置
+     */
+    public static OrtSession.SessionOptions sessionOptions() {
+        environment();
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        try {
+            if (globalThreadPools) {
+                options.disablePerSessionThreads();
+            }
+        } catch (OrtException e) {
+            options.close();
+            throw new RuntimeException("Failed to create the ONNX Runtime session options", e);
+        }
+        return options;
+    }
+
+    /**
+     * 按模型文件路径创建会话，由 ONNX Runtime 直接读取文件
+     */
+    public static OrtSession createSession(@NonNull Path modelPath, @NonNull OrtSession.SessionOptions options) {
+        try {
+            return environment().createSession(modelPath.toString(), options);
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to load the ONNX model " + modelPath, e);
+        }
+    }
+
+    /**
+     * 返回类路径资源对应的本地文件，资源在 jar 中时解压到缓存目录，已解压且大小一致时直接复用
+     */
+    public static Path extractResource(@NonNull String resourceName) {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(resourceName);
+        if (url == null) {
+            throw new IllegalArgumentException("The resource " + resourceName + " does not exist");
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return Path.of(url.toURI());
+            }
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            long length = connection.getContentLengthLong();
+            // 资源 URL 包含 jar 路径，不同版本的模型解压到不同目录
+            Path directory = MODEL_CACHE_DIR.resolve(DigestUtils.md5Hex(url.toString()));
+            Path target = directory.resolve(Path.of(resourceName).getFileName().toString());
+            if (Files.isRegularFile(target) && (length < 0 || Files.size(target) == length)) {
+                return target;
+            }
+            Files.createDirectories(directory);
+            Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try (InputStream inputStream = connection.getInputStream()) {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            log.info("Extracted the ONNX model {} to {}", resourceName, target);
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract the resource " + resourceName, e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid resource URL " + url, e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package ai.intentchain.core.onnx;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 进程内（ONNX）模型的会话配置项
+ * <p>
+ * 未设置线程数时会话使用 {@link OnnxRuntime} 共享环境的全局线程池；
+ * 设置了 {@link #INTRA_OP_THREADS} 或 {@link #INTER_OP_THREADS} 时会话使用独立的线程池。
+ * 设置 {@link #OPTIMIZED_MODEL_PATH} 后，首次加载时保存图优化后的模型，
+ * 之后该文件比原模型新时直接加载优化后的模型并跳过图优化。
+ */
+@Slf4j
+public final class OnnxSessionOptions {
+
+    public enum ExecutionProvider {
+        CPU,
+        DNNL,
+        OPENVINO
+    }
+
+    public static final ConfigOption<Integer> INTRA_OP_THREADS =
+            ConfigOptions.key("session.intra-op-threads")
+                    .intType()
+                    .noDefaultValue()
+                    .withDescription("The number of threads used to parallelize the execution within nodes. " +
+                                     "When not set, the process-wide ONNX Runtime thread pool is shared.");
+
+    public static final ConfigOption<Integer> INTER_OP_THREADS =
+            ConfigOptions.key("session.inter-op-threads")
+                    .intType()
+                    .noDefaultValue()
+                    .withDescription("The number of threads used to parallelize the execution of the graph " +
+                                     "(across nodes), only used by the PARALLEL execution mode.");
+
+    public static final ConfigOption<OrtSession.SessionOptions.OptLevel> OPTIMIZATION_LEVEL =
+            ConfigOptions.key("session.optimization-level")
+                    .enumType(OrtSession.SessionOptions.OptLevel.class)
+                    .defaultValue(OrtSession.SessionOptions.OptLevel.ALL_OPT)
+                    .withDescription("Graph optimization level. Supported: `NO_OPT`, `BASIC_OPT`, " +
+                                     "`EXTENDED_OPT`, `ALL_OPT`.");
+
+    public static final ConfigOption<OrtSession.SessionOptions.ExecutionMode> EXECUTION_MODE =
+            ConfigOptions.key("session.execution-mode")
+                    .enumType(OrtSession.SessionOptions.ExecutionMode.class)
+                    .defaultValue(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL)
+                    .withDescription("Execution mode. Supported: `SEQUENTIAL`, `PARALLEL`.");
+
+    public static final ConfigOption<Boolean> MEMORY_ARENA =
+            ConfigOptions.key("session.memory-arena")
+                    .booleanType()
+                    .defaultValue(true)
+                    .withDescription("Whether to use the CPU memory arena, which reuses allocations across runs " +
+                                     "at the cost of holding the peak memory.");
+
+    public static final ConfigOption<Boolean> MEMORY_PATTERN =
+            ConfigOptions.key("session.memory-pattern")
+                    .booleanType()
+                    .defaultValue(true)
+                    .withDescription("Whether to pre-plan allocations from the memory pattern of previous runs.");
+
+    public static final ConfigOption<ExecutionProvider> EXECUTION_PROVIDER =
+            ConfigOptions.key("session.execution-provider")
+                    .enumType(ExecutionProvider.class)
+                    .defaultValue(ExecutionProvider.CPU)
+                    .withDescription("""
+                            CPU execution provider. Supported: `CPU`, `DNNL`, `OPENVINO`.
+
+                            `DNNL` and `OPENVINO` require an ONNX Runtime build that includes them.
+                            """);
+
+    public static final ConfigOption<String> OPTIMIZED_MODEL_PATH =
+            ConfigOptions.key("session.optimized-model-path")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            File path to save the graph-optimized model to, for example: /home/dat/model.opt.onnx
+
+                            Later startups load the saved model without re-optimizing it while it is newer \
+                            than the original model. Delete the file after changing the other session options.
+                            """);
+
+    private OnnxSessionOptions() {
+    }
+
+    public static Set<ConfigOption<?>> options() {
+        return new LinkedHashSet<>(List.of(INTRA_OP_THREADS, INTER_OP_THREADS, OPTIMIZATION_LEVEL,
+                EXECUTION_MODE, MEMORY_ARENA, MEMORY_PATTERN, EXECUTION_PROVIDER, OPTIMIZED_MODEL_PATH));
+    }
+
+    /**
+     * 按配置创建会话配置
+     */
+    public static OrtSession.SessionOptions create(@NonNull ReadableConfig config) {
+        Integer intraOpThreads = config.get(INTRA_OP_THREADS);
+        Integer interOpThreads = config.get(INTER_OP_THREADS);
+        Preconditions.checkArgument(intraOpThreads == null || intraOpThreads >= 1,
+                "'" + INTRA_OP_THREADS.key() + "' value must be greater than or equal to 1");
+        Preconditions.checkArgument(interOpThreads == null || interOpThreads >= 1,
+                "'" + INTER_OP_THREADS.key() + "' value must be greater than or equal to 1");
+
+        OrtSession.SessionOptions options = intraOpThreads == null && interOpThreads == null
+                ? OnnxRuntime.sessionOptions()
+                : new OrtSession.SessionOptions();
+        try {
+            if (intraOpThreads != null) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            if (interOpThreads != null) {
+                options.setInterOpNumThreads(interOpThreads);
+            }
+            options.setOptimizationLevel(config.get(OPTIMIZATION_LEVEL));
+            options.setExecutionMode(config.get(EXECUTION_MODE));
+            options.setCPUArenaAllocator(config.get(MEMORY_ARENA));
+            options.setMemoryPatternOptimization(config.get(MEMORY_PATTERN));
+            switch (config.get(EXECUTION_PROVIDER)) {
+                case DNNL -> options.addDnnl(config.get(MEMORY_ARENA));
+                case OPENVINO -> options.addOpenVINO("");
+                case CPU -> {
+                }
+            }
+        } catch (OrtException e) {
+            options.close();
+            throw new RuntimeException("Failed to create the ONNX Runtime session options", e);
+        }
+        return options;
+    }
+
+    /**
+     * 按配置创建会话，配置了优化模型路径时保存或复用图优化后的模型
+     */
+    public static OrtSession createSession(@NonNull Path modelPath, @NonNull ReadableConfig config) {
+        try (OrtSession.SessionOptions options = create(config)) {
+            String optimizedModelPath = config.get(OPTIMIZED_MODEL_PATH);
+            if (optimizedModelPath == null) {
+                return OnnxRuntime.createSession(modelPath, options);
+            }
+            Path optimizedModel = Path.of(optimizedModelPath);
+            if (Files.isRegularFile(optimizedModel)
+                && Files.getLastModifiedTime(optimizedModel).compareTo(Files.getLastModifiedTime(modelPath)) > 0) {
+                options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.NO_OPT);
+                log.info("Loading the optimized ONNX model {}", optimizedModel);
+                return OnnxRuntime.createSession(optimizedModel, options);
+            }
+            if (optimizedModel.getParent() != null) {
+                Files.createDirectories(optimizedModel.getParent());
+            }
+            options.setOptimizedModelFilePath(optimizedModel.toString());
+            OrtSession session = OnnxRuntime.createSession(modelPath, options);
+            log.info("Saved the optimized ONNX model to {}", optimizedModel);
+            return session;
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to configure the ONNX Runtime session", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
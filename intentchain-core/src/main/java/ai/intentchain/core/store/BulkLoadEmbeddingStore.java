@@ -0,0 +1,12 @@
+package ai.intentchain.core.store;
+
+/**
+ * 支持批量导入的向量存储：导入期间推迟构建索引，导入全部完成后再统一构建
+ */
+public interface BulkLoadEmbeddingStore {
+
+    /**
+     * 批量导入成功完成后构建推迟的索引，由完成构建的进程调用一次
+     */
+    void finishBulkLoad();
+}
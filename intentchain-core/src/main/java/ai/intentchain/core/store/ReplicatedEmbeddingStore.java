@@ -0,0 +1,455 @@
+package ai.intentchain.core.store;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 远程向量存储的本地只读副本
+ * <p>
+ * 远程存储是唯一的数据源，写操作先写远程再同步到进程内镜像，检索直接在镜像中完成，省去网络往返。
+ * 镜像的初始化方式：
+ * <ul>
+ *     <li>远程存储实现了 {@link ScannableEmbeddingStore}：启动时全量遍历远程集合</li>
+ *     <li>否则需要显式开启 {@link #REPLICA_SNAPSHOT_ENABLED}，加载本地快照，快照由写入过该存储的副本
+ *     按 syncInterval 定期保存，关闭时再保存一次。快照无法感知绕过副本或来自其他主机的写入，只适用于单一写入方；
+ *     每次写远程存储前会先创建写入标记，快照保存成功后才删除，启动时存在写入标记说明快照早于最近的远程写入，
+ *     此时不使用快照，检索回退到远程存储</li>
+ *     <li>没有快照时，在首次读写前探测远程集合是否为空，为空则从空镜像开始，
+ *     否则检索回退到远程存储，直到清空远程集合（如强制重建项目）后重新建立镜像</li>
+ * </ul>
+ * 每次保存快照都会更新版本标记文件，其他进程中的副本按 syncInterval 检查标记，发现变化后重新加载，
+ * 重新加载时本进程尚未保存的写操作会重放到新加载的镜像上；
+ * 可遍历的远程存储还可以按 refreshInterval 定期全量重新同步，以感知其他主机上的写入。
+ */
+@Slf4j
+public class ReplicatedEmbeddingStore implements EmbeddingStore<TextSegment>, BulkLoadEmbeddingStore, AutoCloseable {
+
+    public static final ConfigOption<Boolean> REPLICA_ENABLED =
+            ConfigOptions.key("replica.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether to mirror the embedding store into an in-process replica " +
+                                     "and serve searches locally");
+
+    public static final ConfigOption<String> REPLICA_DIRECTORY =
+            ConfigOptions.key("replica.directory")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            The directory of the replica snapshots and change markers.
+                            The project mode does not need to be filled in by default and is stored \
+                            in the project root directory under the .intentchain directory.
+                            """);
+
+    public static final ConfigOption<Duration> REPLICA_SYNC_INTERVAL =
+            ConfigOptions.key("replica.sync-interval")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(10))
+                    .withDescription("The interval for checking the change marker written by other replicas, " +
+                                     "0 disables the check");
+
+    public static final ConfigOption<Duration> REPLICA_REFRESH_INTERVAL =
+            ConfigOptions.key("replica.refresh-interval")
+                    .durationType()
+                    .defaultValue(Duration.ZERO)
+                    .withDescription("The interval for fully re-syncing the replica from a scannable store, " +
+                                     "0 disables the periodic re-sync");
+
+    public static final ConfigOption<Boolean> REPLICA_SNAPSHOT_ENABLED =
+            ConfigOptions.key("replica.snapshot.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("""
+                            Whether to mirror an embedding store that cannot be scanned from local snapshots. \
+                            Only the TiDB store can be scanned, Milvus, Qdrant, PGVector, Elasticsearch and \
+                            Weaviate are mirrored from snapshots only. The snapshot is saved every sync interval \
+                            and on close, and only contains the writes made through the replicas sharing the \
+                            replica directory, so it is only consistent with a single writer. A snapshot older \
+                            than the last remote write (e.g. after the process was killed), or a non-empty store \
+                            without a snapshot, serves searches remotely until the project is force rebuilt.
+                            """);
+
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final String MARKER_SUFFIX = ".version";
+    // 存在时表示远程存储有尚未保存到快照的写入
+    private static final String PENDING_SUFFIX = ".pending";
+
+    private final String storeId;
+    private final EmbeddingStore<TextSegment> remote;
+    private final Path directory;
+
+    // 串行化写操作与镜像重建，避免重建期间的写入丢失
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile InMemoryEmbeddingStore<TextSegment> mirror = new InMemoryEmbeddingStore<>();
+    // 镜像是否与远程集合一致，不一致时检索回退到远程存储
+    private volatile boolean complete;
+    private boolean probed;
+    private boolean dirty;
+    // 上次保存快照后应用到镜像的写操作，重新加载其他进程的快照后按顺序重放
+    private final List<Consumer<InMemoryEmbeddingStore<TextSegment>>> pendingChanges = new ArrayList<>();
+    private String markerVersion;
+    private long lastRefresh;
+
+    @Builder
+    public ReplicatedEmbeddingStore(@NonNull String storeId,
+                                    @NonNull EmbeddingStore<TextSegment> remote,
+                                    Path directory,
+                                    Duration syncInterval,
+                                    Duration refreshInterval,
+                                    Boolean snapshotEnabled) {
+        if (!(remote instanceof ScannableEmbeddingStore) && !Optional.ofNullable(snapshotEnabled).orElse(false)) {
+            throw new IllegalArgumentException("Embedding store " + storeId + " cannot be scanned, set '"
+                                               + REPLICA_SNAPSHOT_ENABLED.key()
+                                               + "' to true to mirror it from local snapshots (single writer only)");
+        }
+        this.storeId = storeId;
+        this.remote = remote;
+        this.directory = directory;
+        long syncMillis = Optional.ofNullable(syncInterval).orElse(Duration.ofSeconds(10)).toMillis();
+        long refreshMillis = Optional.ofNullable(refreshInterval).orElse(Duration.ZERO).toMillis();
+
+        lock.lock();
+        try {
+            load();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean refresh = refreshMillis > 0 && remote instanceof ScannableEmbeddingStore;
+        boolean sync = syncMillis > 0 && directory != null;
+        if (refresh || sync) {
+            long period = sync && refresh ? Math.min(syncMillis, refreshMillis) : (sync ? syncMillis : refreshMillis);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-sync-" + storeId);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> sync(refresh ? refreshMillis : 0L),
+                    period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 从远程存储或本地快照加载镜像，调用方需持有锁
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        if (remote instanceof ScannableEmbeddingStore scannable) {
+            InMemoryEmbeddingStore<TextSegment> loaded = new InMemoryEmbeddingStore<>();
+            scannable.scan(SCAN_BATCH_SIZE, loaded::addAll);
+            mirror = loaded;
+            complete = true;
+            // 写操作先写远程存储，遍历结果已包含未保存的写操作
+            pendingChanges.clear();
+            markerVersion = readMarker();
+            lastRefresh = System.currentTimeMillis();
+            log.info("Mirrored embedding store {} from the remote store in {} ms",
+                    storeId, System.currentTimeMillis() - start);
+            return;
+        }
+        Path snapshot = snapshotFile();
+        if (snapshot != null && Files.exists(snapshot)) {
+            markerVersion = readMarker();
+            // 本进程尚未保存的写入会在加载后重放，否则写入标记说明快照缺少最近的远程写入
+            if (pendingChanges.isEmpty() && Files.exists(pendingFile())) {
+                mirror = new InMemoryEmbeddingStore<>();
+                complete = false;
+                probed = true;
+                log.warn("Replica snapshot of embedding store {} is older than the last remote write, " +
+                         "searches are served by the remote store until the project is force rebuilt", storeId);
+                return;
+            }
+            InMemoryEmbeddingStore<TextSegment> loaded = InMemoryEmbeddingStore.fromFile(snapshot);
+            pendingChanges.forEach(change -> change.accept(loaded));
+            mirror = loaded;
+            complete = true;
+            log.info("Loaded replica snapshot of embedding store {} in {} ms, replayed {} unsaved changes",
+                    storeId, System.currentTimeMillis() - start, pendingChanges.size());
+        }
+    }
+
+    private void sync(long refreshMillis) {
+        lock.lock();
+        try {
+            String version = readMarker();
+            boolean changed = version != null && !version.equals(markerVersion);
+            boolean refresh = refreshMillis > 0 && System.currentTimeMillis() - lastRefresh >= refreshMillis;
+            if (changed || refresh) {
+                log.debug("Re-syncing replica of embedding store {}", storeId);
+                load();
+            }
+            // 可遍历的存储重新加载时直接遍历远程集合，快照只在关闭时保存
+            if (dirty && complete && !(remote instanceof ScannableEmbeddingStore)) {
+                saveSnapshot();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to re-sync replica of embedding store {}: {}", storeId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 既无法遍历又没有快照时，探测远程集合是否为空，为空则镜像从此与远程一致，调用方需持有锁
+     */
+    private void probe(int dimension) {
+        if (complete || probed) {
+            return;
+        }
+        probed = true;
+        float[] vector = new float[dimension];
+        vector[0] = 1f;
+        EmbeddingSearchResult<TextSegment> result = remote.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(vector))
+                .maxResults(1)
+                .minScore(0.0)
+                .build());
+        if (result.matches().isEmpty()) {
+            complete = true;
+        } else {
+            log.warn("Embedding store {} cannot be scanned and has no replica snapshot, " +
+                     "searches are served by the remote store until the project is force rebuilt", storeId);
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return add(embedding, null);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), textSegment == null ? null : List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            probe(embeddings.get(0).dimension());
+            markPending();
+            remote.addAll(ids, embeddings, embedded);
+            if (complete) {
+                // 与远程存储保持覆盖写语义
+                Set<String> idSet = new HashSet<>(ids);
+                List<TextSegment> segments = embedded == null ? Collections.nCopies(ids.size(), null) : embedded;
+                apply(m -> {
+                    m.removeAll(idSet);
+                    m.addAll(ids, embeddings, segments);
+                });
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (!complete) {
+            lock.lock();
+            try {
+                probe(request.queryEmbedding().dimension());
+            } finally {
+                lock.unlock();
+            }
+            if (!complete) {
+                return remote.search(request);
+            }
+        }
+        return mirror.search(request);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.lock();
+        try {
+            markPending();
+            remote.removeAll(ids);
+            if (complete) {
+                Set<String> idSet = new HashSet<>(ids);
+                apply(m -> m.removeAll(idSet));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.lock();
+        try {
+            markPending();
+            remote.removeAll(filter);
+            if (complete) {
+                apply(m -> m.removeAll(filter));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.lock();
+        try {
+            markPending();
+            remote.removeAll();
+            // 清空后镜像必然与远程一致
+            mirror = new InMemoryEmbeddingStore<>();
+            complete = true;
+            apply(InMemoryEmbeddingStore::removeAll);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 将写操作应用到镜像，快照模式下记录写操作直到下次保存快照，调用方需持有锁
+     */
+    private void apply(Consumer<InMemoryEmbeddingStore<TextSegment>> change) {
+        change.accept(mirror);
+        if (!(remote instanceof ScannableEmbeddingStore)) {
+            pendingChanges.add(change);
+        }
+        dirty = true;
+    }
+
+    /**
+     * 快照模式下写远程存储前创建写入标记，快照保存成功后才删除，调用方需持有锁
+     */
+    private void markPending() {
+        Path pending = pendingFile();
+        if (remote instanceof ScannableEmbeddingStore || pending == null || Files.exists(pending)) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(pending, storeId, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write replica pending marker " + pending, e);
+        }
+    }
+
+    @Override
+    public void finishBulkLoad() {
+        if (remote instanceof BulkLoadEmbeddingStore bulkLoad) {
+            bulkLoad.finishBulkLoad();
+        }
+    }
+
+    /**
+     * 保存快照并更新版本标记，通知其他进程中的副本重新加载，调用方需持有锁
+     * <p>
+     * 快照替换成功后才写入版本标记并删除写入标记，保存中断时旧快照仍被视为过期。
+     */
+    private void saveSnapshot() throws IOException {
+        Path snapshot = snapshotFile();
+        Files.createDirectories(directory);
+        Path tempSnapshot = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        mirror.serializeToFile(tempSnapshot);
+        Files.move(tempSnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        String version = UUID.randomUUID().toString();
+        Path marker = markerFile();
+        Path tempMarker = marker.resolveSibling(marker.getFileName() + ".tmp");
+        Files.writeString(tempMarker, version, StandardCharsets.UTF_8);
+        Files.move(tempMarker, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        markerVersion = version;
+        Files.deleteIfExists(pendingFile());
+        pendingChanges.clear();
+        dirty = false;
+        log.debug("Saved replica snapshot of embedding store {}", storeId);
+    }
+
+    private String readMarker() {
+        Path marker = markerFile();
+        if (marker == null || !Files.exists(marker)) {
+            return null;
+        }
+        try {
+            return Files.readString(marker, StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            log.warn("Failed to read replica change marker {}: {}", marker, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path snapshotFile() {
+        return directory == null ? null : directory.resolve(storeId + SNAPSHOT_SUFFIX);
+    }
+
+    private Path markerFile() {
+        return directory == null ? null : directory.resolve(storeId + MARKER_SUFFIX);
+    }
+
+    private Path pendingFile() {
+        return directory == null ? null : directory.resolve(storeId + PENDING_SUFFIX);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        lock.lock();
+        try {
+            if (dirty && complete && directory != null) {
+                saveSnapshot();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to save replica snapshot of embedding store {}: {}", storeId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+        if (remote instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
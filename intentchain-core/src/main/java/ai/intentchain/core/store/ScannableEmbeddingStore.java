@@ -0,0 +1,26 @@
+package ai.intentchain.core.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * 支持全量遍历的向量存储，{@link ReplicatedEmbeddingStore} 据此将远程集合完整镜像到本地
+ */
+public interface ScannableEmbeddingStore {
+
+    /**
+     * 按批遍历存储中的全部记录
+     *
+     * @param batchSize 每批的最大记录数
+     * @param consumer  批处理回调，三个列表按下标一一对应
+     */
+    void scan(int batchSize, @NonNull BatchConsumer consumer);
+
+    @FunctionalInterface
+    interface BatchConsumer {
+        void accept(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded);
+    }
+}
@@ -0,0 +1,244 @@
+package ai.intentchain.core.store;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * 分片向量存储
+ * <p>
+ * 按 id 的哈希值将向量分散到多个底层存储，检索时并行查询全部分片，
+ * 每个分片返回各自的 top-k，再用容量为 k 的小顶堆归并出全局 top-k。
+ */
+@Slf4j
+public class ShardedEmbeddingStore implements EmbeddingStore<TextSegment>, BulkLoadEmbeddingStore, AutoCloseable {
+
+    public static final ConfigOption<Integer> SHARD_COUNT =
+            ConfigOptions.key("shard.count")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription("The number of shards the vectors are split across by id hash, " +
+                                     "searches run on all shards in parallel");
+
+    private static final Comparator<EmbeddingMatch<TextSegment>> BY_SCORE =
+            Comparator.comparingDouble(EmbeddingMatch::score);
+
+    private final List<EmbeddingStore<TextSegment>> shards;
+    private final ExecutorService executor;
+
+    public ShardedEmbeddingStore(@NonNull List<EmbeddingStore<TextSegment>> shards) {
+        Preconditions.checkArgument(!shards.isEmpty(), "shards cannot be empty");
+        this.shards = List.copyOf(shards);
+        this.executor = Executors.newFixedThreadPool(shards.size(), new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "embedding-store-shard-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * 分片的存储 id，分片数参与命名，调整分片数后不会与旧的分片数据混用
+     */
+    public static String shardId(@NonNull String storeId, int shard, int shardCount) {
+        return String.join("_", storeId, String.valueOf(shardCount), String.valueOf(shard));
+    }
+
+    private int shardOf(String id) {
+        // String.hashCode 由语言规范定义，跨进程稳定
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, shards.size());
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return add(embedding, null);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        shards.get(shardOf(id)).add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), textSegment == null ? null : List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        ValidationUtils.ensureNotNull(ids, "ids");
+        ValidationUtils.ensureNotNull(embeddings, "embeddings");
+        if (ids.size() != embeddings.size()) {
+            throw new IllegalArgumentException(
+                    String.format("The number of ids and embeddings must match, but ids.size()=%d, embeddings.size()=%d",
+                            ids.size(), embeddings.size())
+            );
+        }
+        if (embedded != null && embedded.size() != ids.size()) {
+            throw new IllegalArgumentException("The number of ids and embedded must match");
+        }
+
+        int n = shards.size();
+        List<List<String>> shardIds = new ArrayList<>(n);
+        List<List<Embedding>> shardEmbeddings = new ArrayList<>(n);
+        List<List<TextSegment>> shardEmbedded = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            shardIds.add(new ArrayList<>());
+            shardEmbeddings.add(new ArrayList<>());
+            shardEmbedded.add(embedded == null ? null : new ArrayList<>());
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            int s = shardOf(ids.get(i));
+            shardIds.get(s).add(ids.get(i));
+            shardEmbeddings.get(s).add(embeddings.get(i));
+            if (embedded != null) {
+                shardEmbedded.get(s).add(embedded.get(i));
+            }
+        }
+        invokeAll(s -> {
+            if (!shardIds.get(s).isEmpty()) {
+                shards.get(s).addAll(shardIds.get(s), shardEmbeddings.get(s), shardEmbedded.get(s));
+            }
+            return null;
+        }, "Failed to add embeddings to shard");
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        List<EmbeddingSearchResult<TextSegment>> results = invokeAll(
+                s -> shards.get(s).search(request), "Failed to search shard");
+
+        // 小顶堆只保留得分最高的 maxResults 条
+        int maxResults = request.maxResults();
+        PriorityQueue<EmbeddingMatch<TextSegment>> heap = new PriorityQueue<>(maxResults + 1, BY_SCORE);
+        for (EmbeddingSearchResult<TextSegment> result : results) {
+            for (EmbeddingMatch<TextSegment> match : result.matches()) {
+                if (heap.size() < maxResults) {
+                    heap.offer(match);
+                } else if (match.score() > heap.peek().score()) {
+                    heap.poll();
+                    heap.offer(match);
+                }
+            }
+        }
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(heap);
+        matches.sort(BY_SCORE.reversed());
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        ValidationUtils.ensureNotEmpty(ids, "ids");
+        List<List<String>> shardIds = new ArrayList<>(shards.size());
+        for (int s = 0; s < shards.size(); s++) {
+            shardIds.add(new ArrayList<>());
+        }
+        for (String id : ids) {
+            shardIds.get(shardOf(id)).add(id);
+        }
+        invokeAll(s -> {
+            if (!shardIds.get(s).isEmpty()) {
+                shards.get(s).removeAll(shardIds.get(s));
+            }
+            return null;
+        }, "Failed to remove embeddings from shard");
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        ValidationUtils.ensureNotNull(filter, "filter");
+        invokeAll(s -> {
+            shards.get(s).removeAll(filter);
+            return null;
+        }, "Failed to remove embeddings from shard");
+    }
+
+    @Override
+    public void removeAll() {
+        invokeAll(s -> {
+            shards.get(s).removeAll();
+            return null;
+        }, "Failed to remove embeddings from shard");
+    }
+
+    @Override
+    public void finishBulkLoad() {
+        for (EmbeddingStore<TextSegment> shard : shards) {
+            if (shard instanceof BulkLoadEmbeddingStore bulkLoad) {
+                bulkLoad.finishBulkLoad();
+            }
+        }
+    }
+
+    /**
+     * 在所有分片上并行执行，按分片顺序返回结果
+     */
+    private <T> List<T> invokeAll(Function<Integer, T> task, String errorMessage) {
+        if (shards.size() == 1) {
+            return List.of(task.apply(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (int s = 0; s < shards.size(); s++) {
+            int shard = s;
+            futures.add(executor.submit(() -> task.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (int s = 0; s < futures.size(); s++) {
+                try {
+                    results.add(futures.get(s).get());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(errorMessage + " " + s, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(errorMessage, e);
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (int s = 0; s < shards.size(); s++) {
+            if (shards.get(s) instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close embedding store shard {}: {}", s, e.getMessage());
+                }
+            }
+        }
+    }
+}
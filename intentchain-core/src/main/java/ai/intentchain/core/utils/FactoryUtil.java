@@ -4,8 +4,12 @@ package ai.intentchain.core.utils;
 import ai.intentchain.core.classifiers.IntentClassifier;
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.embedding.BatchingEmbeddingModel;
 import ai.intentchain.core.exception.ValidationException;
 import ai.intentchain.core.factories.*;
+import ai.intentchain.core.store.ReplicatedEmbeddingStore;
+import ai.intentchain.core.store.ShardedEmbeddingStore;
+import com.google.common.base.Preconditions;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
@@ -13,6 +17,8 @@ import dev.langchain4j.model.scoring.ScoringModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import lombok.NonNull;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -82,7 +88,17 @@ public final class FactoryUtil {
     public static EmbeddingModel createEmbeddingModel(@NonNull String identifier, @NonNull ReadableConfig config) {
         EmbeddingModelFactory factory = EmbeddingModelFactoryManager.getFactory(identifier);
         try {
-            return factory.create(config);
+            EmbeddingModel embeddingModel = factory.create(config);
+            if (config.get(BatchingEmbeddingModel.BATCH_ENABLED)) {
+                // 合并并发的单条向量化请求，减少批大小为 1 的推理
+                embeddingModel = BatchingEmbeddingModel.builder()
+                        .delegate(embeddingModel)
+                        .maxBatchSize(config.get(BatchingEmbeddingModel.BATCH_MAX_SIZE))
+                        .maxWait(config.get(BatchingEmbeddingModel.BATCH_MAX_WAIT))
+                        .reportInterval(config.get(BatchingEmbeddingModel.BATCH_REPORT_INTERVAL))
+                        .build();
+            }
+            return embeddingModel;
         } catch (Exception e) {
             throw new RuntimeException(String.format(ERROR_MESSAGE,
                     EmbeddingModelFactoryManager.getDescription(), identifier, e.getMessage()), e);
@@ -119,13 +135,55 @@ public final class FactoryUtil {
                                                                    @NonNull ReadableConfig config) {
         EmbeddingStoreFactory factory = EmbeddingStoreFactoryManager.getFactory(identifier);
         try {
-            return factory.create(storeId, config);
+            int shardCount = config.get(ShardedEmbeddingStore.SHARD_COUNT);
+            Preconditions.checkArgument(shardCount >= 1,
+                    "'" + ShardedEmbeddingStore.SHARD_COUNT.key() + "' value must be greater than or equal to 1");
+            if (shardCount == 1) {
+                return createEmbeddingStore(factory, storeId, config);
+            }
+            // 按 id 哈希分片，检索时并行查询各分片
+            List<EmbeddingStore<TextSegment>> shards = new ArrayList<>(shardCount);
+            try {
+                for (int shard = 0; shard < shardCount; shard++) {
+                    shards.add(createEmbeddingStore(factory,
+                            ShardedEmbeddingStore.shardId(storeId, shard, shardCount), config));
+                }
+            } catch (Exception e) {
+                // 释放已创建的分片
+                for (EmbeddingStore<TextSegment> shard : shards) {
+                    if (shard instanceof AutoCloseable closeable) {
+                        closeable.close();
+                    }
+                }
+                throw e;
+            }
+            return new ShardedEmbeddingStore(shards);
         } catch (Exception e) {
             throw new RuntimeException(String.format(ERROR_MESSAGE,
                     EmbeddingStoreFactoryManager.getDescription(), identifier, e.getMessage()), e);
         }
     }
 
+    private static EmbeddingStore<TextSegment> createEmbeddingStore(EmbeddingStoreFactory factory,
+                                                                    String storeId,
+                                                                    ReadableConfig config) {
+        EmbeddingStore<TextSegment> embeddingStore = factory.create(storeId, config);
+        if (config.get(ReplicatedEmbeddingStore.REPLICA_ENABLED)) {
+            // 远程存储镜像到进程内，检索在本地完成
+            embeddingStore = ReplicatedEmbeddingStore.builder()
+                    .storeId(storeId)
+                    .remote(embeddingStore)
+                    .directory(config.getOptional(ReplicatedEmbeddingStore.REPLICA_DIRECTORY)
+                            .map(Path::of)
+                            .orElse(null))
+                    .syncInterval(config.get(ReplicatedEmbeddingStore.REPLICA_SYNC_INTERVAL))
+                    .refreshInterval(config.get(ReplicatedEmbeddingStore.REPLICA_REFRESH_INTERVAL))
+                    .snapshotEnabled(config.get(ReplicatedEmbeddingStore.REPLICA_SNAPSHOT_ENABLED))
+                    .build();
+        }
+        return embeddingStore;
+    }
+
     /**
      * Create Chat Model
      *
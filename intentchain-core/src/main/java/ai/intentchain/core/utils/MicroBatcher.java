@@ -0,0 +1,167 @@
+package ai.intentchain.core.utils;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 动态微批调度器
+ * <p>
+ * 并发调用方提交的请求进入队列，由单个后台线程合并为一次批量调用：批次的总权重凑满 maxBatchSize，
+ * 或到达批次内各请求截止时间中最早的一个（入队时间 + 各自的最长等待时间）时执行，再将结果按请求拆分返回。
+ * 请求的权重由 weigher 给出（如一个请求包含的文本数），加入后会超出 maxBatchSize 的请求留到下一批。
+ *
+ * @param <I> 请求
+ * @param <O> 单个请求的结果
+ */
+public class MicroBatcher<I, O> {
+
+    private final String threadName;
+    private final int maxBatchSize;
+    private final ToIntFunction<I> weigher;
+    // 按请求顺序返回结果，结果数需与请求数一致
+    private final Function<List<I>, List<O>> batchFunction;
+    private final BlockingQueue<Request<I, O>> queue = new LinkedBlockingQueue<>();
+
+    private Thread worker;
+    private boolean closed;
+
+    public MicroBatcher(@NonNull String threadName,
+                        int maxBatchSize,
+                        @NonNull ToIntFunction<I> weigher,
+                        @NonNull Function<List<I>, List<O>> batchFunction) {
+        Preconditions.checkArgument(maxBatchSize >= 1, "maxBatchSize must be greater than or equal to 1");
+        this.threadName = threadName;
+        this.maxBatchSize = maxBatchSize;
+        this.weigher = weigher;
+        this.batchFunction = batchFunction;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * 提交请求并等待结果，maxWait 为本次请求等待合并的最长时间，0 表示只与队列中已有的请求合并
+     */
+    public O submit(@NonNull I input, @NonNull Duration maxWait) {
+        Request<I, O> request = new Request<>(input, weigher.applyAsInt(input),
+                System.nanoTime() + Math.max(0L, maxWait.toNanos()), new CompletableFuture<>());
+        enqueue(request);
+        try {
+            return request.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * 停止后台线程，队列中尚未执行的请求以异常结束
+     * <p>
+     * 等待正在执行的批次结束后才返回，调用方随后可以安全地释放批处理使用的本地资源（如 ONNX 会话与分词器）
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = worker;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            Request<I, O> request;
+            while ((request = queue.poll()) != null) {
+                request.result().completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+            }
+        }
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void enqueue(Request<I, O> request) {
+        if (closed) {
+            throw new IllegalStateException("The micro-batcher is closed");
+        }
+        if (worker == null) {
+            worker = new Thread(this::runLoop, threadName);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        queue.add(request);
+    }
+
+    private void runLoop() {
+        Request<I, O> carry = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Request<I, O>> batch = new ArrayList<>();
+            try {
+                Request<I, O> first = carry != null ? carry : queue.take();
+                carry = null;
+                batch.add(first);
+                int weight = first.weight();
+                long deadline = first.deadline();
+                while (weight < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // 超过截止时间后仍取走队列中已有的请求，但不再等待新的请求
+                    Request<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (weight + next.weight() > maxBatchSize) {
+                        carry = next;
+                        break;
+                    }
+                    batch.add(next);
+                    weight += next.weight();
+                    deadline = Math.min(deadline, next.deadline());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                run(batch);
+            }
+        }
+        if (carry != null) {
+            carry.result().completeExceptionally(new IllegalStateException("The micro-batcher is closed"));
+        }
+    }
+
+    private void run(List<Request<I, O>> batch) {
+        try {
+            List<O> results = batchFunction.apply(batch.stream().map(Request::input).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (Throwable e) {
+            batch.forEach(request -> request.result().completeExceptionally(e));
+        }
+    }
+
+    private record Request<I, O>(I input, int weight, long deadline, CompletableFuture<O> result) {
+    }
+}
@@ -3,8 +3,11 @@ package ai.intentchain.embedder.inprocess;
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.EmbeddingModelFactory;
+import ai.intentchain.core.onnx.InProcessEmbeddingModel;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
+import ai.intentchain.core.utils.FactoryUtil;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.bgesmallzhv15q.BgeSmallZhV15QuantizedEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
 
 import java.util.Collections;
 import java.util.Set;
@@ -24,7 +27,16 @@ public class BgeSmallZhV15QuantizedEmbeddingModelFactory implements EmbeddingMod
 
     @Override
     public EmbeddingModel create(ReadableConfig config) {
-        return new BgeSmallZhV15QuantizedEmbeddingModel();
+        FactoryUtil.validateFactoryOptions(this, config);
+
+        // 与 langchain4j 内置的 BgeSmallZhV15QuantizedEmbeddingModel 使用相同的模型文件
+        return InProcessEmbeddingModel.fromResources(
+                "bge-small-zh-v1.5-q.onnx",
+                "bge-small-zh-v1.5-q-tokenizer.json",
+                PoolingMode.CLS,
+                512,
+                config
+        );
     }
 
     @Override
@@ -34,7 +46,7 @@ public class BgeSmallZhV15QuantizedEmbeddingModelFactory implements EmbeddingMod
 
     @Override
     public Set<ConfigOption<?>> optionalOptions() {
-        return Collections.emptySet();
+        return OnnxSessionOptions.options();
     }
 
     @Override
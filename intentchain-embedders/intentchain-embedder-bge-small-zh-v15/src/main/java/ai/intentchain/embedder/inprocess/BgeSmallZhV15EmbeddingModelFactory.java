@@ -3,8 +3,11 @@ package ai.intentchain.embedder.inprocess;
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.EmbeddingModelFactory;
+import ai.intentchain.core.onnx.InProcessEmbeddingModel;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
+import ai.intentchain.core.utils.FactoryUtil;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.bgesmallzhv15.BgeSmallZhV15EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
 
 import java.util.Collections;
 import java.util.Set;
@@ -20,7 +23,16 @@ public class BgeSmallZhV15EmbeddingModelFactory implements EmbeddingModelFactory
 
     @Override
     public EmbeddingModel create(ReadableConfig config) {
-        return new BgeSmallZhV15EmbeddingModel();
+        FactoryUtil.validateFactoryOptions(this, config);
+
+        // 与 langchain4j 内置的 BgeSmallZhV15EmbeddingModel 使用相同的模型文件
+        return InProcessEmbeddingModel.fromResources(
+                "bge-small-zh-v1.5.onnx",
+                "bge-small-zh-v1.5-tokenizer.json",
+                PoolingMode.CLS,
+                512,
+                config
+        );
     }
 
     @Override
@@ -30,7 +42,7 @@ public class BgeSmallZhV15EmbeddingModelFactory implements EmbeddingModelFactory
 
     @Override
     public Set<ConfigOption<?>> optionalOptions() {
-        return Collections.emptySet();
+        return OnnxSessionOptions.options();
     }
 
     @Override
@@ -4,12 +4,13 @@ import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ConfigOptions;
 import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.EmbeddingModelFactory;
+import ai.intentchain.core.onnx.InProcessEmbeddingModel;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
 import ai.intentchain.core.utils.FactoryUtil;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.OnnxEmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.PoolingMode;
 
-import java.util.Collections;
+import java.nio.file.Path;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -61,7 +62,7 @@ public class OnnxEmbeddingModelFactory implements EmbeddingModelFactory {
 
     @Override
     public Set<ConfigOption<?>> optionalOptions() {
-        return Collections.emptySet();
+        return OnnxSessionOptions.options();
     }
 
     @Override
@@ -77,6 +78,7 @@ public class OnnxEmbeddingModelFactory implements EmbeddingModelFactory {
         String tokenizerFilePath = config.get(TOKENIZER_FILE_PATH);
         PoolingMode poolingMode = config.get(POOLING_MODE);
 
-        return new OnnxEmbeddingModel(modelFilePath, tokenizerFilePath, poolingMode);
+        return InProcessEmbeddingModel.fromFiles(Path.of(modelFilePath), Path.of(tokenizerFilePath), poolingMode,
+                config);
     }
 }
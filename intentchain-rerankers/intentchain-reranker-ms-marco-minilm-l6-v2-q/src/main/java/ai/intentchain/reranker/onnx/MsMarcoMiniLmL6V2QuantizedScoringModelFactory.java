@@ -3,6 +3,7 @@ package ai.intentchain.reranker.onnx;
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.ScoringModelFactory;
+import ai.intentchain.core.utils.FactoryUtil;
 import dev.langchain4j.model.scoring.ScoringModel;
 
 import java.util.Collections;
@@ -24,14 +25,17 @@ public class MsMarcoMiniLmL6V2QuantizedScoringModelFactory implements ScoringMod
 
     @Override
     public Set<ConfigOption<?>> optionalOptions() {
-        return Collections.emptySet();
+        return InProcessScoringModelOptions.options();
     }
 
     @Override
     public ScoringModel create(ReadableConfig config) {
-        return new OnnxScoringModel(
+        FactoryUtil.validateFactoryOptions(this, config);
+
+        return OnnxScoringModel.fromResources(
                 "ms-marco-MiniLM-L6-v2-q.onnx",
-                "ms-marco-MiniLM-L6-v2-q-tokenizer.json"
+                "ms-marco-MiniLM-L6-v2-q-tokenizer.json",
+                config
         );
     }
 }
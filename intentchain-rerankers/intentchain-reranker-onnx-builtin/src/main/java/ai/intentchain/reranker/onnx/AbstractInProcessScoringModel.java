@@ -1,5 +1,8 @@
 package ai.intentchain.reranker.onnx;
 
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.onnx.OnnxRuntime;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
 import ai.onnxruntime.OrtSession;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.output.Response;
@@ -7,20 +10,51 @@ import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.model.scoring.ScoringModel;
 
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-abstract class AbstractInProcessScoringModel implements ScoringModel {
+abstract class AbstractInProcessScoringModel implements ScoringModel, AutoCloseable {
 
     public AbstractInProcessScoringModel() {
     }
 
     static OnnxScoringBertCrossEncoder loadFromJar(String modelFileName, OrtSession.SessionOptions options,
                                                    String tokenizerFileName, int modelMaxLength, boolean normalize) {
-        try {
-            InputStream model = Thread.currentThread().getContextClassLoader().getResourceAsStream(modelFileName);
-            InputStream tokenizer = Thread.currentThread().getContextClassLoader().getResourceAsStream(tokenizerFileName);
-            return new OnnxScoringBertCrossEncoder(model, options, tokenizer, modelMaxLength, normalize);
+        return loadFromJar(modelFileName, model -> OnnxRuntime.createSession(model, options),
+                tokenizerFileName, modelMaxLength, null, normalize);
+    }
+
+    static OnnxScoringBertCrossEncoder loadFromJar(String modelFileName, ReadableConfig sessionConfig,
+                                                   String tokenizerFileName, int modelMaxLength, boolean normalize) {
+        return loadFromJar(modelFileName, model -> OnnxSessionOptions.createSession(model, sessionConfig),
+                tokenizerFileName, modelMaxLength, InProcessScoringModelOptions.maxDocumentLength(sessionConfig),
+                normalize);
+    }
+
+    private static OnnxScoringBertCrossEncoder loadFromJar(String modelFileName,
+                                                           Function<Path, OrtSession> sessionFactory,
+                                                           String tokenizerFileName, int modelMaxLength,
+                                                           Integer maxDocumentLength, boolean normalize) {
+        try (InputStream tokenizer = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(tokenizerFileName)) {
+            // 模型解压到本地缓存目录后按路径加载，不经过 Java 堆
+            Path model = OnnxRuntime.extractResource(modelFileName);
+            return new OnnxScoringBertCrossEncoder(sessionFactory.apply(model), tokenizer,
+                    modelMaxLength, maxDocumentLength, normalize);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static OnnxScoringBertCrossEncoder loadFromFile(String modelFilePath, ReadableConfig sessionConfig,
+                                                    String tokenizerFilePath, int modelMaxLength, boolean normalize) {
+        try (InputStream tokenizer = Files.newInputStream(Path.of(tokenizerFilePath))) {
+            OrtSession session = OnnxSessionOptions.createSession(Path.of(modelFilePath), sessionConfig);
+            return new OnnxScoringBertCrossEncoder(session, tokenizer, modelMaxLength,
+                    InProcessScoringModelOptions.maxDocumentLength(sessionConfig), normalize);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -28,9 +62,20 @@ abstract class AbstractInProcessScoringModel implements ScoringModel {
 
     protected abstract OnnxScoringBertCrossEncoder model();
 
+    protected abstract MicroBatchScheduler scheduler();
+
     public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
-        OnnxScoringBertCrossEncoder.ScoringAndTokenCount scoresAndTokenCount = this.model().scoreAll(query,
+        OnnxScoringBertCrossEncoder.ScoringAndTokenCount scoresAndTokenCount = this.scheduler().scoreAll(query,
                 segments.stream().map(TextSegment::text).collect(Collectors.toList()));
         return Response.from(scoresAndTokenCount.scores, new TokenUsage(scoresAndTokenCount.tokenCount));
     }
+
+    /**
+     * 停止微批线程并释放会话与分词器；微批线程中正在执行的推理结束后才释放，避免本地资源在使用中被释放
+     */
+    @Override
+    public void close() {
+        this.scheduler().close();
+        this.model().close();
+    }
 }
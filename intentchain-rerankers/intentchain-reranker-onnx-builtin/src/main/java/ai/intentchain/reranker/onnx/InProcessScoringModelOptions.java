@@ -0,0 +1,75 @@
+package ai.intentchain.reranker.onnx;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
+import com.google.common.base.Preconditions;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 进程内（ONNX）重排序模型的通用配置项
+ */
+public final class InProcessScoringModelOptions {
+
+    public static final ConfigOption<Integer> BATCH_MAX_SIZE =
+            ConfigOptions.key("batch.max-size")
+                    .intType()
+                    .defaultValue(OnnxScoringModel.DEFAULT_MAX_BATCH_SIZE)
+                    .withDescription("The maximum number of (query, document) pairs merged from concurrent " +
+                                     "requests into one inference batch. The default 1 disables micro-batching; " +
+                                     "set it larger (e.g. 64) to merge concurrent requests under high load.");
+
+    public static final ConfigOption<Duration> BATCH_MAX_WAIT =
+            ConfigOptions.key("batch.max-wait")
+                    .durationType()
+                    .defaultValue(OnnxScoringModel.DEFAULT_MAX_BATCH_WAIT)
+                    .withDescription("The maximum time a request waits for other concurrent requests " +
+                                     "to fill the inference batch, only used when 'batch.max-size' is greater than 1.");
+
+    public static final ConfigOption<Integer> MAX_DOCUMENT_LENGTH =
+            ConfigOptions.key("max-document-length")
+                    .intType()
+                    .noDefaultValue()
+                    .withDescription("The maximum number of tokens kept from each document before pairing it " +
+                                     "with the query. When not set, documents are only truncated to fit the " +
+                                     "model maximum length.");
+
+    private InProcessScoringModelOptions() {
+    }
+
+    /**
+     * 微批、截断与会话配置项
+     */
+    public static Set<ConfigOption<?>> options() {
+        Set<ConfigOption<?>> options = new LinkedHashSet<>(List.of(BATCH_MAX_SIZE, BATCH_MAX_WAIT,
+                MAX_DOCUMENT_LENGTH));
+        options.addAll(OnnxSessionOptions.options());
+        return options;
+    }
+
+    public static int batchMaxSize(ReadableConfig config) {
+        int maxSize = config.get(BATCH_MAX_SIZE);
+        Preconditions.checkArgument(maxSize >= 1,
+                "'" + BATCH_MAX_SIZE.key() + "' value must be greater than or equal to 1");
+        return maxSize;
+    }
+
+    public static Duration batchMaxWait(ReadableConfig config) {
+        Duration maxWait = config.get(BATCH_MAX_WAIT);
+        Preconditions.checkArgument(!maxWait.isNegative(),
+                "'" + BATCH_MAX_WAIT.key() + "' value must not be negative");
+        return maxWait;
+    }
+
+    public static Integer maxDocumentLength(ReadableConfig config) {
+        Integer maxLength = config.get(MAX_DOCUMENT_LENGTH);
+        Preconditions.checkArgument(maxLength == null || maxLength >= 1,
+                "'" + MAX_DOCUMENT_LENGTH.key() + "' value must be greater than or equal to 1");
+        return maxLength;
+    }
+}
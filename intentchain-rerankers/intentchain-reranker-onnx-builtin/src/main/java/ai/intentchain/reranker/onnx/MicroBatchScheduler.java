@@ -0,0 +1,50 @@
+package ai.intentchain.reranker.onnx;
+
+import ai.intentchain.core.utils.MicroBatcher;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 交叉编码器的动态微批调度器
+ * <p>
+ * 并发调用方提交的 (query, documents) 请求由 {@link MicroBatcher} 合并：
+ * 从批次中第一个请求入队开始，最多等待 maxWait，或凑满 maxBatchSize 个 (query, document) 对后，
+ * 执行一次填充后的批量推理，再将得分按请求拆分返回。
+ * 单个请求的文档数已达到 maxBatchSize 时不再排队，直接推理。
+ */
+class MicroBatchScheduler {
+
+    private final OnnxScoringBertCrossEncoder model;
+    private final Duration maxWait;
+    private final MicroBatcher<Request, OnnxScoringBertCrossEncoder.ScoringAndTokenCount> batcher;
+
+    MicroBatchScheduler(OnnxScoringBertCrossEncoder model, int maxBatchSize, Duration maxWait) {
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative");
+        }
+        this.model = model;
+        this.maxWait = maxWait;
+        this.batcher = new MicroBatcher<>("onnx-scoring-batcher", maxBatchSize,
+                request -> request.documents().size(), this::scoreBatch);
+    }
+
+    OnnxScoringBertCrossEncoder.ScoringAndTokenCount scoreAll(String query, List<String> documents) {
+        if (documents.isEmpty() || documents.size() >= batcher.maxBatchSize()) {
+            return model.scoreAll(query, documents);
+        }
+        return batcher.submit(new Request(query, documents), maxWait);
+    }
+
+    void close() {
+        batcher.close();
+    }
+
+    private List<OnnxScoringBertCrossEncoder.ScoringAndTokenCount> scoreBatch(List<Request> batch) {
+        return model.scoreAll(batch.stream().map(Request::query).toList(),
+                batch.stream().map(Request::documents).toList());
+    }
+
+    private record Request(String query, List<String> documents) {
+    }
+}
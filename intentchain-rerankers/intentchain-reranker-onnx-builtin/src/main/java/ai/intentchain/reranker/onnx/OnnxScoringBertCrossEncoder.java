@@ -2,33 +2,56 @@ package ai.intentchain.reranker.onnx;
 
 import ai.djl.huggingface.tokenizers.Encoding;
 import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.huggingface.tokenizers.jni.CharSpan;
 import ai.djl.util.PairList;
+import ai.intentchain.core.onnx.OnnxRuntime;
 import ai.onnxruntime.OnnxTensor;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
 import ai.onnxruntime.OrtSession.Result;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static ai.onnxruntime.OnnxTensor.createTensor;
 
 class OnnxScoringBertCrossEncoder {
 
+    private static final int DOCUMENT_CACHE_SIZE = 100_000;
+    // 按长度分桶：桶内最长句对超过最短句对的该倍数时另起一桶
+    private static final double BUCKET_LENGTH_RATIO = 1.5;
+    // 每个桶至少包含的句对数，避免拆出过多次小批量推理
+    private static final int MIN_BUCKET_SIZE = 4;
+
     private final OrtEnvironment environment;
     private final OrtSession session;
     private final Set<String> expectedInputs;
     private final HuggingFaceTokenizer tokenizer;
+    // 不截断、不补齐的分词器，单独对 query 与文档分词，截断在拼接句对时进行
+    private final HuggingFaceTokenizer textTokenizer;
     private final boolean normalize;
+    // 句对的最大 token 数（含特殊 token）
+    private final int maxLength;
+    // 每个文档保留的最大 token 数，为 null 时只按句对最大长度截断
+    private final Integer maxDocumentLength;
+    // [CLS] 与 [SEP] 的 id，分词器不是 BERT 句对模板时为 null，退回由分词器编码句对
+    private final long[] specialTokenIds;
+    // 候选文档来自训练数据，请求之间基本不变，缓存其分词结果（不含特殊 token）；
+    // 分词在缓存之外进行，并发请求不会因其他线程分词而阻塞
+    private final Cache<String, long[]> documentTokens = CacheBuilder.newBuilder()
+            .maximumSize(DOCUMENT_CACHE_SIZE)
+            .build();
 
-    public OnnxScoringBertCrossEncoder(InputStream model, OrtSession.SessionOptions options,
-                                       InputStream tokenizer, int modelMaxLength, boolean normalize) {
+    public OnnxScoringBertCrossEncoder(OrtSession session, InputStream tokenizer,
+                                       int modelMaxLength, Integer maxDocumentLength, boolean normalize) {
         try {
-            this.environment = OrtEnvironment.getEnvironment();
-            this.session = this.environment.createSession(loadModel(model), options);
+            this.environment = OnnxRuntime.environment();
+            this.session = session;
             this.expectedInputs = session.getInputNames();
             Map<String, String> tokenizerOptions = new HashMap<String, String>() {{
                 put("padding", "true");
@@ -36,31 +59,19 @@ class OnnxScoringBertCrossEncoder {
                 put("modelMaxLength", String.valueOf(modelMaxLength - 2));
             }};
             this.normalize = normalize;
-            this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizer, tokenizerOptions);
+            byte[] tokenizerBytes = tokenizer.readAllBytes();
+            this.tokenizer = HuggingFaceTokenizer.newInstance(new ByteArrayInputStream(tokenizerBytes),
+                    tokenizerOptions);
+            this.textTokenizer = HuggingFaceTokenizer.newInstance(new ByteArrayInputStream(tokenizerBytes),
+                    Map.of("padding", "false", "truncation", "false"));
+            this.maxLength = this.tokenizer.getMaxLength();
+            this.maxDocumentLength = maxDocumentLength;
+            this.specialTokenIds = specialTokenIds(this.tokenizer);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    private byte[] loadModel(InputStream modelInputStream) {
-        try (
-                InputStream inputStream = modelInputStream;
-                ByteArrayOutputStream buffer = new ByteArrayOutputStream()
-        ) {
-            int nRead;
-            byte[] data = new byte[1024];
-
-            while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, nRead);
-            }
-
-            buffer.flush();
-            return buffer.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     static class ScoringAndTokenCount {
 
         List<Double> scores;
@@ -73,24 +84,213 @@ class OnnxScoringBertCrossEncoder {
     }
 
     ScoringAndTokenCount scoreAll(String query, List<String> documents) {
-        List<Double> scores;
-        int tokenCount = 0;
-        int queryTokenCount = tokenizer.tokenize(query).size() - 2;
-        PairList<String, String> pairs = new PairList<>();
-        for (String document : documents) {
-            pairs.add(query, document);
-            tokenCount += queryTokenCount + tokenizer.tokenize(document).size() - 2; // do not count special tokens [CLS] and [SEP]
-        }
-        try (Result result = this.encode(pairs)) {
-            scores = this.toScore(result);
-        } catch (OrtException e) {
-            throw new RuntimeException(e);
+        return scoreAll(List.of(query), List.of(documents)).get(0);
+    }
+
+    /**
+     * 将多个请求的 (query, document) 合并为一个批次推理，按请求拆分得分与 token 数
+     * <p>
+     * 每个请求的 query 只分词一次，文档的分词结果取自缓存；token 数由同一份分词结果得出，
+     * 句对按 BERT 模板直接拼接，不再由分词器重复编码。
+     * 句对按长度排序分桶，每个桶只补齐到桶内最长，避免个别长文档让整个批次按最大长度计算注意力。
+     */
+    List<ScoringAndTokenCount> scoreAll(List<String> queries, List<List<String>> documents) {
+        List<Integer> tokenCounts = new ArrayList<>(queries.size());
+        List<String> pairQueries = new ArrayList<>();
+        List<String> pairDocuments = new ArrayList<>();
+        List<long[]> queryIds = new ArrayList<>();
+        List<long[]> documentIds = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            long[] query = tokenize(queries.get(i));
+            int tokenCount = 0;
+            for (String document : documents.get(i)) {
+                long[] tokens = documentTokens(document);
+                if (maxDocumentLength != null && tokens.length > maxDocumentLength) {
+                    tokens = Arrays.copyOf(tokens, maxDocumentLength);
+                    if (specialTokenIds == null) {
+                        // 由分词器编码句对时按文本截断
+                        document = truncate(document, maxDocumentLength);
+                    }
+                }
+                pairQueries.add(queries.get(i));
+                pairDocuments.add(document);
+                queryIds.add(query);
+                documentIds.add(tokens);
+                tokenCount += query.length + tokens.length; // do not count special tokens [CLS] and [SEP]
+            }
+            tokenCounts.add(tokenCount);
+        }
+
+        double[] scores = new double[queryIds.size()];
+        for (int[] bucket : buckets(queryIds, documentIds)) {
+            try (Result result = specialTokenIds == null
+                    ? this.encodePairs(select(pairQueries, bucket), select(pairDocuments, bucket))
+                    : this.encodeTokens(select(queryIds, bucket), select(documentIds, bucket))) {
+                List<Double> bucketScores = this.toScore(result);
+                for (int j = 0; j < bucket.length; j++) {
+                    scores[bucket[j]] = bucketScores.get(j);
+                }
+            } catch (OrtException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        List<ScoringAndTokenCount> results = new ArrayList<>(queries.size());
+        int from = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            int to = from + documents.get(i).size();
+            List<Double> requestScores = new ArrayList<>(to - from);
+            for (int j = from; j < to; j++) {
+                requestScores.add(scores[j]);
+            }
+            results.add(new ScoringAndTokenCount(requestScores, tokenCounts.get(i)));
+            from = to;
+        }
+        return results;
+    }
+
+    /**
+     * 按句对长度升序分桶，返回每个桶内句对的原始下标
+     */
+    private List<int[]> buckets(List<long[]> queryIds, List<long[]> documentIds) {
+        int size = queryIds.size();
+        int[] lengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            lengths[i] = Math.min(queryIds.get(i).length + documentIds.get(i).length + 3, maxLength);
+        }
+        int[] order = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> lengths[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        List<int[]> buckets = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i < size; i++) {
+            if (i - start >= MIN_BUCKET_SIZE && lengths[order[i]] > lengths[order[start]] * BUCKET_LENGTH_RATIO) {
+                buckets.add(Arrays.copyOfRange(order, start, i));
+                start = i;
+            }
+        }
+        if (start < size) {
+            buckets.add(Arrays.copyOfRange(order, start, size));
+        }
+        return buckets;
+    }
+
+    private static <T> List<T> select(List<T> list, int[] indexes) {
+        List<T> selected = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            selected.add(list.get(index));
         }
-        return new ScoringAndTokenCount(scores, tokenCount);
+        return selected;
     }
 
-    private Result encode(PairList<String, String> pairs) throws OrtException {
-        Encoding[] encodings = this.tokenizer.batchEncode(pairs);
+    private long[] documentTokens(String document) {
+        long[] tokens = documentTokens.getIfPresent(document);
+        if (tokens == null) {
+            tokens = tokenize(document);
+            documentTokens.put(document, tokens);
+        }
+        return tokens;
+    }
+
+    private long[] tokenize(String text) {
+        return textTokenizer.encode(text, false, false).getIds();
+    }
+
+    /**
+     * 截取文本的前 maxTokens 个 token 对应的字符
+     */
+    private String truncate(String text, int maxTokens) {
+        CharSpan[] spans = textTokenizer.encode(text, false, false).getCharTokenSpans();
+        for (int i = Math.min(maxTokens, spans.length) - 1; i >= 0; i--) {
+            if (spans[i] != null) {
+                return text.substring(0, spans[i].getEnd());
+            }
+        }
+        return text;
+    }
+
+    /**
+     * 分词器按 [CLS] A [SEP] B [SEP] 编码句对时返回 [CLS] 与 [SEP] 的 id，否则返回 null
+     */
+    private long[] specialTokenIds(HuggingFaceTokenizer tokenizer) {
+        long[] single = tokenizer.encode("", true, false).getIds();
+        if (single.length != 2) {
+            return null;
+        }
+        long[] first = tokenize("a");
+        long[] second = tokenize("b");
+        Encoding pair = tokenizer.encode("a", "b", true, false);
+        long[] expected = new long[first.length + second.length + 3];
+        expected[0] = single[0];
+        System.arraycopy(first, 0, expected, 1, first.length);
+        expected[first.length + 1] = single[1];
+        System.arraycopy(second, 0, expected, first.length + 2, second.length);
+        expected[expected.length - 1] = single[1];
+        return Arrays.equals(pair.getIds(), expected) ? single : null;
+    }
+
+    /**
+     * 拼接句对并补齐到批内最长
+     */
+    private Result encodeTokens(List<long[]> queryIds, List<long[]> documentIds) throws OrtException {
+        int size = queryIds.size();
+        TokenPair[] pairs = new TokenPair[size];
+        int batchLength = 0;
+        for (int i = 0; i < size; i++) {
+            pairs[i] = encodePair(queryIds.get(i), documentIds.get(i), specialTokenIds, maxLength);
+            batchLength = Math.max(batchLength, pairs[i].ids().length);
+        }
+
+        long[][] inputIds = new long[size][batchLength];
+        long[][] attentionMask = new long[size][batchLength];
+        long[][] tokenTypeIds = new long[size][batchLength];
+        for (int i = 0; i < size; i++) {
+            long[] ids = pairs[i].ids();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            Arrays.fill(attentionMask[i], 0, ids.length, 1L);
+            Arrays.fill(tokenTypeIds[i], pairs[i].firstLength(), ids.length, 1L);
+        }
+        return run(inputIds, attentionMask, tokenTypeIds);
+    }
+
+    /**
+     * 按 BERT 模板 [CLS] A [SEP] B [SEP] 拼接句对，超过 maxLength 时按 LONGEST_FIRST 截断
+     */
+    static TokenPair encodePair(long[] query, long[] document, long[] specialTokenIds, int maxLength) {
+        int target = maxLength - 3;
+        int n1 = query.length;
+        int n2 = document.length;
+        if (n1 + n2 > target) {
+            // 与 tokenizers 的 LONGEST_FIRST 相同：较短的一方不超过一半，其余留给较长的一方
+            int shorter = Math.min(Math.min(n1, n2), target / 2);
+            int longer = target - shorter;
+            if (n1 <= n2) {
+                n1 = shorter;
+                n2 = Math.min(n2, longer);
+            } else {
+                n2 = shorter;
+                n1 = Math.min(n1, longer);
+            }
+        }
+        long[] ids = new long[n1 + n2 + 3];
+        ids[0] = specialTokenIds[0];
+        System.arraycopy(query, 0, ids, 1, n1);
+        ids[n1 + 1] = specialTokenIds[1];
+        System.arraycopy(document, 0, ids, n1 + 2, n2);
+        ids[ids.length - 1] = specialTokenIds[1];
+        return new TokenPair(ids, n1 + 2);
+    }
+
+    /**
+     * 拼接后的句对，firstLength 为 [CLS] A [SEP] 的长度，之后的 token 属于第二句
+     */
+    record TokenPair(long[] ids, int firstLength) {
+    }
+
+    private Result encodePairs(List<String> queries, List<String> documents) throws OrtException {
+        Encoding[] encodings = this.tokenizer.batchEncode(new PairList<>(queries, documents));
         long[][] inputIds = new long[encodings.length][];
         long[][] attentionMask = new long[encodings.length][];
         long[][] tokenTypeIds = new long[encodings.length][];
@@ -100,7 +300,10 @@ class OnnxScoringBertCrossEncoder {
             attentionMask[i] = encodings[i].getAttentionMask();
             tokenTypeIds[i] = encodings[i].getTypeIds();
         }
+        return run(inputIds, attentionMask, tokenTypeIds);
+    }
 
+    private Result run(long[][] inputIds, long[][] attentionMask, long[][] tokenTypeIds) throws OrtException {
         try (
                 OnnxTensor inputIdsTensor = createTensor(environment, inputIds);
                 OnnxTensor attentionMaskTensor = createTensor(environment, attentionMask);
@@ -135,4 +338,14 @@ class OnnxScoringBertCrossEncoder {
         return 1 / (1 + Math.exp(-x));
     }
 
+    void close() {
+        tokenizer.close();
+        textTokenizer.close();
+        try {
+            session.close();
+        } catch (OrtException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
 }
@@ -1,36 +1,84 @@
 package ai.intentchain.reranker.onnx;
 
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.onnx.OnnxRuntime;
+import ai.intentchain.core.onnx.OnnxSessionOptions;
 import ai.onnxruntime.OrtSession;
 
+import java.time.Duration;
+
 public class OnnxScoringModel extends AbstractInProcessScoringModel {
 
     private static final int DEFAULT_MODEL_MAX_LENGTH = 510; // 512 - 2 (special tokens [CLS] and [SEP])
 
     private static final boolean DEFAULT_NORMALIZE = false;
 
+    // 默认不合并并发请求，单个请求不必等待 batch.max-wait
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1;
+
+    public static final Duration DEFAULT_MAX_BATCH_WAIT = Duration.ofMillis(2);
+
     private final OnnxScoringBertCrossEncoder onnxBertCrossEncoder;
 
+    private final MicroBatchScheduler scheduler;
+
     public OnnxScoringModel(String modelFileName, String tokenizerFileName) {
-        this.onnxBertCrossEncoder = loadFromJar(modelFileName, new OrtSession.SessionOptions(),
-                tokenizerFileName, DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE);
+        this(loadFromJar(modelFileName, OnnxRuntime.sessionOptions(),
+                tokenizerFileName, DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE));
     }
 
     public OnnxScoringModel(String modelFileName, OrtSession.SessionOptions options, String tokenizerFileName) {
-        this.onnxBertCrossEncoder = loadFromJar(modelFileName, options, tokenizerFileName,
-                DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE);
+        this(loadFromJar(modelFileName, options, tokenizerFileName,
+                DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE));
     }
 
     public OnnxScoringModel(String modelFileName, String tokenizerFileName, int modelMaxLength) {
-        this.onnxBertCrossEncoder = loadFromJar(modelFileName, new OrtSession.SessionOptions(),
-                tokenizerFileName, modelMaxLength, DEFAULT_NORMALIZE);
+        this(loadFromJar(modelFileName, OnnxRuntime.sessionOptions(),
+                tokenizerFileName, modelMaxLength, DEFAULT_NORMALIZE));
     }
 
     public OnnxScoringModel(String modelFileName, OrtSession.SessionOptions options, String tokenizerFileName,
                             int modelMaxLength, boolean normalize) {
-        this.onnxBertCrossEncoder = loadFromJar(modelFileName, options, tokenizerFileName, modelMaxLength, normalize);
+        this(loadFromJar(modelFileName, options, tokenizerFileName, modelMaxLength, normalize));
+    }
+
+    private OnnxScoringModel(OnnxScoringBertCrossEncoder onnxBertCrossEncoder) {
+        this(onnxBertCrossEncoder, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_WAIT);
+    }
+
+    private OnnxScoringModel(OnnxScoringBertCrossEncoder onnxBertCrossEncoder,
+                             int maxBatchSize, Duration maxBatchWait) {
+        this.onnxBertCrossEncoder = onnxBertCrossEncoder;
+        this.scheduler = new MicroBatchScheduler(onnxBertCrossEncoder, maxBatchSize, maxBatchWait);
+    }
+
+    /**
+     * 加载类路径中的模型与分词器，会话与微批配置见 {@link OnnxSessionOptions}、{@link InProcessScoringModelOptions}
+     */
+    public static OnnxScoringModel fromResources(String modelFileName, String tokenizerFileName,
+                                                 ReadableConfig config) {
+        return new OnnxScoringModel(loadFromJar(modelFileName, config, tokenizerFileName,
+                DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE),
+                InProcessScoringModelOptions.batchMaxSize(config),
+                InProcessScoringModelOptions.batchMaxWait(config));
+    }
+
+    /**
+     * 加载本地文件中的模型与分词器
+     */
+    public static OnnxScoringModel fromFile(String modelFilePath, String tokenizerFilePath,
+                                            ReadableConfig config) {
+        return new OnnxScoringModel(loadFromFile(modelFilePath, config, tokenizerFilePath,
+                DEFAULT_MODEL_MAX_LENGTH, DEFAULT_NORMALIZE),
+                InProcessScoringModelOptions.batchMaxSize(config),
+                InProcessScoringModelOptions.batchMaxWait(config));
     }
 
     protected OnnxScoringBertCrossEncoder model() {
         return this.onnxBertCrossEncoder;
     }
+
+    protected MicroBatchScheduler scheduler() {
+        return this.scheduler;
+    }
 }
@@ -0,0 +1,82 @@
+package ai.intentchain.reranker.onnx;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 按 token 拼接的句对须与分词器按 LONGEST_FIRST 截断编码的句对一致
+ */
+class OnnxScoringBertCrossEncoderTest {
+
+    // langchain4j-embeddings 自带的 BERT 分词器
+    private static final String TOKENIZER = "bert-tokenizer.json";
+    private static final int MAX_LENGTH = 24;
+
+    private static HuggingFaceTokenizer pairTokenizer;
+    private static HuggingFaceTokenizer textTokenizer;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        byte[] bytes;
+        try (InputStream stream = OnnxScoringBertCrossEncoderTest.class.getClassLoader()
+                .getResourceAsStream(TOKENIZER)) {
+            bytes = stream.readAllBytes();
+        }
+        pairTokenizer = HuggingFaceTokenizer.newInstance(new ByteArrayInputStream(bytes), Map.of(
+                "padding", "false",
+                "truncation", "LONGEST_FIRST",
+                "maxLength", String.valueOf(MAX_LENGTH)));
+        textTokenizer = HuggingFaceTokenizer.newInstance(new ByteArrayInputStream(bytes), Map.of(
+                "padding", "false",
+                "truncation", "false"));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pairTokenizer.close();
+        textTokenizer.close();
+    }
+
+    @Test
+    void encodePairMatchesLongestFirstTruncation() {
+        long[] specialTokenIds = pairTokenizer.encode("", true, false).getIds();
+        assertEquals(2, specialTokenIds.length);
+        for (int queryWords = 0; queryWords <= 30; queryWords++) {
+            for (int documentWords = 0; documentWords <= 30; documentWords++) {
+                String query = words("query", queryWords);
+                String document = words("doc", documentWords);
+                Encoding expected = pairTokenizer.encode(query, document, true, false);
+
+                OnnxScoringBertCrossEncoder.TokenPair pair = OnnxScoringBertCrossEncoder.encodePair(
+                        textTokenizer.encode(query, false, false).getIds(),
+                        textTokenizer.encode(document, false, false).getIds(),
+                        specialTokenIds, MAX_LENGTH);
+                String message = "query words=" + queryWords + ", document words=" + documentWords;
+                assertArrayEquals(expected.getIds(), pair.ids(), message);
+                long[] typeIds = new long[pair.ids().length];
+                Arrays.fill(typeIds, pair.firstLength(), typeIds.length, 1L);
+                assertArrayEquals(expected.getTypeIds(), typeIds, message);
+            }
+        }
+    }
+
+    private static String words(String prefix, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(prefix).append(i).append(' ');
+        }
+        return text.toString().trim();
+    }
+}
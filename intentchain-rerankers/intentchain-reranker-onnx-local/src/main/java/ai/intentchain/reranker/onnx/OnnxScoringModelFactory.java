@@ -6,9 +6,7 @@ import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.ScoringModelFactory;
 import ai.intentchain.core.utils.FactoryUtil;
 import dev.langchain4j.model.scoring.ScoringModel;
-import dev.langchain4j.model.scoring.onnx.OnnxScoringModel;
 
-import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -48,7 +46,7 @@ public class OnnxScoringModelFactory implements ScoringModelFactory {
 
     @Override
     public Set<ConfigOption<?>> optionalOptions() {
-        return Collections.emptySet();
+        return InProcessScoringModelOptions.options();
     }
 
     @Override
@@ -58,6 +56,6 @@ public class OnnxScoringModelFactory implements ScoringModelFactory {
         String modelFilePath = config.get(MODEL_FILE_PATH);
         String tokenizerFilePath = config.get(TOKENIZER_FILE_PATH);
 
-        return new OnnxScoringModel(modelFilePath, tokenizerFilePath);
+        return OnnxScoringModel.fromFile(modelFilePath, tokenizerFilePath, config);
     }
 }
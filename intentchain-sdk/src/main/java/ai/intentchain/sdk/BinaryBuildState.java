@@ -0,0 +1,268 @@
+package ai.intentchain.sdk;
+
+import ai.intentchain.sdk.data.FileState;
+import ai.intentchain.sdk.data.FileStateSection;
+import com.google.common.io.CountingOutputStream;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 二进制构建状态文件
+ * <p>
+ * 文件结构：文件头（魔数、版本）| 各文件的数据分段（行哈希、向量 id）| 索引 | 文件尾（索引位置、魔数）。
+ * 索引记录每个文件的元数据、已构建的分类器以及数据分段的位置，加载时只读取索引；
+ * 数据分段在首次读取行哈希或向量 id 时才按位置读取并解码，保存时未被修改的分段原样复制。
+ * 32 位十六进制的 id（MD5）按 16 字节存储，其余 id 按 UTF-8 字符串存储。
+ */
+final class BinaryBuildState {
+
+    private static final int MAGIC = 0x49434253; // "ICBS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FOOTER_BYTES = 12;
+
+    private static final byte FORMAT_HEX = 0;
+    private static final byte FORMAT_UTF = 1;
+
+    private BinaryBuildState() {
+    }
+
+    /**
+     * 读取索引，返回的文件状态持有文件通道，按需读取数据分段；通道由调用方在状态不再使用后关闭
+     */
+    static List<FileState> read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + FOOTER_BYTES) {
+            throw new IOException("The build state file is truncated");
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+        long indexOffset = footer.getLong();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION || footer.getInt() != MAGIC
+            || indexOffset < HEADER_BYTES || indexOffset > size - FOOTER_BYTES) {
+            throw new IOException("Unsupported build state file format");
+        }
+
+        ByteBuffer index = readFully(channel, indexOffset, (int) (size - FOOTER_BYTES - indexOffset));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                index.array(), index.arrayOffset(), index.remaining()));
+        int count = in.readInt();
+        List<FileState> fileStates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FileState.FileStateBuilder builder = FileState.builder()
+                    .relativePath(in.readUTF())
+                    .size(in.readLong())
+                    .lastModified(in.readLong())
+                    .contentHash(readNullableUTF(in))
+                    .md5Hash(readNullableUTF(in));
+            int keyCount = in.readInt();
+            List<String> keys = new ArrayList<>(keyCount);
+            for (int k = 0; k < keyCount; k++) {
+                keys.add(in.readUTF());
+            }
+            long offset = in.readLong();
+            int length = in.readInt();
+            fileStates.add(builder.section(new Section(channel, offset, length, keys)).build());
+        }
+        return fileStates;
+    }
+
+    static void write(Path file, List<FileState> fileStates) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             CountingOutputStream counter = new CountingOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // 数据分段
+            List<Entry> entries = new ArrayList<>(fileStates.size());
+            for (FileState fileState : fileStates) {
+                long offset = counter.getCount();
+                List<String> keys;
+                if (fileState.untouchedSection() instanceof Section section) {
+                    keys = section.keys;
+                    section.copyTo(out);
+                } else {
+                    Map<String, List<String>> vectorIds = Optional.ofNullable(fileState.getVectorIds())
+                            .orElse(Map.of());
+                    keys = new ArrayList<>(vectorIds.keySet());
+                    writeIds(out, fileState.getRowHashes());
+                    for (String key : keys) {
+                        writeIds(out, vectorIds.get(key));
+                    }
+                }
+                entries.add(new Entry(fileState, keys, offset, (int) (counter.getCount() - offset)));
+            }
+
+            // 索引
+            long indexOffset = counter.getCount();
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                FileState fileState = entry.fileState();
+                out.writeUTF(fileState.getRelativePath());
+                out.writeLong(fileState.getSize());
+                out.writeLong(fileState.getLastModified());
+                writeNullableUTF(out, fileState.getContentHash());
+                writeNullableUTF(out, fileState.getMd5Hash());
+                out.writeInt(entry.keys().size());
+                for (String key : entry.keys()) {
+                    out.writeUTF(key);
+                }
+                out.writeLong(entry.offset());
+                out.writeInt(entry.length());
+            }
+
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, List<String> ids) throws IOException {
+        if (ids == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(ids.size());
+        boolean hex = ids.stream().allMatch(BinaryBuildState::isHex);
+        out.writeByte(hex ? FORMAT_HEX : FORMAT_UTF);
+        for (String id : ids) {
+            if (hex) {
+                try {
+                    out.write(Hex.decodeHex(id));
+                } catch (DecoderException e) {
+                    throw new IllegalStateException(e);
+                }
+            } else {
+                out.writeUTF(id);
+            }
+        }
+    }
+
+    private static List<String> readIds(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        boolean hex = in.readByte() == FORMAT_HEX;
+        List<String> ids = new ArrayList<>(count);
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < count; i++) {
+            if (hex) {
+                in.readFully(bytes);
+                ids.add(Hex.encodeHexString(bytes));
+            } else {
+                ids.add(in.readUTF());
+            }
+        }
+        return ids;
+    }
+
+    private static boolean isHex(String id) {
+        if (id.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the build state file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private record Entry(FileState fileState, List<String> keys, long offset, int length) {
+    }
+
+    /**
+     * 单个文件的数据分段，首次访问时读取并解码，结果会被缓存
+     */
+    private static final class Section implements FileStateSection {
+        private final FileChannel channel;
+        private final long offset;
+        private final int length;
+        private final List<String> keys;
+
+        private List<String> rowHashes;
+        private Map<String, List<String>> vectorIds;
+
+        Section(FileChannel channel, long offset, int length, List<String> keys) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+            this.keys = keys;
+        }
+
+        @Override
+        public Set<String> vectorIdKeys() {
+            return new LinkedHashSet<>(keys);
+        }
+
+        @Override
+        public synchronized List<String> rowHashes() {
+            decode();
+            return rowHashes;
+        }
+
+        @Override
+        public synchronized Map<String, List<String>> vectorIds() {
+            decode();
+            return vectorIds;
+        }
+
+        private void decode() {
+            if (vectorIds != null) {
+                return;
+            }
+            try {
+                ByteBuffer buffer = readFully(channel, offset, length);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+                rowHashes = readIds(in);
+                Map<String, List<String>> ids = new HashMap<>();
+                for (String key : keys) {
+                    ids.put(key, readIds(in));
+                }
+                vectorIds = ids;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the build state section", e);
+            }
+        }
+
+        void copyTo(OutputStream out) throws IOException {
+            out.write(readFully(channel, offset, length).array());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ai.intentchain.sdk;
 
 import ai.intentchain.sdk.data.FileState;
+import ai.intentchain.sdk.utils.FileUtil;
 import ai.intentchain.sdk.utils.ProjectUtil;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,8 +10,12 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -23,12 +28,17 @@ import java.util.stream.Stream;
 class BuildStateManager {
 
     private static final String STATE_FILE_PREFIX = "build_state_";
-    private static final String STATE_FILE_SUFFIX = ".json";
+    private static final String STATE_FILE_SUFFIX = ".bin";
+    // 旧版本的 JSON 构建状态，加载时自动迁移为二进制格式
+    private static final String JSON_STATE_FILE_SUFFIX = ".json";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final Path icDir;
     private final ReentrantReadWriteLock lock;
+    // 已加载的构建状态持有的文件通道，状态使用完毕后由 releaseBuildStates 关闭
+    private final List<FileChannel> openChannels = Collections.synchronizedList(new ArrayList<>());
 
     public BuildStateManager(@NonNull Path projectPath) {
         this.icDir = projectPath.resolve(ProjectUtil.INTENTCHAIN_DIR_NAME);
@@ -36,21 +46,79 @@ class BuildStateManager {
     }
 
     /**
-     * 加载指定配置的构建状态
+     * 加载指定配置的构建状态，只读取索引，各文件的向量 id 在使用时才读取；
+     * 状态使用完毕（包括保存新状态）后需调用 {@link #releaseBuildStates()}
      */
     public List<FileState> loadBuildState(@NonNull String stateId) throws IOException {
-        return withReadLock(() -> {
+        List<FileState> fileStates = withReadLock(() -> {
             Path file = getStateFile(stateId);
-            if (!Files.exists(file)) {
+            if (Files.exists(file)) {
+                FileChannel channel = null;
+                try {
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                    List<FileState> states = BinaryBuildState.read(channel);
+                    openChannels.add(channel);
+                    return states;
+                } catch (Exception e) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                    throw new RuntimeException("The build state file " + file.getFileName()
+                                               + " loading failed", e);
+                }
+            }
+            return null;
+        });
+        if (fileStates != null) {
+            return fileStates;
+        }
+        return migrateJsonState(stateId);
+    }
+
+    /**
+     * 关闭已加载的构建状态持有的文件通道，之后不能再读取这些状态的数据分段
+     */
+    public void releaseBuildStates() throws IOException {
+        List<FileChannel> channels;
+        synchronized (openChannels) {
+            channels = new ArrayList<>(openChannels);
+            openChannels.clear();
+        }
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private List<FileState> migrateJsonState(String stateId) throws IOException {
+        return withWriteLock(() -> {
+            Path jsonFile = getJsonStateFile(stateId);
+            if (!Files.exists(jsonFile)) {
                 return Collections.emptyList();
             }
+            List<FileState> fileStates;
             try {
-                return OBJECT_MAPPER.readValue(file.toFile(), new TypeReference<>() {
+                fileStates = OBJECT_MAPPER.readValue(jsonFile.toFile(), new TypeReference<>() {
                 });
             } catch (Exception e) {
-                throw new RuntimeException("The build state file " + file.getFileName()
+                throw new RuntimeException("The build state file " + jsonFile.getFileName()
                                            + " loading failed", e);
             }
+            writeStateFile(getStateFile(stateId), fileStates);
+            Files.delete(jsonFile);
+            log.info("Migrated the build state file {} to the binary format", jsonFile.getFileName());
+            return fileStates;
         });
     }
 
@@ -60,21 +128,28 @@ class BuildStateManager {
     public void saveBuildState(@NonNull String stateId, @NonNull List<FileState> fileStates) throws IOException {
         withWriteLock(() -> {
             ensureDatDirectory();
-            Path file = getStateFile(stateId);
-            OBJECT_MAPPER.writeValue(file.toFile(), fileStates);
+            writeStateFile(getStateFile(stateId), fileStates);
             return null;
         });
     }
 
+    private static void writeStateFile(Path file, List<FileState> fileStates) throws IOException {
+        // 先写临时文件再原子替换，写入中断时不会损坏已有的状态文件
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_FILE_SUFFIX);
+        BinaryBuildState.write(tempFile, fileStates);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     /**
      * 清理指定配置的状态
      */
     public void cleanState(@NonNull String stateId) throws IOException {
         withWriteLock(() -> {
-            Path file = getStateFile(stateId);
-            if (Files.exists(file)) {
-                Files.delete(file);
-                log.info("Clean up the state file: {}", file.getFileName());
+            for (Path file : List.of(getStateFile(stateId), getJsonStateFile(stateId))) {
+                if (Files.exists(file)) {
+                    Files.delete(file);
+                    log.info("Clean up the state file: {}", file.getFileName());
+                }
             }
             return null;
         });
@@ -90,7 +165,7 @@ class BuildStateManager {
             }
             List<Path> files = listStateFiles();
             for (Path file : files) {
-                Files.delete(file);
+                FileUtil.deleteRecursively(file);
                 log.info("Clean the expired state and embedding files: {}", file.getFileName());
             }
             log.info("Cleared {} expired state and embedding files", files.size());
@@ -120,7 +195,7 @@ class BuildStateManager {
             if (embeddingFiles.size() > keepCount * 2) {
                 List<Path> files = embeddingFiles.subList(keepCount * 2, embeddingFiles.size());
                 for (Path file : files) {
-                    Files.delete(file);
+                    FileUtil.deleteRecursively(file);
                     log.info("Clean the expired embedding files: {}", file.getFileName());
                 }
                 log.info("Cleared {} expired embedding files and retained the latest {}",
@@ -134,6 +209,15 @@ class BuildStateManager {
         return icDir.resolve(STATE_FILE_PREFIX + stateId + STATE_FILE_SUFFIX);
     }
 
+    private Path getJsonStateFile(String stateId) {
+        return icDir.resolve(STATE_FILE_PREFIX + stateId + JSON_STATE_FILE_SUFFIX);
+    }
+
+    private static boolean isStateFile(String fileName) {
+        return fileName.startsWith(STATE_FILE_PREFIX)
+               && (fileName.endsWith(STATE_FILE_SUFFIX) || fileName.endsWith(JSON_STATE_FILE_SUFFIX));
+    }
+
     private void ensureDatDirectory() throws IOException {
         if (!Files.exists(icDir)) {
             Files.createDirectories(icDir);
@@ -144,7 +228,7 @@ class BuildStateManager {
         try (Stream<Path> files = Files.list(icDir)) {
             return files.filter(path -> {
                         String fileName = path.getFileName().toString();
-                        return (fileName.startsWith(STATE_FILE_PREFIX) && fileName.endsWith(STATE_FILE_SUFFIX))
+                        return isStateFile(fileName)
                                || fileName.startsWith(ProjectUtil.DUCKDB_EMBEDDING_STORE_FILE_PREFIX);
                     })
                     .toList();
@@ -155,7 +239,7 @@ class BuildStateManager {
         try (Stream<Path> files = Files.list(icDir)) {
             return files.filter(path -> {
                         String fileName = path.getFileName().toString();
-                        return fileName.startsWith(STATE_FILE_PREFIX) && fileName.endsWith(STATE_FILE_SUFFIX);
+                        return isStateFile(fileName);
                     })
                     .sorted((o1, o2) -> {
                         try {
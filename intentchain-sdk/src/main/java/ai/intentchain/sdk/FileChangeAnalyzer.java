@@ -1,7 +1,6 @@
 package ai.intentchain.sdk;
 
 
-import ai.intentchain.core.classifiers.data.TextLabel;
 import ai.intentchain.sdk.data.FileChanges;
 import ai.intentchain.sdk.data.FileState;
 import ai.intentchain.sdk.data.project.Project;
@@ -10,9 +9,8 @@ import ai.intentchain.sdk.utils.ProjectUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -35,47 +33,58 @@ class FileChangeAnalyzer {
     }
 
     public FileChanges analyzeChanges(List<FileState> fileStates) {
-        ChangeTrainingDataCacheUtil.remove(project.getName());
-
         Map<String, FileState> fileStateMap = fileStates.stream()
                 .collect(Collectors.toMap(FileState::getRelativePath, Function.identity()));
+        boolean trustMtime = project.getConfiguration().get(ProjectUtil.BUILD_TRUST_MTIME);
 
         List<FileState> newFiles = new ArrayList<>();
         List<FileState> modifiedFiles = new ArrayList<>();
         List<FileState> unchangedFiles = new ArrayList<>();
 
-        // 分析当前存在的CSV文件
+        // 先只读取文件属性，大小和修改时间都未变化的文件直接视为未变化，其余文件作为候选计算内容哈希
+        Set<String> relativePaths = new HashSet<>();
+        List<Candidate> candidates = new ArrayList<>();
         for (Path filePath : csvFilePaths) {
             String relativePath = modelsPath.relativize(filePath).toString();
+            relativePaths.add(relativePath);
+            BasicFileAttributes attributes = FileUtil.attributes(filePath);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
             FileState fileState = fileStateMap.get(relativePath);
-            if (fileState == null) {
+            if (trustMtime && fileState != null && fileState.getContentHash() != null
+                && fileState.getSize() == size && fileState.getLastModified() == lastModified) {
+                unchangedFiles.add(fileState);
+            } else {
+                candidates.add(new Candidate(filePath, relativePath, size, lastModified, fileState));
+            }
+        }
+
+        // 并行计算候选文件的内容哈希
+        List<HashedCandidate> hashedCandidates = candidates.parallelStream()
+                .map(c -> new HashedCandidate(c, FileUtil.contentHash(c.filePath()), sameContent(c)))
+                .toList();
+        for (HashedCandidate hashed : hashedCandidates) {
+            Candidate candidate = hashed.candidate();
+            FileState fileState = createFileState(candidate.relativePath(), candidate.size(),
+                    candidate.lastModified(), hashed.contentHash());
+            if (candidate.fileState() == null) {
                 // 新CSV文件
-                long lastModified = FileUtil.lastModified(filePath);
-                String md5Hash = FileUtil.md5(filePath);
-                List<TextLabel> textLabels = ProjectUtil.loadTextLabels(filePath, modelsPath);
-                newFiles.add(createFileState(relativePath, lastModified, md5Hash, textLabels));
+                newFiles.add(fileState);
+            } else if (hashed.contentHash().equals(candidate.fileState().getContentHash()) || hashed.sameMd5()) {
+                // 内容未变化，保留之前的元数据并更新文件属性，下次可直接跳过
+                unchangedFiles.add(candidate.fileState().toBuilder()
+                        .size(candidate.size())
+                        .lastModified(candidate.lastModified())
+                        .contentHash(hashed.contentHash())
+                        .md5Hash(null)
+                        .build());
             } else {
-                // 已存在的CSV文件，检查是否发生变化
-                boolean hasChanged = false;
-                String md5Hash = null;
-                long lastModified = FileUtil.lastModified(filePath);
-                if (lastModified - fileState.getLastModified() > 0) {
-                    md5Hash = FileUtil.md5(filePath);
-                    hasChanged = !md5Hash.equals(fileState.getMd5Hash());
-                }
-                if (hasChanged) { // CSV文件已修改
-                    List<TextLabel> textLabels = ProjectUtil.loadTextLabels(filePath, modelsPath);
-                    modifiedFiles.add(createFileState(relativePath, lastModified, md5Hash, textLabels));
-                } else {
-                    // CSV文件未变化，保留之前的元数据
-                    unchangedFiles.add(fileState);
-                }
+                // CSV文件已修改，训练数据在构建时流式读取
+                modifiedFiles.add(fileState);
             }
         }
 
         // 查找已删除的CSV文件
-        List<String> relativePaths = csvFilePaths.stream()
-                .map(p -> modelsPath.relativize(p).toString()).toList();
         List<FileState> deletedFiles = fileStates.stream()
                 .filter(p -> !relativePaths.contains(p.getRelativePath()))
                 .collect(Collectors.toList());
@@ -83,13 +92,30 @@ class FileChangeAnalyzer {
         return new FileChanges(newFiles, modifiedFiles, unchangedFiles, deletedFiles);
     }
 
-    private FileState createFileState(String relativePath, long lastModified, String md5Hash,
-                                      List<TextLabel> textLabels) {
-        ChangeTrainingDataCacheUtil.add(project.getName(), relativePath, textLabels);
+    /**
+     * 旧版本的构建状态只记录了 MD5，需要计算 MD5 比较
+     */
+    private static boolean sameContent(Candidate candidate) {
+        FileState fileState = candidate.fileState();
+        if (fileState == null || fileState.getContentHash() != null || fileState.getMd5Hash() == null) {
+            return false;
+        }
+        return fileState.getMd5Hash().equals(FileUtil.md5(candidate.filePath()));
+    }
+
+    private FileState createFileState(String relativePath, long size, long lastModified, String contentHash) {
         return FileState.builder()
                 .relativePath(relativePath)
+                .size(size)
                 .lastModified(lastModified)
-                .md5Hash(md5Hash)
+                .contentHash(contentHash)
                 .build();
     }
-}
\ No newline at end of file
+
+    private record Candidate(Path filePath, String relativePath, long size, long lastModified,
+                             FileState fileState) {
+    }
+
+    private record HashedCandidate(Candidate candidate, String contentHash, boolean sameMd5) {
+    }
+}
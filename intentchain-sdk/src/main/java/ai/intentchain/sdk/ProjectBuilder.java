@@ -10,7 +10,10 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 public class ProjectBuilder {
@@ -32,34 +35,66 @@ public class ProjectBuilder {
      * @throws IOException
      */
     public void build() throws IOException {
+        build(false);
+    }
+
+    private void build(boolean clearStore) throws IOException {
         log.info("Start incremental build project ...");
         if (project == null) {
             project = ProjectUtil.loadProject(projectPath);
         }
 
         String fingerprint = ProjectUtil.storeFingerprint(project);
+        try {
+            update(fingerprint, clearStore);
+        } finally {
+            // 构建状态的数据分段按需读取，构建（包括保存新状态）完成后才能关闭状态文件
+            stateManager.releaseBuildStates();
+        }
+        log.info("Incremental build project completed");
+    }
+
+    private void update(String fingerprint, boolean clearStore) throws IOException {
         List<FileState> fileStates = stateManager.loadBuildState(fingerprint);
 
         FileChangeAnalyzer fileChangeAnalyzer = new FileChangeAnalyzer(project, projectPath);
         FileChanges changes = fileChangeAnalyzer.analyzeChanges(fileStates);
 
-        if (changes.hasChanges()) {
+        // 新增或重新配置的分类器指纹不在已有的构建状态中，需要为其补建存储
+        Set<String> classifierFingerprints = ProjectUtil.storeClassifierFingerprints(project);
+        boolean missingClassifiers = changes.unchangedFiles().stream()
+                .anyMatch(f -> !f.vectorIdKeys().containsAll(classifierFingerprints));
+
+        if (clearStore || changes.hasChanges() || missingClassifiers) {
             // 更新状态
-            StoreManager storeManager = new StoreManager(project, projectPath, fingerprint);
-            storeManager.updateStore(fileStates, changes);
+            try (StoreManager storeManager = new StoreManager(project, projectPath, fingerprint)) {
+                if (clearStore) {
+                    storeManager.clearStore();
+                }
+                storeManager.updateStore(fileStates, changes);
+            }
+        } else if (refreshed(fileStates, changes)) {
+            // 内容未变化但修改时间变化的文件，记录新的文件属性，下次构建可直接跳过哈希计算
+            stateManager.saveBuildState(fingerprint, changes.unchangedFiles());
         }
-        log.info("Incremental build project completed");
+    }
+
+    private static boolean refreshed(List<FileState> fileStates, FileChanges changes) {
+        Set<FileState> loaded = Collections.newSetFromMap(new IdentityHashMap<>());
+        loaded.addAll(fileStates);
+        return changes.unchangedFiles().stream().anyMatch(f -> !loaded.contains(f));
     }
 
     /**
-     * 强制重建项目
+     * 强制重建项目：清理状态并清空向量存储后全量构建，
+     * 清空远程存储后，其本地副本也随之重新建立
      *
      * @throws IOException
      */
     public void forceRebuild() throws IOException {
         log.info("Start force rebuild project ...");
         cleanState();
-        build();
+        build(true);
     }
 
     /**
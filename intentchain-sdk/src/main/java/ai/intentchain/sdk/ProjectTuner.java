@@ -0,0 +1,193 @@
+package ai.intentchain.sdk;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.Configuration;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingModelFactory;
+import ai.intentchain.core.factories.EmbeddingModelFactoryManager;
+import ai.intentchain.core.factories.Factory;
+import ai.intentchain.core.factories.ScoringModelFactory;
+import ai.intentchain.core.factories.ScoringModelFactoryManager;
+import ai.intentchain.sdk.data.project.EmbeddingConfig;
+import ai.intentchain.sdk.data.project.Project;
+import ai.intentchain.sdk.data.project.RerankingConfig;
+import ai.intentchain.sdk.utils.CsvTextLabelReader;
+import ai.intentchain.sdk.utils.ProjectUtil;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.scoring.ScoringModel;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 进程内（ONNX）模型的线程数调优
+ * <p>
+ * 按项目的向量模型与重排序模型配置，依次以不同的 intra-op 线程数创建模型，
+ * 用训练数据中的文本测量单条请求的平均延迟，并给出延迟最低的线程数。
+ * 未设置线程数（共享进程级的全局线程池）作为基准一并测量。
+ * 只有支持 session.intra-op-threads 配置项的提供商会被调优。
+ */
+@Slf4j
+public class ProjectTuner {
+
+    // 与 OnnxSessionOptions.INTRA_OP_THREADS 相同，按 key 查找，避免未引入 ONNX Runtime 时加载相关类
+    private static final String INTRA_OP_THREADS_KEY = "session.intra-op-threads";
+
+    private static final int SAMPLE_SIZE = 32;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int RERANK_DOCUMENTS = 10;
+
+    /**
+     * 未设置线程数，模型共享 ONNX Runtime 的全局线程池
+     */
+    public static final int SHARED_POOL_THREADS = 0;
+
+    private final Path projectPath;
+    private final Project project;
+
+    public ProjectTuner(@NonNull Path projectPath) {
+        this.projectPath = projectPath;
+        this.project = ProjectUtil.loadProject(projectPath);
+    }
+
+    public record Result(String component, String provider, int threads, double latencyMillis) {
+
+        public boolean sharedPool() {
+            return threads == SHARED_POOL_THREADS;
+        }
+    }
+
+    /**
+     * 测量各线程数下的平均延迟
+     */
+    public List<Result> tune() {
+        List<String> texts = sampleTexts();
+        if (texts.isEmpty()) {
+            throw new IllegalStateException("No training data found in the '"
+                                            + ProjectUtil.MODELS_DIR_NAME + "' directory");
+        }
+        List<Result> results = new ArrayList<>();
+
+        EmbeddingConfig embedding = project.getEmbedding();
+        if (embedding != null) {
+            EmbeddingModelFactory factory = EmbeddingModelFactoryManager.getFactory(embedding.getProvider());
+            tune("embedding", embedding.getProvider(), factory, embedding.getConfiguration(),
+                    factory::create,
+                    EmbeddingModel::embed,
+                    texts, results);
+        }
+
+        RerankingConfig reranking = project.getReranking();
+        if (reranking != null) {
+            ScoringModelFactory factory = ScoringModelFactoryManager.getFactory(reranking.getProvider());
+            List<TextSegment> documents = texts.stream()
+                    .limit(RERANK_DOCUMENTS)
+                    .map(TextSegment::from)
+                    .toList();
+            tune("reranking", reranking.getProvider(), factory, reranking.getConfiguration(),
+                    factory::create,
+                    (model, text) -> model.scoreAll(documents, text),
+                    texts, results);
+        }
+        return results;
+    }
+
+    /**
+     * 每个组件延迟最低的结果
+     */
+    public static Map<String, Result> best(@NonNull List<Result> results) {
+        Map<String, Result> best = new LinkedHashMap<>();
+        for (Result result : results) {
+            best.merge(result.component(), result,
+                    (a, b) -> b.latencyMillis() < a.latencyMillis() ? b : a);
+        }
+        return best;
+    }
+
+    /**
+     * 先以未设置线程数的配置测量基准，再依次以候选线程数创建模型并测量，
+     * 每个模型测量完成后即关闭，释放其会话及线程池
+     */
+    @SuppressWarnings("unchecked")
+    private <M> void tune(String component, String provider, Factory factory, ReadableConfig configuration,
+                          Function<ReadableConfig, M> modelFactory, BiConsumer<M, String> request,
+                          List<String> texts, List<Result> results) {
+        Optional<ConfigOption<Integer>> threadsOption = factory.optionalOptions().stream()
+                .filter(option -> INTRA_OP_THREADS_KEY.equals(option.key()))
+                .map(option -> (ConfigOption<Integer>) option)
+                .findFirst();
+        if (threadsOption.isEmpty()) {
+            log.info("The {} provider '{}' does not support thread tuning, skipped", component, provider);
+            return;
+        }
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(SHARED_POOL_THREADS);
+        candidates.addAll(candidateThreads());
+        for (int threads : candidates) {
+            Map<String, Object> configs = new HashMap<>(configuration.toMap());
+            configs.remove(INTRA_OP_THREADS_KEY);
+            Configuration config = Configuration.fromMap(configs);
+            if (threads != SHARED_POOL_THREADS) {
+                config.set(threadsOption.get(), threads);
+            }
+            M model = modelFactory.apply(config);
+            double latencyMillis;
+            try {
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    texts.forEach(text -> request.accept(model, text));
+                }
+                long start = System.nanoTime();
+                texts.forEach(text -> request.accept(model, text));
+                latencyMillis = (System.nanoTime() - start) / 1_000_000.0 / texts.size();
+            } finally {
+                close(model);
+            }
+            log.info("Tuned the {} provider '{}': {} threads, {} ms", component, provider, threads, latencyMillis);
+            results.add(new Result(component, provider, threads, latencyMillis));
+        }
+    }
+
+    private static void close(Object model) {
+        if (model instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close the tuned model: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static List<Integer> candidateThreads() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        Set<Integer> threads = new TreeSet<>();
+        for (int n = 1; n < processors; n *= 2) {
+            threads.add(n);
+        }
+        threads.add(processors);
+        return new ArrayList<>(threads);
+    }
+
+    /**
+     * 流式读取训练数据，取够样本数即停止，不解析整个文件
+     */
+    private List<String> sampleTexts() {
+        List<String> texts = new ArrayList<>();
+        Path modelsPath = projectPath.resolve(ProjectUtil.MODELS_DIR_NAME);
+        for (Path csvFile : ProjectUtil.scanCsvFiles(modelsPath)) {
+            try (CsvTextLabelReader reader = new CsvTextLabelReader(csvFile, modelsPath)) {
+                while (reader.hasNext() && texts.size() < SAMPLE_SIZE) {
+                    texts.add(reader.next().getText());
+                }
+            }
+            if (texts.size() >= SAMPLE_SIZE) {
+                break;
+            }
+        }
+        return texts;
+    }
+}
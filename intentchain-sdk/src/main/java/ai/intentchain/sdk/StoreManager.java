@@ -2,92 +2,506 @@ package ai.intentchain.sdk;
 
 import ai.intentchain.core.chain.CascadeIntentChain;
 import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.classifiers.data.TrainingBatch;
+import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.sdk.data.FileChanges;
 import ai.intentchain.sdk.data.FileState;
 import ai.intentchain.sdk.data.project.Project;
+import ai.intentchain.sdk.utils.CsvTextLabelReader;
 import ai.intentchain.sdk.utils.ProjectUtil;
 import ai.intentchain.sdk.utils.TimeUtil;
+import com.google.common.util.concurrent.RateLimiter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * 增量构建向量存储
+ * <p>
+ * 新增及修改的文件按三段流水线处理，各段之间通过有界队列衔接以形成背压：
+ * <ol>
+ *     <li>解析：按文件顺序流式读取 CSV，切分为固定大小的批次（允许跨文件）</li>
+ *     <li>准备：多个线程并发向量化，受并发数与速率限制约束</li>
+ *     <li>写入：单线程按批写入向量存储并记录每个文件的向量 id</li>
+ * </ol>
+ * 构建状态记录每行的内容哈希，修改过的文件按行比较，未变化的行沿用原有向量，不再重新向量化。
+ * 构建过程中定期保存检查点，失败或中断后再次构建只处理未完成的文件。
+ */
 @Slf4j
-class StoreManager {
+class StoreManager implements AutoCloseable {
+
     private final Project project;
     private final CascadeIntentChain intentChain;
     private final String stateId;
     private final BuildStateManager stateManager;
+    private final Path modelsPath;
+
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(10);
+
+    private final int batchSize;
+    private final int concurrency;
+    private final double rateLimit;
 
     public StoreManager(Project project, Path projectPath, String stateId) {
         this.project = project;
         this.intentChain = ProjectUtil.createIntentChain(project, projectPath);
         this.stateId = stateId;
         this.stateManager = new BuildStateManager(projectPath);
+        this.modelsPath = projectPath.resolve(ProjectUtil.MODELS_DIR_NAME);
+
+        ReadableConfig config = project.getConfiguration();
+        this.batchSize = config.get(ProjectUtil.BUILD_BATCH_SIZE);
+        this.concurrency = config.get(ProjectUtil.BUILD_CONCURRENCY);
+        this.rateLimit = config.get(ProjectUtil.BUILD_RATE_LIMIT);
+    }
+
+    /**
+     * 清空各分类器的向量存储，强制重建时在写入前调用，避免残留已不在训练数据中的向量
+     */
+    public void clearStore() {
+        log.info("Clear the embedding stores of classifiers {}", intentChain.trainerKeys());
+        try {
+            intentChain.clear();
+        } catch (UnsupportedOperationException e) {
+            log.warn("The embedding store does not support clearing, the existing vectors are kept: {}",
+                    e.getMessage());
+        }
     }
 
     public void updateStore(@NonNull List<FileState> fileStates, @NonNull FileChanges changes) {
         Instant start = Instant.now();
-        AtomicBoolean isCompleted = new AtomicBoolean(false);
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(() -> {
-            if (!isCompleted.get()) System.out.print("█");
-        }, 0, 3, TimeUnit.SECONDS); // Print the progress bar every 3 seconds
+        AtomicLong processedRows = new AtomicLong();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        progress.scheduleAtFixedRate(() -> printProgress(processedRows.get(), start),
+                1, 1, TimeUnit.SECONDS);
+        Checkpoint checkpoint = null;
         try {
             Map<String, FileState> oldFileStates = fileStates.stream()
                     .collect(Collectors.toMap(FileState::getRelativePath, f -> f));
-            List<FileState> newFileStates = new ArrayList<>(changes.unchangedFiles());
-            Map<String, List<TextLabel>> trainingDataMap = ChangeTrainingDataCacheUtil.remove(project.getName());
-            changes.deletedFiles().forEach(fs -> remove(oldFileStates, fs));
-            changes.newFiles().forEach(fs -> add(newFileStates, fs, trainingDataMap));
-            changes.modifiedFiles().forEach(fs -> {
-                remove(oldFileStates, fs);
-                add(newFileStates, fs, trainingDataMap);
-            });
-            stateManager.saveBuildState(stateId, newFileStates);
+            Set<String> trainerKeys = intentChain.trainerKeys();
+            List<FileState> newFileStates = new ArrayList<>();
+
+            // 未变化的文件只补建缺失的分类器（新增或配置变化后指纹改变），其余分类器的存储不受影响
+            Map<Set<String>, List<FileBuild>> fills = new LinkedHashMap<>();
+            for (FileState fileState : changes.unchangedFiles()) {
+                Set<String> missingKeys = trainerKeys.stream()
+                        .filter(key -> !fileState.vectorIdKeys().contains(key))
+                        .collect(Collectors.toCollection(TreeSet::new));
+                if (fileState.vectorIdKeys().equals(trainerKeys)) {
+                    // 分类器未变化，沿用原状态，保存时直接复制其数据分段而无需解码
+                    newFileStates.add(fileState);
+                    continue;
+                }
+                FileBuild build = new FileBuild(fileState, true);
+                if (missingKeys.isEmpty()) {
+                    newFileStates.add(build.toFileState(trainerKeys));
+                } else {
+                    fills.computeIfAbsent(missingKeys, k -> new ArrayList<>()).add(build);
+                }
+            }
+
+            List<FileBuild> builds = new ArrayList<>();
+            changes.newFiles().forEach(fs -> builds.add(new FileBuild(fs, false)));
+
+            // 已删除的文件删除全部旧向量；已修改的文件按行比较，只删除已删除的行
+            Map<String, List<String>> removedIds = new HashMap<>();
+            changes.deletedFiles().forEach(fs -> collectRemoved(removedIds, oldFileStates, fs));
+            for (FileState fileState : changes.modifiedFiles()) {
+                FileBuild build = new FileBuild(fileState, false);
+                if (!diffRows(oldFileStates.get(fileState.getRelativePath()), build, trainerKeys, removedIds)) {
+                    collectRemoved(removedIds, oldFileStates, fileState);
+                }
+                builds.add(build);
+            }
+            // 合并删除，减少存储的往返次数
+            if (!removedIds.isEmpty()) {
+                // 相同文本的向量 id 相同，仍被保留的行引用的 id 不能删除
+                Map<String, Set<String>> retainedIds = new HashMap<>();
+                changes.unchangedFiles().forEach(fs -> retain(retainedIds, fs.getVectorIds()));
+                builds.forEach(build -> build.vectorIds.forEach((key, ids) ->
+                        retainedIds.computeIfAbsent(key, k -> new HashSet<>()).addAll(ids.values())));
+                removedIds.forEach((key, ids) -> ids.removeAll(retainedIds.getOrDefault(key, Set.of())));
+                removedIds.values().removeIf(List::isEmpty);
+                if (!removedIds.isEmpty()) {
+                    intentChain.remove(removedIds);
+                }
+            }
+
+            List<FileBuild> allBuilds = new ArrayList<>(builds);
+            fills.values().forEach(allBuilds::addAll);
+            checkpoint = new Checkpoint(newFileStates, allBuilds, trainerKeys);
+            // 删除已完成，先记录一次，中断后不会重复比较已删除的行
+            checkpoint.save(true);
+
+            train(builds, trainerKeys, processedRows, checkpoint);
+            for (Map.Entry<Set<String>, List<FileBuild>> fill : fills.entrySet()) {
+                log.info("Fill the stores of classifiers {} with {} unchanged files",
+                        fill.getKey(), fill.getValue().size());
+                train(fill.getValue(), fill.getKey(), processedRows, checkpoint);
+            }
+            checkpoint.save(true);
+            // 全部写入完成后构建推迟的索引，只在构建成功的进程中执行一次
+            intentChain.finishTraining();
         } catch (Exception e) {
-            isCompleted.set(true);
-            scheduler.shutdown();
+            // 保存已完成的进度，下次构建从中断处继续
+            if (checkpoint != null) {
+                try {
+                    checkpoint.save(true);
+                } catch (Exception ex) {
+                    log.warn("Failed to save the build checkpoint: {}", ex.getMessage());
+                }
+            }
             throw new RuntimeException("Update store failed", e);
         } finally {
-            isCompleted.set(true);
-            scheduler.shutdown();
+            progress.shutdownNow();
         }
+        printProgress(processedRows.get(), start);
         Duration duration = Duration.between(start, Instant.now());
         String formattedDuration = TimeUtil.formatDuration(duration.toMillis());
         System.out.println("\t[ " + formattedDuration + " ]");
     }
 
-    private void add(List<FileState> newFileStates, FileState fileState,
-                     Map<String, List<TextLabel>> trainingDataMap) {
-        String relativePath = fileState.getRelativePath();
-        FileState.FileStateBuilder builder = FileState.builder()
-                .relativePath(fileState.getRelativePath())
-                .lastModified(fileState.getLastModified())
-                .md5Hash(fileState.getMd5Hash());
-        if (trainingDataMap.containsKey(relativePath)) {
-            List<TextLabel> trainingData = trainingDataMap.get(relativePath);
-            builder.vectorIds(intentChain.train(trainingData));
-        }
-        newFileStates.add(builder.build());
+    private void collectRemoved(Map<String, List<String>> removedIds,
+                                Map<String, FileState> oldFileStates, FileState fileState) {
+        FileState oldFileState = oldFileStates.get(fileState.getRelativePath());
+        if (oldFileState == null || oldFileState.getVectorIds() == null) {
+            return;
+        }
+        oldFileState.getVectorIds().forEach((key, ids) ->
+                removedIds.computeIfAbsent(key, k -> new ArrayList<>()).addAll(ids));
     }
 
-    private void remove(Map<String, FileState> oldFileStates, FileState fileState) {
-        String relativePath = fileState.getRelativePath();
-        if (!oldFileStates.containsKey(relativePath)) {
+    private static void retain(Map<String, Set<String>> retainedIds, Map<String, List<String>> vectorIds) {
+        if (vectorIds != null) {
+            vectorIds.forEach((key, ids) -> retainedIds.computeIfAbsent(key, k -> new HashSet<>()).addAll(ids));
+        }
+    }
+
+    /**
+     * 按行内容哈希比较修改前后的文件：未变化的行沿用旧的向量 id，只有新增的行需要训练，
+     * 已删除行的向量 id 加入 removedIds。旧的构建状态没有行哈希时返回 false，由调用方整体替换该文件。
+     */
+    private boolean diffRows(FileState oldFileState, FileBuild build, Set<String> trainerKeys,
+                             Map<String, List<String>> removedIds) {
+        if (oldFileState == null || oldFileState.getRowHashes() == null || oldFileState.getVectorIds() == null) {
+            return false;
+        }
+        List<String> oldRowHashes = oldFileState.getRowHashes();
+        // 只比较当前的分类器，有分类器缺少旧向量时整体重建该文件
+        Map<String, List<String>> oldVectorIds = new HashMap<>();
+        for (String key : trainerKeys) {
+            List<String> ids = oldFileState.getVectorIds().get(key);
+            if (ids == null || ids.size() != oldRowHashes.size()) {
+                return false;
+            }
+            oldVectorIds.put(key, ids);
+        }
+
+        // 行哈希 -> 旧文件中的行号，重复的行按出现顺序依次匹配
+        Map<String, Deque<Integer>> oldRows = new HashMap<>();
+        for (int i = 0; i < oldRowHashes.size(); i++) {
+            oldRows.computeIfAbsent(oldRowHashes.get(i), k -> new ArrayDeque<>()).add(i);
+        }
+        List<String> rowHashes = new ArrayList<>();
+        Path filePath = modelsPath.resolve(build.fileState.getRelativePath());
+        try (CsvTextLabelReader reader = new CsvTextLabelReader(filePath, modelsPath)) {
+            while (reader.hasNext()) {
+                int row = rowHashes.size();
+                String rowHash = rowHash(reader.next());
+                rowHashes.add(rowHash);
+                Deque<Integer> rows = oldRows.get(rowHash);
+                if (rows != null && !rows.isEmpty()) {
+                    int oldRow = rows.poll();
+                    build.keptRows.set(row);
+                    oldVectorIds.forEach((key, ids) -> build.ids(key).put(row, ids.get(oldRow)));
+                }
+            }
+        }
+        int removed = 0;
+        for (Deque<Integer> rows : oldRows.values()) {
+            for (int oldRow : rows) {
+                oldVectorIds.forEach((key, ids) ->
+                        removedIds.computeIfAbsent(key, k -> new ArrayList<>()).add(ids.get(oldRow)));
+                removed++;
+            }
+        }
+        build.rowHashes = rowHashes;
+        log.info("The {} CSV file has {} unchanged rows, {} added rows and {} removed rows",
+                build.fileState.getRelativePath(), build.keptRows.cardinality(),
+                rowHashes.size() - build.keptRows.cardinality(), removed);
+        return true;
+    }
+
+    private static String rowHash(TextLabel textLabel) {
+        return DigestUtils.md5Hex(textLabel.getText() + '\u0000' + textLabel.getLabel());
+    }
+
+    /**
+     * 流水线训练指定的分类器，训练得到的向量 id 按行号记录到各文件的 {@link FileBuild} 中
+     */
+    private void train(List<FileBuild> builds, Set<String> keys, AtomicLong processedRows,
+                       Checkpoint checkpoint) throws InterruptedException, IOException {
+        // 没有训练数据的文件也记录各分类器，表示已构建
+        builds.forEach(build -> keys.forEach(build::ids));
+        if (builds.isEmpty() || keys.isEmpty()) {
             return;
         }
-        FileState oldFileState = oldFileStates.get(relativePath);
-        intentChain.remove(oldFileState.getVectorIds());
+
+        BlockingQueue<ParsedBatch> parsedQueue = new ArrayBlockingQueue<>(concurrency * 2);
+        BlockingQueue<PreparedBatch> preparedQueue = new ArrayBlockingQueue<>(concurrency * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        RateLimiter rateLimiter = rateLimit > 0 ? RateLimiter.create(rateLimit) : null;
+        CountDownLatch preparers = new CountDownLatch(concurrency);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency + 1, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "build-pipeline-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            // 解析阶段，逐行流式读取 CSV 文件，内存中只保留在途的批次；未变化的行直接跳过
+            executor.execute(() -> {
+                try {
+                    List<RowRef> rows = new ArrayList<>(batchSize);
+                    List<TextLabel> textLabels = new ArrayList<>(batchSize);
+                    for (FileBuild build : builds) {
+                        boolean hashed = build.rowHashes != null;
+                        List<String> rowHashes = hashed ? build.rowHashes : new ArrayList<>();
+                        Path filePath = modelsPath.resolve(build.fileState.getRelativePath());
+                        try (CsvTextLabelReader reader = new CsvTextLabelReader(filePath, modelsPath)) {
+                            for (int row = 0; reader.hasNext(); row++) {
+                                TextLabel textLabel = reader.next();
+                                if (!hashed) {
+                                    rowHashes.add(rowHash(textLabel));
+                                }
+                                if (build.keptRows.get(row)) {
+                                    continue;
+                                }
+                                rows.add(new RowRef(build, row));
+                                textLabels.add(textLabel);
+                                build.queuedRows.incrementAndGet();
+                                if (textLabels.size() == batchSize) {
+                                    parsedQueue.put(new ParsedBatch(rows, textLabels));
+                                    rows = new ArrayList<>(batchSize);
+                                    textLabels = new ArrayList<>(batchSize);
+                                }
+                            }
+                        }
+                        build.rowHashes = rowHashes;
+                        build.parsed = true;
+                    }
+                    if (!textLabels.isEmpty()) {
+                        parsedQueue.put(new ParsedBatch(rows, textLabels));
+                    }
+                    for (int i = 0; i < concurrency; i++) {
+                        parsedQueue.put(ParsedBatch.END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            // 准备（向量化）阶段
+            for (int i = 0; i < concurrency; i++) {
+                executor.execute(() -> {
+                    try {
+                        while (true) {
+                            ParsedBatch batch = parsedQueue.take();
+                            if (batch == ParsedBatch.END) {
+                                break;
+                            }
+                            if (rateLimiter != null) {
+                                rateLimiter.acquire();
+                            }
+                            preparedQueue.put(new PreparedBatch(batch.rows(), intentChain.prepare(batch.textLabels(), keys)));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        preparers.countDown();
+                    }
+                });
+            }
+
+            // 写入阶段，在当前线程执行；批次可能乱序到达，向量 id 按行号记录
+            while (true) {
+                PreparedBatch batch = preparedQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) {
+                    throw new RuntimeException("Build pipeline failed", failure.get());
+                }
+                if (batch == null) {
+                    if (preparers.getCount() == 0 && preparedQueue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                // 写入前先记录 id，写入失败时检查点也能覆盖写入了一部分的数据
+                batch.batches().forEach((key, trainingBatch) -> {
+                    List<String> ids = trainingBatch.ids();
+                    for (int i = 0; i < ids.size(); i++) {
+                        RowRef row = batch.rows().get(i);
+                        row.build().ids(key).put(row.row(), ids.get(i));
+                    }
+                });
+                intentChain.write(batch.batches());
+                batch.rows().forEach(row -> row.build().writtenRows++);
+                processedRows.addAndGet(batch.rows().size());
+                checkpoint.save(false);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void printProgress(long rows, Instant start) {
+        double seconds = Math.max(Duration.between(start, Instant.now()).toMillis(), 1) / 1000.0;
+        System.out.printf("\r%d rows, %.1f rows/s", rows, rows / seconds);
+        System.out.flush();
+    }
+
+    /**
+     * 单个文件的构建过程：行哈希、需跳过训练的行，以及 Map&lt;训练器, Map&lt;行号, 向量 id&gt;&gt;；
+     * 补建分类器时沿用文件原有的状态，只追加新训练的分类器
+     */
+    private static class FileBuild {
+        private final FileState fileState;
+        private final boolean fill;
+        private final BitSet keptRows = new BitSet();
+        private final Map<String, TreeMap<Integer, String>> vectorIds = new HashMap<>();
+        private List<String> rowHashes;
+        // 解析线程写入：需要训练的行数，以及是否已读完文件
+        private final AtomicInteger queuedRows = new AtomicInteger();
+        private volatile boolean parsed;
+        // 写入线程写入：已写入存储的行数
+        private int writtenRows;
+
+        FileBuild(FileState fileState, boolean fill) {
+            this.fileState = fileState;
+            this.fill = fill;
+            this.rowHashes = fill ? fileState.getRowHashes() : null;
+        }
+
+        TreeMap<Integer, String> ids(String key) {
+            return vectorIds.computeIfAbsent(key, k -> new TreeMap<>());
+        }
+
+        boolean isComplete() {
+            return parsed && writtenRows == queuedRows.get();
+        }
+
+        /**
+         * 检查点中的文件状态：未完成的文件记录已写入存储的全部向量 id，并清空哈希与修改时间，
+         * 下次构建时被视为已修改的文件，先删除这些向量（包括本次写入了一部分的数据）再整体重建；
+         * 尚未开始补建的文件保持原状态
+         */
+        FileState toCheckpointState(Set<String> trainerKeys) {
+            if (isComplete()) {
+                return toFileState(trainerKeys);
+            }
+            Map<String, List<String>> ids = new HashMap<>();
+            if (fill && fileState.getVectorIds() != null) {
+                fileState.getVectorIds().forEach((key, value) -> {
+                    if (trainerKeys.contains(key)) {
+                        ids.put(key, value);
+                    }
+                });
+                if (writtenRows == 0) {
+                    return fileState.toBuilder()
+                            .vectorIds(ids)
+                            .build();
+                }
+            }
+            vectorIds.forEach((key, value) -> {
+                List<String> merged = new ArrayList<>(ids.getOrDefault(key, List.of()));
+                merged.addAll(value.values());
+                ids.put(key, merged);
+            });
+            return FileState.builder()
+                    .relativePath(fileState.getRelativePath())
+                    .lastModified(0L)
+                    .vectorIds(ids)
+                    .build();
+        }
+
+        /**
+         * 生成新的文件状态，只保留当前分类器的向量 id
+         */
+        FileState toFileState(Set<String> trainerKeys) {
+            Map<String, List<String>> ids = new HashMap<>();
+            if (fill && fileState.getVectorIds() != null) {
+                fileState.getVectorIds().forEach((key, value) -> {
+                    if (trainerKeys.contains(key)) {
+                        ids.put(key, value);
+                    }
+                });
+            }
+            vectorIds.forEach((key, value) -> ids.put(key, new ArrayList<>(value.values())));
+            return fileState.toBuilder()
+                    // 补建时行哈希须与原有分类器的向量 id 对齐，沿用原状态
+                    .rowHashes(fill ? fileState.getRowHashes() : rowHashes)
+                    .vectorIds(ids)
+                    .build();
+        }
+    }
+
+    /**
+     * 构建检查点，按时间间隔保存已完成的进度，状态文件以原子替换的方式写入
+     */
+    private class Checkpoint {
+        private final List<FileState> completedStates;
+        private final List<FileBuild> builds;
+        private final Set<String> trainerKeys;
+        private long lastSaved = System.nanoTime();
+
+        Checkpoint(List<FileState> completedStates, List<FileBuild> builds, Set<String> trainerKeys) {
+            this.completedStates = completedStates;
+            this.builds = builds;
+            this.trainerKeys = trainerKeys;
+        }
+
+        void save(boolean force) throws IOException {
+            if (!force && System.nanoTime() - lastSaved < CHECKPOINT_INTERVAL.toNanos()) {
+                return;
+            }
+            List<FileState> states = new ArrayList<>(completedStates);
+            builds.forEach(build -> states.add(build.toCheckpointState(trainerKeys)));
+            stateManager.saveBuildState(stateId, states);
+            lastSaved = System.nanoTime();
+        }
+    }
+
+    private record RowRef(FileBuild build, int row) {
+    }
+
+    private record ParsedBatch(List<RowRef> rows, List<TextLabel> textLabels) {
+        static final ParsedBatch END = new ParsedBatch(List.of(), List.of());
+    }
+
+    private record PreparedBatch(List<RowRef> rows, Map<String, TrainingBatch> batches) {
+    }
+
+    @Override
+    public void close() {
+        // 关闭存储，使其完成延迟的收尾工作（如批量导入后的索引构建）
+        intentChain.close();
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,16 @@
 package ai.intentchain.sdk.data;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -27,13 +26,61 @@ public class FileState {
     private long lastModified;
 
     /**
-     * 文件的MD5哈希值
+     * 文件大小（字节）
+     */
+    private long size;
+
+    /**
+     * 文件内容哈希值（MurmurHash3 128 位）
+     */
+    private String contentHash;
+
+    /**
+     * 文件的MD5哈希值，旧版本的构建状态使用，仅用于兼容比较
      */
     private String md5Hash;
 
     /**
-     * 向量存储ID列表
+     * 每行训练数据的内容哈希值，按文件中的行顺序排列
+     */
+    private List<String> rowHashes;
+
+    /**
+     * 向量存储ID列表，与 rowHashes 按下标一一对应
      */
     @JsonProperty("vectorIds")
     private Map<String, List<String>> vectorIds = Map.of();
+
+    /**
+     * 二进制构建状态中尚未解码的行哈希与向量 id
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private FileStateSection section;
+
+    public List<String> getRowHashes() {
+        return rowHashes == null && section != null ? section.rowHashes() : rowHashes;
+    }
+
+    public Map<String, List<String>> getVectorIds() {
+        return vectorIds == null && section != null ? section.vectorIds() : vectorIds;
+    }
+
+    /**
+     * 已构建的分类器，延迟加载时不解码向量 id
+     */
+    public Set<String> vectorIdKeys() {
+        if (vectorIds == null && section != null) {
+            return section.vectorIdKeys();
+        }
+        return vectorIds == null ? Set.of() : vectorIds.keySet();
+    }
+
+    /**
+     * 行哈希与向量 id 均未被替换时返回原数据分段，保存时可以原样复制
+     */
+    public FileStateSection untouchedSection() {
+        return rowHashes == null && vectorIds == null ? section : null;
+    }
 }
\ No newline at end of file
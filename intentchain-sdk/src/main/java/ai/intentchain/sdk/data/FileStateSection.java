@@ -0,0 +1,20 @@
+package ai.intentchain.sdk.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 延迟加载的文件状态数据分段，读取行哈希或向量 id 时才从构建状态文件中解码
+ */
+public interface FileStateSection {
+
+    /**
+     * 已构建的分类器，记录在索引中，读取时不需要解码数据分段
+     */
+    Set<String> vectorIdKeys();
+
+    List<String> rowHashes();
+
+    Map<String, List<String>> vectorIds();
+}
@@ -23,6 +23,45 @@ public class EmbeddingStoreConfig {
                     .stringType()
                     .noDefaultValue();
 
+    public static final String HNSW_PROVIDER = "hnsw";
+
+    public static final ConfigOption<String> HNSW_DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue();
+
+    public static final String QUANTIZED_PROVIDER = "quantized";
+
+    public static final ConfigOption<String> QUANTIZED_DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue();
+
+    public static final String FLAT_PROVIDER = "flat";
+
+    public static final ConfigOption<String> FLAT_DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue();
+
+    public static final String IVF_PROVIDER = "ivf";
+
+    public static final ConfigOption<String> IVF_DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue();
+
+    /**
+     * 本地存储的路径配置项，项目模式下未配置时默认存放在 .intentchain 目录下
+     */
+    public static final Map<String, ConfigOption<String>> LOCAL_PATH_OPTIONS = Map.of(
+            DUCKDB_PROVIDER, DUCKDB_FILE_PATH,
+            HNSW_PROVIDER, HNSW_DIRECTORY,
+            QUANTIZED_PROVIDER, QUANTIZED_DIRECTORY,
+            FLAT_PROVIDER, FLAT_DIRECTORY,
+            IVF_PROVIDER, IVF_DIRECTORY
+    );
+
     public static final String DEFAULT_PROVIDER = DUCKDB_PROVIDER;
 
     @NonNull
@@ -0,0 +1,75 @@
+package ai.intentchain.sdk.utils;
+
+import ai.intentchain.core.classifiers.data.TextLabel;
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式读取训练数据 CSV 文件
+ * <p>
+ * 每次只解析一行，内存占用与文件大小无关；文件格式与 {@link ProjectUtil#loadTextLabels(Path, Path)} 一致：
+ * 不使用表头，每行两列，分别为文本和标签。文件按平台默认字符集解码，与原先基于 FileReader 的读取方式一致。
+ */
+public class CsvTextLabelReader implements Iterator<TextLabel>, AutoCloseable {
+
+    private final String relativePath;
+    private final CSVParser csvParser;
+    private final Iterator<CSVRecord> records;
+    private int line = 0;
+
+    public CsvTextLabelReader(@NonNull Path filePath, @NonNull Path dirPath) {
+        this.relativePath = dirPath.relativize(filePath).toString();
+        try {
+            this.csvParser = CSVParser.parse(new MappedFileReader(filePath, Charset.defaultCharset()),
+                    CSVFormat.DEFAULT);  // 不使用表头
+        } catch (IOException e) {
+            throw new RuntimeException("The " + relativePath
+                                       + " CSV file content read failed: \n" + e.getMessage(), e);
+        }
+        this.records = csvParser.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return records.hasNext();
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("The " + relativePath
+                                       + " CSV file content read failed: \n" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public TextLabel next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CSVRecord record = records.next();
+        line++;
+        Preconditions.checkArgument(record.size() == 2,
+                "The data format in line " + line + " of the "
+                + relativePath + " CSV file is incorrect");
+        String text = record.get(0).trim();
+        String label = record.get(1).trim();
+        return new TextLabel(text, label);
+    }
+
+    @Override
+    public void close() {
+        try {
+            csvParser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,28 +1,66 @@
 package ai.intentchain.sdk.utils;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 public class FileUtil {
 
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
     private FileUtil() {
     }
 
     public static String md5(@NonNull Path filePath) {
-        try {
-            byte[] fileBytes = Files.readAllBytes(filePath);
-            return DigestUtils.md5Hex(fileBytes);
+        try (InputStream inputStream = Files.newInputStream(filePath)) {
+            return DigestUtils.md5Hex(inputStream);
         } catch (IOException e) {
             throw new RuntimeException("The read " + filePath + " file md5 hash failed", e);
         }
     }
 
+    /**
+     * 文件内容哈希（MurmurHash3 128 位），流式读取，不会将整个文件读入内存
+     */
+    public static String contentHash(@NonNull Path filePath) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                hasher.putBytes(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("The read " + filePath + " file content hash failed", e);
+        }
+        return hasher.hash().toString();
+    }
+
+    public static BasicFileAttributes attributes(@NonNull Path filePath) {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new RuntimeException("The read " + filePath + " file attributes failed", e);
+        }
+    }
+
     public static long lastModified(@NonNull Path filePath) {
         try {
             return Files.getLastModifiedTime(filePath).toMillis();
@@ -39,4 +77,21 @@ public class FileUtil {
     public static boolean exists(@NonNull Path filePath) {
         return Files.exists(filePath) && Files.isRegularFile(filePath);
     }
-}
\ No newline at end of file
+
+    /**
+     * 删除文件，若为目录则递归删除其中的所有内容
+     */
+    public static void deleteRecursively(@NonNull Path path) throws IOException {
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(path)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path p : paths) {
+            Files.delete(p);
+        }
+    }
+}
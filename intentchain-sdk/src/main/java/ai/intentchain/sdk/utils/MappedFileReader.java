@@ -0,0 +1,115 @@
+package ai.intentchain.sdk.utils;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的文件读取器
+ * <p>
+ * 文件按固定大小的窗口逐段映射并解码，任意时刻只映射一个窗口，大文件不会整体读入堆内存；
+ * 跨窗口边界的多字节字符会在下一个窗口中重新解码。
+ * 读取缓冲只剩一个字符时先解码到暂存区，代理对的低位留到下次读取返回。
+ */
+public class MappedFileReader extends Reader {
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAX_BYTES_PER_CHAR = 8;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final CharsetDecoder decoder;
+    // 已解码但尚未返回的字符
+    private final CharBuffer pending = CharBuffer.allocate(2).flip();
+
+    private MappedByteBuffer window;
+    // 当前窗口在文件中的起始位置
+    private long windowStart;
+    private boolean endOfInput;
+    private boolean flushed;
+
+    public MappedFileReader(@NonNull Path path, @NonNull Charset charset) throws IOException {
+        this(path, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedFileReader(@NonNull Path path, @NonNull Charset charset, int windowSize) throws IOException {
+        if (windowSize < 16) {
+            throw new IllegalArgumentException("windowSize must be at least 16 bytes");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        drainPending(out);
+        while (out.hasRemaining() && !flushed) {
+            // 窗口读完，或剩余字节可能不足一个完整字符时，从当前位置重新映射
+            if (window == null || (!endOfInput && window.remaining() < MAX_BYTES_PER_CHAR)) {
+                if (!remap()) {
+                    flushed = true;
+                    break;
+                }
+            }
+            // 剩余空间容纳不下代理对时解码器无法前进，改为解码到暂存区
+            CharBuffer target = out.remaining() < 2 ? pending.clear() : out;
+            CoderResult result = decoder.decode(window, target, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput && !result.isOverflow()) {
+                decoder.flush(target);
+                flushed = true;
+            }
+            if (target == pending) {
+                pending.flip();
+                drainPending(out);
+            } else if (result.isOverflow()) {
+                break;
+            }
+        }
+        int read = out.position() - off;
+        return read == 0 && flushed ? -1 : read;
+    }
+
+    private void drainPending(CharBuffer out) {
+        while (out.hasRemaining() && pending.hasRemaining()) {
+            out.put(pending.get());
+        }
+    }
+
+    private boolean remap() throws IOException {
+        long position = window == null ? 0L : windowStart + window.position();
+        if (position >= size) {
+            return false;
+        }
+        long length = Math.min(windowSize, size - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        windowStart = position;
+        endOfInput = position + length >= size;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
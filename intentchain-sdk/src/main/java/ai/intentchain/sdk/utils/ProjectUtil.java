@@ -6,8 +6,12 @@ import ai.intentchain.core.classifiers.data.TextLabel;
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ConfigOptions;
 import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.embedding.CachedEmbeddingModel;
+import ai.intentchain.core.embedding.EmbeddingCache;
 import ai.intentchain.core.exception.ValidationException;
 import ai.intentchain.core.factories.*;
+import ai.intentchain.core.store.ReplicatedEmbeddingStore;
+import ai.intentchain.core.store.ShardedEmbeddingStore;
 import ai.intentchain.core.utils.FactoryUtil;
 import ai.intentchain.core.utils.JinjaTemplateUtil;
 import ai.intentchain.core.utils.YamlTemplateUtil;
@@ -27,9 +31,6 @@ import dev.langchain4j.store.embedding.EmbeddingStore;
 import lombok.Getter;
 import lombok.NonNull;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -53,6 +54,8 @@ public class ProjectUtil {
     public final static String DUCKDB_EMBEDDING_STORE_FILE_PREFIX = "embeddings_";
     public final static String MODELS_DIR_NAME = "models";
     public final static String INTENTCHAIN_DIR_NAME = ".intentchain";
+    public final static String REPLICA_DIRECTORY_SUFFIX = "_replica";
+    public final static String EMBEDDING_CACHE_DIR_NAME = "embedding_cache";
 
     private static final YAMLMapper YAML_MAPPER = new YAMLMapper();
     private static final JsonMapper JSON_MAPPER = new JsonMapper();
@@ -122,12 +125,49 @@ public class ProjectUtil {
                     .defaultValues("other")
                     .withDescription("List of intentions for self-learning exclusion");
 
+    public static final ConfigOption<Integer> BUILD_BATCH_SIZE =
+            ConfigOptions.key("build.batch-size")
+                    .intType()
+                    .defaultValue(64)
+                    .withDescription("The number of training rows embedded and written per batch during the build");
+
+    public static final ConfigOption<Integer> BUILD_CONCURRENCY =
+            ConfigOptions.key("build.concurrency")
+                    .intType()
+                    .defaultValue(4)
+                    .withDescription("The maximum number of batches embedded concurrently during the build");
+
+    public static final ConfigOption<Double> BUILD_RATE_LIMIT =
+            ConfigOptions.key("build.rate-limit")
+                    .doubleType()
+                    .defaultValue(0.0)
+                    .withDescription("The maximum number of batches embedded per second during the build, " +
+                                     "0 means unlimited");
+
+    public static final ConfigOption<Boolean> BUILD_TRUST_MTIME =
+            ConfigOptions.key("build.trust-mtime")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether CSV files whose size and last modified time are unchanged are treated " +
+                                     "as unchanged without hashing their content. Disabled by default, because an " +
+                                     "edit that keeps the size within the file system timestamp resolution would " +
+                                     "be missed");
+
+    public static final ConfigOption<Boolean> BUILD_EMBEDDING_CACHE =
+            ConfigOptions.key("build.embedding-cache")
+                    .booleanType()
+                    .defaultValue(true)
+                    .withDescription("Whether to cache training text embeddings on disk, keyed by the embedding model " +
+                                     "and text, so that rebuilds only re-write the stores instead of re-embedding");
+
     private static Set<ConfigOption<?>> requiredOptions() {
         return Collections.emptySet();
     }
 
     private static Set<ConfigOption<?>> optionalOptions() {
-        return new LinkedHashSet<>(List.of(SELF_LEARNING, SELF_LEARNING_THRESHOLD, SELF_LEARNING_EXCLUDES));
+        return new LinkedHashSet<>(List.of(SELF_LEARNING, SELF_LEARNING_THRESHOLD, SELF_LEARNING_EXCLUDES,
+                BUILD_BATCH_SIZE, BUILD_CONCURRENCY, BUILD_RATE_LIMIT, BUILD_TRUST_MTIME,
+                BUILD_EMBEDDING_CACHE));
     }
 
     public static Set<ConfigOption<?>> fingerprintOptions() {
@@ -263,6 +303,12 @@ public class ProjectUtil {
         Double selfLearningThreshold = config.get(SELF_LEARNING_THRESHOLD);
         Preconditions.checkArgument(selfLearningThreshold >= 0.0 && selfLearningThreshold <= 1.0,
                 "'" + SELF_LEARNING_THRESHOLD.key() + "' value must be between 0.0 and 1.0");
+        Preconditions.checkArgument(config.get(BUILD_BATCH_SIZE) > 0,
+                "'" + BUILD_BATCH_SIZE.key() + "' value must be greater than 0");
+        Preconditions.checkArgument(config.get(BUILD_CONCURRENCY) > 0,
+                "'" + BUILD_CONCURRENCY.key() + "' value must be greater than 0");
+        Preconditions.checkArgument(config.get(BUILD_RATE_LIMIT) >= 0.0,
+                "'" + BUILD_RATE_LIMIT.key() + "' value must be greater than or equal to 0.0");
     }
 
     public static LinkedHashMap<String, IntentClassifier> createClassifiers(@NonNull Project project,
@@ -279,6 +325,12 @@ public class ProjectUtil {
                     embeddingConfig.getProvider(),
                     embeddingConfig.getConfiguration()
             );
+            if (project.getConfiguration().get(BUILD_EMBEDDING_CACHE)) {
+                // 缓存按向量模型指纹隔离，与项目名称、分类器及存储配置无关，可在多次构建间共享
+                Path cachePath = projectPath.resolve(INTENTCHAIN_DIR_NAME).resolve(EMBEDDING_CACHE_DIR_NAME)
+                        .resolve(embeddingFingerprint(embeddingConfig));
+                embeddingModel = new CachedEmbeddingModel(embeddingModel, new EmbeddingCache(cachePath));
+            }
         }
 
         ScoringModel scoringModel = null;
@@ -327,6 +379,23 @@ public class ProjectUtil {
         return classifiers;
     }
 
+    /**
+     * 使用向量存储的分类器指纹，构建状态按这些指纹分别记录各分类器的向量 id
+     */
+    public static Set<String> storeClassifierFingerprints(@NonNull Project project) {
+        if (project.getEmbeddingStore() == null) {
+            return Collections.emptySet();
+        }
+        Map<String, ClassifierConfig> classifierConfigs = project.getClassifiers().stream()
+                .collect(Collectors.toMap(ClassifierConfig::getName, o -> o));
+        return project.getChain().stream()
+                .map(classifierConfigs::get)
+                .filter(Objects::nonNull)
+                .filter(c -> IntentClassifierFactoryManager.getFactory(c.getProvider()).useEmbeddingStore())
+                .map(c -> contentClassifierFingerprint(project, c))
+                .collect(Collectors.toSet());
+    }
+
     private static String contentClassifierFingerprint(@NonNull Project project,
                                                        ClassifierConfig classifierConfig) {
         try {
@@ -356,22 +425,52 @@ public class ProjectUtil {
 
     private static void adjustEmbeddingStoreConfig(@NonNull Project project, @NonNull Path projectPath) {
         EmbeddingStoreConfig embeddingStore = project.getEmbeddingStore();
-        if (EmbeddingStoreConfig.DUCKDB_PROVIDER.equals(embeddingStore.getProvider())
-            && embeddingStore.getConfiguration().getOptional(EmbeddingStoreConfig.DUCKDB_FILE_PATH).isEmpty()) {
-            Path datDirPath = projectPath.resolve(INTENTCHAIN_DIR_NAME);
-            if (!Files.exists(datDirPath)) {
-                try {
-                    Files.createDirectories(datDirPath);
-                } catch (IOException e) {
-                    throw new RuntimeException("The creation of the " + INTENTCHAIN_DIR_NAME
-                                               + " directory under the project root directory failed", e);
-                }
+        ReadableConfig configuration = embeddingStore.getConfiguration();
+        ConfigOption<String> pathOption = EmbeddingStoreConfig.LOCAL_PATH_OPTIONS.get(embeddingStore.getProvider());
+        boolean adjustPath = pathOption != null && configuration.getOptional(pathOption).isEmpty();
+        boolean adjustReplica = configuration.get(ReplicatedEmbeddingStore.REPLICA_ENABLED)
+                                && configuration.getOptional(ReplicatedEmbeddingStore.REPLICA_DIRECTORY).isEmpty();
+        if (!adjustPath && !adjustReplica) {
+            return;
+        }
+        Path datDirPath = projectPath.resolve(INTENTCHAIN_DIR_NAME);
+        if (!Files.exists(datDirPath)) {
+            try {
+                Files.createDirectories(datDirPath);
+            } catch (IOException e) {
+                throw new RuntimeException("The creation of the " + INTENTCHAIN_DIR_NAME
+                                           + " directory under the project root directory failed", e);
             }
-            String storeFileName = DUCKDB_EMBEDDING_STORE_FILE_PREFIX + storeFingerprint(project);
+        }
+        String storeFileName = DUCKDB_EMBEDDING_STORE_FILE_PREFIX + storeFingerprint(project);
+        // 保留其余配置项，仅补充存储路径
+        Map<String, Object> configs = new HashMap<>(configuration.toMap());
+        if (adjustPath) {
             Path filePath = projectPath.resolve(INTENTCHAIN_DIR_NAME + File.separator + storeFileName);
-            embeddingStore.setConfiguration(
-                    Map.of(EmbeddingStoreConfig.DUCKDB_FILE_PATH.key(), filePath.toAbsolutePath().toString())
+            configs.put(pathOption.key(), filePath.toAbsolutePath().toString());
+        }
+        if (adjustReplica) {
+            Path replicaPath = projectPath.resolve(INTENTCHAIN_DIR_NAME + File.separator
+                                                   + storeFileName + REPLICA_DIRECTORY_SUFFIX);
+            configs.put(ReplicatedEmbeddingStore.REPLICA_DIRECTORY.key(), replicaPath.toAbsolutePath().toString());
+        }
+        embeddingStore.setConfiguration(configs);
+    }
+
+    public static String embeddingFingerprint(@NonNull EmbeddingConfig embedding) {
+        EmbeddingModelFactory embeddingModelFactory = EmbeddingModelFactoryManager
+                .getFactory(embedding.getProvider());
+        Map<String, String> embeddingModelFingerprintConfigs = embeddingModelFactory
+                .fingerprintConfigs(embedding.getConfiguration());
+        try {
+            String configStr = String.format("embedding:provider=%s;" +
+                                             "embedding:configuration=%s;",
+                    embedding.getProvider(),
+                    JSON_MAPPER.writeValueAsString(embeddingModelFingerprintConfigs)
             );
+            return DigestUtils.md5Hex(configStr);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Calculate the embedding fingerprint failed", e);
         }
     }
 
@@ -405,6 +504,11 @@ public class ProjectUtil {
                         embeddingStore.getProvider(),
                         JSON_MAPPER.writeValueAsString(embeddingStoreFingerprintConfigs)
                 );
+                // 分片数决定向量的分布，调整后需要重新构建；单分片时保持原有指纹不变
+                int shardCount = embeddingStore.getConfiguration().get(ShardedEmbeddingStore.SHARD_COUNT);
+                if (shardCount > 1) {
+                    configStr += String.format("embeddingStore:shards=%d;", shardCount);
+                }
             }
             return DigestUtils.md5Hex(configStr);
         } catch (JsonProcessingException e) {
@@ -440,21 +544,8 @@ public class ProjectUtil {
 
     public static List<TextLabel> loadTextLabels(@NonNull Path filePath, @NonNull Path dirPath) {
         List<TextLabel> trainingData = new ArrayList<>();
-        try (Reader reader = new FileReader(filePath.toFile());
-             CSVParser csvParser = CSVParser.parse(reader, CSVFormat.DEFAULT)) {  // 不使用表头
-            int i = 0;
-            for (CSVRecord record : csvParser) {
-                Preconditions.checkArgument(record.size() == 2,
-                        "The data format in line " + (i + 1) + " of the "
-                        + dirPath.relativize(filePath) + " CSV file is incorrect");
-                String text = record.get(0).trim();
-                String label = record.get(1).trim();
-                trainingData.add(new TextLabel(text, label));
-                i++;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("The " + dirPath.relativize(filePath)
-                                       + " CSV file content read failed: \n" + e.getMessage(), e);
+        try (CsvTextLabelReader reader = new CsvTextLabelReader(filePath, dirPath)) {
+            reader.forEachRemaining(trainingData::add);
         }
         return trainingData;
     }
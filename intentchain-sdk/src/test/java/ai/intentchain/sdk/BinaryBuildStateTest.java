@@ -0,0 +1,131 @@
+package ai.intentchain.sdk;
+
+import ai.intentchain.sdk.data.FileState;
+import ai.intentchain.sdk.utils.ProjectUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 二进制构建状态的读写，以及旧版 JSON 构建状态的迁移
+ */
+class BinaryBuildStateTest {
+
+    private static final String HEX_1 = "0123456789abcdef0123456789abcdef";
+    private static final String HEX_2 = "fedcba9876543210fedcba9876543210";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        List<FileState> states = List.of(
+                FileState.builder()
+                        .relativePath("a.csv")
+                        .lastModified(1L)
+                        .size(2L)
+                        .contentHash("hash")
+                        .rowHashes(List.of(HEX_1, HEX_2))
+                        // 十六进制 id 按 16 字节存储，其余（含大写十六进制）按字符串存储
+                        .vectorIds(Map.of("k1", List.of(HEX_2, HEX_1),
+                                "k2", List.of("id-1", HEX_1.toUpperCase())))
+                        .build(),
+                FileState.builder()
+                        .relativePath("目录/b.csv")
+                        .md5Hash("md5")
+                        .vectorIds(Map.of())
+                        .build());
+        Path file = dir.resolve("state.bin");
+        BinaryBuildState.write(file, states);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<FileState> loaded = BinaryBuildState.read(channel);
+            assertEquals(Set.of("k1", "k2"), loaded.get(0).vectorIdKeys());
+            assertNull(loaded.get(1).getRowHashes());
+            assertEquals(states, loaded);
+        }
+    }
+
+    @Test
+    void untouchedSectionsAreCopied() throws IOException {
+        FileState state = FileState.builder()
+                .relativePath("a.csv")
+                .rowHashes(List.of(HEX_1))
+                .vectorIds(Map.of("k1", List.of("id-1")))
+                .build();
+        Path first = dir.resolve("first.bin");
+        Path second = dir.resolve("second.bin");
+        BinaryBuildState.write(first, List.of(state));
+
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ)) {
+            List<FileState> loaded = BinaryBuildState.read(channel);
+            FileState lazy = loaded.get(0);
+            assertNotNull(lazy.untouchedSection());
+            FileState modified = lazy.toBuilder()
+                    .relativePath("b.csv")
+                    .rowHashes(List.of(HEX_2))
+                    .vectorIds(Map.of("k2", List.of("id-2")))
+                    .build();
+            assertNull(modified.untouchedSection());
+            BinaryBuildState.write(second, List.of(lazy, modified));
+        }
+
+        try (FileChannel channel = FileChannel.open(second, StandardOpenOption.READ)) {
+            List<FileState> loaded = BinaryBuildState.read(channel);
+            assertEquals(state, loaded.get(0));
+            assertEquals(List.of(HEX_2), loaded.get(1).getRowHashes());
+            assertEquals(Map.of("k2", List.of("id-2")), loaded.get(1).getVectorIds());
+        }
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = dir.resolve("state.bin");
+        BinaryBuildState.write(file, List.of(FileState.builder().relativePath("a.csv").build()));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(IOException.class, () -> BinaryBuildState.read(channel));
+        }
+    }
+
+    @Test
+    void migratesJsonState() throws IOException {
+        List<FileState> states = List.of(FileState.builder()
+                .relativePath("a.csv")
+                .lastModified(1L)
+                .size(2L)
+                .contentHash("hash")
+                .rowHashes(List.of(HEX_1))
+                .vectorIds(Map.of("k1", List.of(HEX_2)))
+                .build());
+        Path icDir = Files.createDirectories(dir.resolve(ProjectUtil.INTENTCHAIN_DIR_NAME));
+        Path jsonFile = icDir.resolve("build_state_s1.json");
+        new ObjectMapper().writeValue(jsonFile.toFile(), states);
+
+        BuildStateManager manager = new BuildStateManager(dir);
+        assertEquals(states, manager.loadBuildState("s1"));
+        assertFalse(Files.exists(jsonFile));
+        assertTrue(Files.exists(icDir.resolve("build_state_s1.bin")));
+
+        // 再次加载读取二进制状态
+        try {
+            assertEquals(states, manager.loadBuildState("s1"));
+        } finally {
+            manager.releaseBuildStates();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ai.intentchain.sdk;
+
+import ai.intentchain.sdk.utils.ProjectUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ai.intentchain.sdk.RecordingIntentClassifierFactory.STORE;
+import static ai.intentchain.sdk.RecordingIntentClassifierFactory.WRITTEN;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量构建：按行比较修改的文件，以及中断后从检查点继续构建
+ */
+class ProjectBuilderTest {
+
+    private static final String PROJECT_YAML = """
+            name: store_test
+            configuration:
+              build.batch-size: 1
+              build.concurrency: 1
+            chain:
+              - recording
+            classifiers:
+              - name: recording
+                provider: recording
+            embedding_store:
+              provider: recording
+            """;
+
+    @TempDir
+    Path projectPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RecordingIntentClassifierFactory.reset();
+        Files.writeString(projectPath.resolve(ProjectUtil.PROJECT_CONFIG_FILE_NAME_YAML), PROJECT_YAML);
+        Files.createDirectories(projectPath.resolve(ProjectUtil.MODELS_DIR_NAME));
+    }
+
+    @Test
+    void modifiedFileOnlyTrainsAddedRows() throws IOException {
+        writeCsv("a.csv", "a", "b", "c");
+        build();
+        assertEquals(List.of("a", "b", "c"), List.copyOf(WRITTEN));
+        assertEquals(Set.of("a", "b", "c"), storedTexts());
+
+        // 删除 a，新增重复的 c 与 d：只训练新增的两行，并删除 a 的向量
+        WRITTEN.clear();
+        writeCsv("a.csv", "b", "c", "c", "d");
+        build();
+        assertEquals(List.of("c", "d"), List.copyOf(WRITTEN));
+        assertEquals(Set.of("b", "c", "d"), storedTexts());
+
+        // 删除重复的一行 c：另一行仍引用相同的向量 id，不能删除
+        WRITTEN.clear();
+        writeCsv("a.csv", "b", "c", "d");
+        build();
+        assertTrue(WRITTEN.isEmpty());
+        assertEquals(Set.of("b", "c", "d"), storedTexts());
+    }
+
+    @Test
+    void resumeRemovesPartiallyWrittenRows() throws IOException {
+        writeCsv("a.csv", "a", "b", "c", "d", "e");
+        RecordingIntentClassifierFactory.failOn = "d";
+        assertThrows(RuntimeException.class, this::build);
+        assertEquals(Set.of("a", "b", "c", "d"), storedTexts());
+
+        // 中断后删除写入了一部分的行，继续构建时检查点记录的向量全部被删除后重建
+        RecordingIntentClassifierFactory.failOn = null;
+        WRITTEN.clear();
+        writeCsv("a.csv", "a", "b", "c", "e");
+        build();
+        assertEquals(List.of("a", "b", "c", "e"), List.copyOf(WRITTEN));
+        assertEquals(Set.of("a", "b", "c", "e"), storedTexts());
+    }
+
+    @Test
+    void resumeSkipsCompletedFiles() throws IOException {
+        writeCsv("a.csv", "a", "b");
+        build();
+
+        writeCsv("b.csv", "c", "d", "e");
+        RecordingIntentClassifierFactory.failOn = "d";
+        assertThrows(RuntimeException.class, this::build);
+
+        RecordingIntentClassifierFactory.failOn = null;
+        WRITTEN.clear();
+        build();
+        assertEquals(List.of("c", "d", "e"), List.copyOf(WRITTEN));
+        assertEquals(Set.of("a", "b", "c", "d", "e"), storedTexts());
+
+        // 构建完成后不再有变化
+        WRITTEN.clear();
+        build();
+        assertTrue(WRITTEN.isEmpty());
+    }
+
+    private void build() throws IOException {
+        new ProjectBuilder(projectPath).build();
+    }
+
+    private void writeCsv(String fileName, String... texts) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String text : texts) {
+            content.append(text).append(",label_").append(text).append('\n');
+        }
+        Files.writeString(projectPath.resolve(ProjectUtil.MODELS_DIR_NAME).resolve(fileName), content);
+    }
+
+    private static Set<String> storedTexts() {
+        return new HashSet<>(STORE.values());
+    }
+}
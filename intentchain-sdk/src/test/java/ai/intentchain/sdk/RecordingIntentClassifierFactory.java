@@ -0,0 +1,145 @@
+package ai.intentchain.sdk;
+
+import ai.intentchain.core.classifiers.IntentClassifier;
+import ai.intentchain.core.classifiers.IntentTrainer;
+import ai.intentchain.core.classifiers.data.Intent;
+import ai.intentchain.core.classifiers.data.TextLabel;
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingStoreFactory;
+import ai.intentchain.core.factories.IntentClassifierFactory;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import lombok.NonNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 测试用的分类器工厂，训练数据记录在进程内的静态存储中，用于检查增量构建写入与删除的数据
+ */
+public class RecordingIntentClassifierFactory implements IntentClassifierFactory {
+
+    public static final String IDENTIFIER = "recording";
+
+    // 向量 id -> 文本
+    static final Map<String, String> STORE = new ConcurrentHashMap<>();
+    // 按写入顺序记录每次写入的文本
+    static final List<String> WRITTEN = Collections.synchronizedList(new ArrayList<>());
+    // 写入包含该文本的批次时，先写入存储再抛出异常，模拟写入了一部分的批次
+    static volatile String failOn;
+
+    static void reset() {
+        STORE.clear();
+        WRITTEN.clear();
+        failOn = null;
+    }
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String factoryDescription() {
+        return "Intent classifier recording the training data, for tests.";
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public boolean useEmbeddingStore() {
+        return true;
+    }
+
+    @Override
+    public IntentClassifier create(@NonNull String name,
+                                   @NonNull ReadableConfig config,
+                                   EmbeddingModel embeddingModel,
+                                   EmbeddingStore<TextSegment> embeddingStore,
+                                   ScoringModel scoringModel,
+                                   ChatModel chatModel) {
+        return new RecordingIntentClassifier(name);
+    }
+
+    private record RecordingIntentClassifier(String name) implements IntentClassifier, IntentTrainer {
+
+        @Override
+        public String classifierName() {
+            return name;
+        }
+
+        @Override
+        public List<Intent> classify(@NonNull String text) {
+            return List.of();
+        }
+
+        @Override
+        public List<String> train(@NonNull List<String> ids, @NonNull List<TextLabel> textLabels) {
+            boolean fail = false;
+            for (int i = 0; i < ids.size(); i++) {
+                String text = textLabels.get(i).getText();
+                STORE.put(ids.get(i), text);
+                WRITTEN.add(text);
+                fail |= text.equals(failOn);
+            }
+            if (fail) {
+                throw new IllegalStateException("Simulated write failure");
+            }
+            return ids;
+        }
+
+        @Override
+        public void remove(@NonNull Collection<String> keys) {
+            keys.forEach(STORE::remove);
+        }
+
+        @Override
+        public void clear() {
+            STORE.clear();
+        }
+    }
+
+    /**
+     * 配合 {@link RecordingIntentClassifierFactory} 使用的向量存储，分类器不向其写入数据
+     */
+    public static class StoreFactory implements EmbeddingStoreFactory {
+
+        @Override
+        public String factoryIdentifier() {
+            return IDENTIFIER;
+        }
+
+        @Override
+        public Set<ConfigOption<?>> requiredOptions() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<ConfigOption<?>> optionalOptions() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<ConfigOption<?>> fingerprintOptions() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public EmbeddingStore<TextSegment> create(String storeId, ReadableConfig config) {
+            return new InMemoryEmbeddingStore<>();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ai.intentchain.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 多字节字符跨越映射窗口边界时的解码
+ */
+class MappedFileReaderTest {
+
+    // 1 至 4 字节的 UTF-8 字符混排，各窗口大小下都会出现字符被窗口边界截断的情况
+    private static final String TEXT = "a,é\n中文,标签\n😀 emoji,表情\n" + "混合 mixed ü 😀 字符\n".repeat(20);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodesCharactersAcrossWindowBoundaries() throws IOException {
+        Path file = write(TEXT.getBytes(StandardCharsets.UTF_8));
+        for (int windowSize = 16; windowSize <= 40; windowSize++) {
+            for (int bufferSize : new int[]{1, 2, 7, 1024}) {
+                assertEquals(TEXT, read(file, StandardCharsets.UTF_8, windowSize, bufferSize),
+                        "windowSize=" + windowSize + ", bufferSize=" + bufferSize);
+            }
+        }
+    }
+
+    @Test
+    void decodesOtherCharsets() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        String text = "中文,标签\n".repeat(20);
+        Path file = write(text.getBytes(gbk));
+        for (int windowSize = 16; windowSize <= 24; windowSize++) {
+            assertEquals(text, read(file, gbk, windowSize, 5));
+        }
+    }
+
+    @Test
+    void replacesTruncatedCharacterAtEndOfFile() throws IOException {
+        byte[] bytes = "ab中".getBytes(StandardCharsets.UTF_8);
+        Path file = write(Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals("ab�", read(file, StandardCharsets.UTF_8, 16, 1024));
+    }
+
+    @Test
+    void readsEmptyFile() throws IOException {
+        Path file = write(new byte[0]);
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8, 16)) {
+            assertEquals(-1, reader.read(new char[8], 0, 8));
+        }
+    }
+
+    @Test
+    void rejectsSmallWindow() throws IOException {
+        Path file = write(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileReader(file, StandardCharsets.UTF_8, 15));
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        return Files.write(dir.resolve("data.csv"), bytes);
+    }
+
+    private static String read(Path file, Charset charset, int windowSize, int bufferSize) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        try (Reader reader = new MappedFileReader(file, charset, windowSize)) {
+            int n;
+            while ((n = reader.read(buffer, 0, bufferSize)) != -1) {
+                text.append(buffer, 0, n);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,286 @@
+package ai.intentchain.storer.common;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.internal.ValidationUtils;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于本地内存映射文件的向量存储基类
+ * <p>
+ * 负责写入参数校验、id 到行号的映射、按 id 或过滤条件删除以及索引头的读写，数据布局由子类实现。
+ * 检索可并发执行，写入与删除由 {@link #lock} 的写锁互斥。
+ */
+@Slf4j
+public abstract class AbstractLocalEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    protected static final String HEADER_FILE = "index.hdr";
+
+    protected final Path directory;
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final String name;
+    private final int magic;
+    private final int version;
+
+    // id 到行号的映射，仅在写入或删除时按需构建，避免影响启动耗时
+    private Map<String, Integer> idIndex;
+
+    protected AbstractLocalEmbeddingStore(@NonNull Path directory, @NonNull String name, int magic, int version) {
+        this.directory = directory;
+        this.name = name;
+        this.magic = magic;
+        this.version = version;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return add(embedding, null);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), textSegment == null ? null : List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        ValidationUtils.ensureNotNull(ids, "ids");
+        ValidationUtils.ensureNotNull(embeddings, "embeddings");
+        if (ids.size() != embeddings.size()) {
+            throw new IllegalArgumentException(
+                    String.format("The number of ids and embeddings must match, but ids.size()=%d, embeddings.size()=%d",
+                            ids.size(), embeddings.size())
+            );
+        }
+        if (embedded != null && embedded.size() != ids.size()) {
+            throw new IllegalArgumentException("The number of ids and embedded must match");
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            write(ids, embeddings, embedded);
+            commitChanges();
+            log.debug("Added {} embeddings to {} index {}", ids.size(), name, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + name + " index in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        ValidationUtils.ensureNotEmpty(ids, "ids");
+        lock.writeLock().lock();
+        try {
+            if (rowCount() == 0) {
+                return;
+            }
+            Map<String, Integer> index = idIndex();
+            int removed = 0;
+            for (String id : ids) {
+                Integer row = index.remove(id);
+                if (row != null) {
+                    markDeleted(row);
+                    removed++;
+                }
+            }
+            commitChanges();
+            log.debug("Removed {} embeddings from {} index {}", removed, name, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + name + " index in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        ValidationUtils.ensureNotNull(filter, "filter");
+        lock.writeLock().lock();
+        try {
+            if (rowCount() == 0) {
+                return;
+            }
+            Map<String, Integer> index = idIndex();
+            int removed = 0;
+            for (int row = 0; row < rowCount(); row++) {
+                if (isDeleted(row)) {
+                    continue;
+                }
+                long payload = payload(row);
+                if (filter.test(payloads().readMetadata(payload))) {
+                    index.remove(payloads().readId(payload));
+                    markDeleted(row);
+                    removed++;
+                }
+            }
+            commitChanges();
+            log.debug("Removed {} embeddings from {} index {}", removed, name, directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + name + " index in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在写锁内写入已校验过的记录，同一 id 重复写入时覆盖旧记录；提交由调用方负责
+     */
+    protected abstract void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded)
+            throws IOException;
+
+    /**
+     * 已写入的行数（包括逻辑删除的行）
+     */
+    protected abstract int rowCount();
+
+    protected abstract boolean isDeleted(int row);
+
+    protected abstract void markDeleted(int row);
+
+    /**
+     * 行在 {@link #payloads()} 中的偏移量
+     */
+    protected abstract long payload(int row);
+
+    protected abstract PayloadStore payloads();
+
+    /**
+     * 刷写全部数据文件
+     */
+    protected abstract void flush();
+
+    /**
+     * 写入魔数与版本号之后的索引头内容
+     */
+    protected abstract void writeHeader(DataOutputStream out) throws IOException;
+
+    /**
+     * 达到整理条件时将存活记录写入新一代文件并提交，返回是否进行了整理
+     */
+    protected boolean compactIfNeeded() throws IOException {
+        return false;
+    }
+
+    /**
+     * 写入或删除后的提交：需要整理时整理（整理时已提交），否则直接提交
+     */
+    protected void commitChanges() throws IOException {
+        if (!compactIfNeeded()) {
+            commit();
+        }
+    }
+
+    /**
+     * 逻辑删除的行多于存活的行时需要整理
+     */
+    protected static boolean needsCompaction(int count, int deletedCount) {
+        return deletedCount > 0 && deletedCount > count - deletedCount;
+    }
+
+    protected Map<String, Integer> idIndex() {
+        if (idIndex == null) {
+            int count = rowCount();
+            Map<String, Integer> index = new HashMap<>(Math.max(16, count * 2));
+            for (int row = 0; row < count; row++) {
+                if (!isDeleted(row)) {
+                    index.put(payloads().readId(payload(row)), row);
+                }
+            }
+            idIndex = index;
+        }
+        return idIndex;
+    }
+
+    /**
+     * 行号发生变化后（清空或整理）丢弃 id 映射，下次使用时重新构建
+     */
+    protected void resetIdIndex() {
+        idIndex = null;
+    }
+
+    protected void checkDimension(float[] vector, int dimension) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(String.format(
+                    "Embedding dimension %d does not match the index dimension %d", vector.length, dimension));
+        }
+    }
+
+    /**
+     * 打开并校验索引头，返回位于版本号之后的输入流；索引头不存在时返回 null
+     */
+    protected DataInputStream openHeader() throws IOException {
+        Path headerFile = directory.resolve(HEADER_FILE);
+        if (!Files.exists(headerFile)) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(headerFile)));
+        try {
+            if (in.readInt() != magic) {
+                throw new IllegalStateException("Not a " + name + " index header: " + headerFile);
+            }
+            int storedVersion = in.readInt();
+            if (storedVersion != version) {
+                throw new IllegalStateException("Unsupported " + name + " index version " + storedVersion
+                                                + ", please rebuild the project");
+            }
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 先刷写数据文件，再通过临时文件原子替换索引头
+     * <p>
+     * 索引头记录行数等元信息，追加写入的行只有在索引头替换后才会在重新打开时可见；
+     * 对已提交行的原地修改（如删除标记）在刷写时即已生效，不受索引头保护。
+     */
+    protected void commit() {
+        flush();
+        Path headerFile = directory.resolve(HEADER_FILE);
+        Path tempFile = directory.resolve(HEADER_FILE + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(magic);
+                out.writeInt(version);
+                writeHeader(out);
+            }
+            Files.move(tempFile, headerFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + name + " index header in " + directory, e);
+        }
+    }
+}
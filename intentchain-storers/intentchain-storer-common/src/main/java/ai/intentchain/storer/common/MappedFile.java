@@ -0,0 +1,154 @@
+package ai.intentchain.storer.common;
+
+import com.google.common.base.Preconditions;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分段内存映射文件
+ * <p>
+ * 单个 {@link MappedByteBuffer} 最大只能映射 2GB，因此文件被切分为固定大小的段，
+ * 调用方需要保证单条记录不跨段（见 {@link #align(long, int)}）。
+ * 文件按需倍增扩容，只有最后一段会被重新映射。
+ */
+public final class MappedFile implements AutoCloseable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    private static final long MIN_MAPPED_SIZE = 1L << 16;
+
+    private final FileChannel channel;
+
+    private final long segmentSize;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // 每段对应的 float 视图，用于批量读取向量
+    private final List<FloatBuffer> floatViews = new ArrayList<>();
+
+    private long mappedSize = 0L;
+
+    public MappedFile(@NonNull Path path, long segmentSize) throws IOException {
+        Preconditions.checkArgument(segmentSize > 0 && segmentSize <= Integer.MAX_VALUE && segmentSize % 8 == 0,
+                "segmentSize must be a multiple of 8 between 8 and " + Integer.MAX_VALUE);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentSize = segmentSize;
+        long fileSize = channel.size();
+        if (fileSize > 0) {
+            remap(fileSize);
+        }
+    }
+
+    public long segmentSize() {
+        return segmentSize;
+    }
+
+    public long mappedSize() {
+        return mappedSize;
+    }
+
+    /**
+     * 返回包含指定位置的段，配合 {@link #offset(long)} 使用
+     */
+    public MappedByteBuffer segment(long position) {
+        return segments.get((int) (position / segmentSize));
+    }
+
+    public int offset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    /**
+     * 从 position 开始批量读取 dst.length 个 float，position 必须按 4 字节对齐
+     */
+    public void readFloats(long position, float[] dst) {
+        floatViews.get((int) (position / segmentSize)).get(offset(position) >> 2, dst);
+    }
+
+    /**
+     * 从 position 开始批量读取 length 个 float 到 dst 的前 length 个位置
+     */
+    public void readFloats(long position, float[] dst, int length) {
+        floatViews.get((int) (position / segmentSize)).get(offset(position) >> 2, dst, 0, length);
+    }
+
+    /**
+     * 从 position 开始批量写入 src 中的 float，position 必须按 4 字节对齐
+     */
+    public void writeFloats(long position, float[] src) {
+        floatViews.get((int) (position / segmentSize)).put(offset(position) >> 2, src);
+    }
+
+    /**
+     * 若长度为 length 的记录从 position 开始会跨段，则返回下一段的起始位置
+     */
+    public long align(long position, int length) {
+        Preconditions.checkArgument(length <= segmentSize,
+                "Record length " + length + " exceeds segment size " + segmentSize);
+        if (offset(position) + (long) length > segmentSize) {
+            return (position / segmentSize + 1) * segmentSize;
+        }
+        return position;
+    }
+
+    public void ensureCapacity(long size) throws IOException {
+        if (size <= mappedSize) {
+            return;
+        }
+        long target = Math.max(MIN_MAPPED_SIZE, mappedSize);
+        while (target < size) {
+            target <<= 1;
+        }
+        if (target > segmentSize) {
+            // 超过一段后按整段扩容
+            target = (target + segmentSize - 1) / segmentSize * segmentSize;
+        }
+        remap(target);
+    }
+
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    private void remap(long size) throws IOException {
+        int count = (int) ((size + segmentSize - 1) / segmentSize);
+        for (int i = 0; i < count; i++) {
+            long start = i * segmentSize;
+            long length = Math.min(segmentSize, size - start);
+            if (i < segments.size() && segments.get(i).capacity() == length) {
+                continue;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            FloatBuffer floatView = buffer.asFloatBuffer();
+            if (i < segments.size()) {
+                segments.set(i, buffer);
+                floatViews.set(i, floatView);
+            } else {
+                segments.add(buffer);
+                floatViews.add(floatView);
+            }
+        }
+        mappedSize = size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        segments.clear();
+        floatViews.clear();
+        channel.close();
+    }
+}
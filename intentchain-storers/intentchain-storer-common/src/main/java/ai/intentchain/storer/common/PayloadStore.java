@@ -0,0 +1,180 @@
+package ai.intentchain.storer.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 追加写的向量负载文件，保存每条记录的 id、文本和元数据
+ * <p>
+ * 记录格式（小端）：int idLen, byte[] id, int textLen, byte[] text, int metadataLen, byte[] metadataJson，
+ * 长度为 -1 表示该字段为空。记录通过起始偏移量引用，且不跨段。
+ */
+public final class PayloadStore implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final MappedFile file;
+
+    private long end;
+
+    public PayloadStore(@NonNull Path path, long end) throws IOException {
+        this.path = path;
+        this.file = new MappedFile(path, MappedFile.DEFAULT_SEGMENT_SIZE);
+        this.end = end;
+    }
+
+    /**
+     * 已写入数据的逻辑末尾，需要由调用方持久化到索引头中
+     */
+    public long end() {
+        return end;
+    }
+
+    public void reset() {
+        end = 0L;
+    }
+
+    public long append(@NonNull String id, TextSegment segment) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = segment == null ? null : segment.text().getBytes(StandardCharsets.UTF_8);
+        byte[] metadataBytes = segment == null ? null : metadataToJson(segment.metadata());
+        int length = 12 + idBytes.length
+                     + (textBytes == null ? 0 : textBytes.length)
+                     + (metadataBytes == null ? 0 : metadataBytes.length);
+        try {
+            long position = file.align(end, length);
+            file.ensureCapacity(position + length);
+            MappedByteBuffer buffer = file.segment(position);
+            int offset = file.offset(position);
+            offset = putBytes(buffer, offset, idBytes);
+            offset = putBytes(buffer, offset, textBytes);
+            putBytes(buffer, offset, metadataBytes);
+            end = position + length;
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 将一条记录原样复制到另一个负载文件的末尾，返回其在目标文件中的偏移量，用于整理时重写存活记录
+     */
+    public long copyTo(long position, @NonNull PayloadStore target) {
+        MappedByteBuffer buffer = file.segment(position);
+        int offset = file.offset(position);
+        int length = 0;
+        for (int field = 0; field < 3; field++) {
+            length += 4 + Math.max(buffer.getInt(offset + length), 0);
+        }
+        try {
+            long targetPosition = target.file.align(target.end, length);
+            target.file.ensureCapacity(targetPosition + length);
+            target.file.segment(targetPosition).put(target.file.offset(targetPosition), buffer, offset, length);
+            target.end = targetPosition + length;
+            return targetPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String readId(long position) {
+        MappedByteBuffer buffer = file.segment(position);
+        int offset = file.offset(position);
+        return new String(getBytes(buffer, offset), StandardCharsets.UTF_8);
+    }
+
+    public TextSegment readSegment(long position) {
+        MappedByteBuffer buffer = file.segment(position);
+        int offset = file.offset(position);
+        offset += 4 + buffer.getInt(offset);
+        byte[] textBytes = getBytes(buffer, offset);
+        if (textBytes == null) {
+            return null;
+        }
+        offset += 4 + textBytes.length;
+        return TextSegment.from(new String(textBytes, StandardCharsets.UTF_8), parseMetadata(getBytes(buffer, offset)));
+    }
+
+    public Metadata readMetadata(long position) {
+        MappedByteBuffer buffer = file.segment(position);
+        int offset = file.offset(position);
+        offset += 4 + buffer.getInt(offset);
+        int textLength = buffer.getInt(offset);
+        offset += 4 + Math.max(textLength, 0);
+        return parseMetadata(getBytes(buffer, offset));
+    }
+
+    public void force() {
+        file.force();
+    }
+
+    private static int putBytes(MappedByteBuffer buffer, int offset, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(offset, -1);
+            return offset + 4;
+        }
+        buffer.putInt(offset, bytes.length);
+        buffer.put(offset + 4, bytes);
+        return offset + 4 + bytes.length;
+    }
+
+    private static byte[] getBytes(MappedByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 4, bytes);
+        return bytes;
+    }
+
+    private static byte[] metadataToJson(Metadata metadata) {
+        if (metadata == null || metadata.toMap().isEmpty()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(metadata.toMap());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize metadata", e);
+        }
+    }
+
+    private static Metadata parseMetadata(byte[] metadataJson) {
+        if (metadataJson == null) {
+            return new Metadata();
+        }
+        try {
+            return Metadata.from(OBJECT_MAPPER.readValue(metadataJson, METADATA_TYPE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse metadata", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * 关闭并删除负载文件
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,56 @@
+package ai.intentchain.storer.common;
+
+/**
+ * 本地向量存储共用的向量运算
+ */
+public final class Vectors {
+
+    private Vectors() {
+    }
+
+    public static float norm(float[] vector) {
+        double sum = 0.0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * 返回归一化后的副本，零向量返回全零向量
+     */
+    public static float[] normalize(float[] vector, float norm) {
+        float[] normalized = new float[vector.length];
+        if (norm == 0f) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return dot(a, 0, b, a.length);
+    }
+
+    /**
+     * 计算 a[offset, offset + length) 与 b[0, length) 的点积，
+     * 多路累加以打破浮点加法的依赖链，便于 JIT 生成流水化的代码
+     */
+    public static float dot(float[] a, int offset, float[] b, int length) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[offset + i] * b[i];
+            s1 += a[offset + i + 1] * b[i + 1];
+            s2 += a[offset + i + 2] * b[i + 2];
+            s3 += a[offset + i + 3] * b[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[offset + i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
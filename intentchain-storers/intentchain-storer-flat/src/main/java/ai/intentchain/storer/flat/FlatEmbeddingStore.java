@@ -0,0 +1,404 @@
+package ai.intentchain.storer.flat;
+
+import ai.intentchain.storer.common.AbstractLocalEmbeddingStore;
+import ai.intentchain.storer.common.MappedFile;
+import ai.intentchain.storer.common.PayloadStore;
+import ai.intentchain.storer.common.TopK;
+import ai.intentchain.storer.common.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.*;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * 精确（暴力）检索的向量存储
+ * <p>
+ * 归一化后的向量连续存放在堆外的内存映射文件中，检索时直接在映射缓冲区上用 Vector API 计算点积，
+ * 通过原始类型的 Top-K 堆选出结果；行数超过 parallelThreshold 时按行区间切分到多个核心并行扫描。
+ * 删除为逻辑删除，已删除的行多于存活的行时，将存活的行写入新一代文件，通过原子替换索引头切换后删除旧文件。
+ * 目录结构：
+ * <ul>
+ *     <li>index.hdr：索引头（当前代、维度、行数等），通过临时文件原子替换写入</li>
+ *     <li>rows-&lt;gen&gt;.bin：定长行记录（payload 偏移、删除标记、模长）</li>
+ *     <li>vectors-&lt;gen&gt;.bin：归一化后的向量</li>
+ *     <li>payloads-&lt;gen&gt;.bin：id、文本及元数据</li>
+ * </ul>
+ */
+@Slf4j
+public class FlatEmbeddingStore extends AbstractLocalEmbeddingStore {
+
+    private static final int MAGIC = 0x54414C46; // "FLAT"
+    private static final int VERSION = 2;
+
+    private static final int ROW_SIZE = 16;
+    private static final int ROW_PAYLOAD = 0;
+    private static final int ROW_FLAGS = 8;
+    private static final int ROW_NORM = 12;
+
+    private static final int FLAG_DELETED = 1;
+
+    private final int parallelThreshold;
+
+    private final VectorScorer scorer = VectorScorers.get();
+
+    private PayloadStore payloads;
+    private int generation;
+    private int dimension = -1;
+    private int vectorSize;
+    private MappedFile rows;
+    private MappedFile vectors;
+
+    private int count;
+    private int deletedCount;
+    private final BitSet deleted = new BitSet();
+
+    @Builder
+    public FlatEmbeddingStore(@NonNull Path directory, Integer parallelThreshold) {
+        super(directory, "flat", MAGIC, VERSION);
+        this.parallelThreshold = Optional.ofNullable(parallelThreshold).orElse(65536);
+
+        try {
+            Files.createDirectories(directory);
+            long payloadsEnd = 0L;
+            try (DataInputStream in = openHeader()) {
+                if (in != null) {
+                    this.generation = in.readInt();
+                    int storedDimension = in.readInt();
+                    this.count = in.readInt();
+                    this.deletedCount = in.readInt();
+                    payloadsEnd = in.readLong();
+                    openFiles(storedDimension);
+                    for (int row = 0; row < count; row++) {
+                        if (isDeletedRow(row)) {
+                            deleted.set(row);
+                        }
+                    }
+                    log.debug("Opened flat index {} with {} rows", directory, count);
+                }
+            }
+            this.payloads = new PayloadStore(payloadsFile(generation), payloadsEnd);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open flat index in " + directory, e);
+        }
+    }
+
+    private void openFiles(int dimension) throws IOException {
+        this.dimension = dimension;
+        this.vectorSize = dimension * 4;
+        this.rows = openRows(generation);
+        this.vectors = openVectors(generation);
+    }
+
+    private MappedFile openRows(int generation) throws IOException {
+        // 段大小取记录大小的整数倍，保证记录不跨段
+        return new MappedFile(rowsFile(generation), MappedFile.DEFAULT_SEGMENT_SIZE / ROW_SIZE * ROW_SIZE);
+    }
+
+    private MappedFile openVectors(int generation) throws IOException {
+        long vectorUnit = (vectorSize & 7) == 0 ? vectorSize : vectorSize * 2L;
+        return new MappedFile(vectorsFile(generation), MappedFile.DEFAULT_SEGMENT_SIZE / vectorUnit * vectorUnit);
+    }
+
+    @Override
+    protected void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded)
+            throws IOException {
+        if (dimension < 0) {
+            openFiles(embeddings.get(0).dimension());
+        }
+        Map<String, Integer> index = idIndex();
+        rows.ensureCapacity((long) (count + ids.size()) * ROW_SIZE);
+        vectors.ensureCapacity(vectorPosition(count + ids.size()));
+        for (int i = 0; i < ids.size(); i++) {
+            float[] vector = embeddings.get(i).vector();
+            checkDimension(vector, dimension);
+            String id = ids.get(i);
+            Integer previous = index.get(id);
+            if (previous != null) {
+                // 同一 id 重复写入时覆盖旧记录
+                markDeleted(previous);
+            }
+            int row = count;
+            float norm = Vectors.norm(vector);
+            vectors.writeFloats(vectorPosition(row), Vectors.normalize(vector, norm));
+            long rowPosition = (long) row * ROW_SIZE;
+            MappedByteBuffer buffer = rows.segment(rowPosition);
+            int offset = rows.offset(rowPosition);
+            buffer.putLong(offset + ROW_PAYLOAD, payloads.append(id, embedded == null ? null : embedded.get(i)));
+            buffer.putInt(offset + ROW_FLAGS, 0);
+            buffer.putFloat(offset + ROW_NORM, norm);
+            count++;
+            index.put(id, row);
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        int maxResults = request.maxResults();
+        double minScore = request.minScore();
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (count - deletedCount <= 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException(String.format(
+                        "Query embedding dimension %d does not match the index dimension %d",
+                        query.length, dimension));
+            }
+            float[] normalized = Vectors.normalize(query, Vectors.norm(query));
+            // 相关性得分 (cos + 1) / 2 >= minScore 等价于 cos >= 2 * minScore - 1
+            float minSimilarity = (float) (2 * minScore - 1);
+
+            TopK topK;
+            int live = count - deletedCount;
+            if (live < parallelThreshold) {
+                topK = scan(normalized, maxResults, minSimilarity, filter, 0, count);
+            } else {
+                int partitions = Math.min(ForkJoinPool.getCommonPoolParallelism() + 1,
+                        Math.max(1, live / Math.max(1, parallelThreshold / 2)));
+                int partitionSize = (count + partitions - 1) / partitions;
+                topK = IntStream.range(0, partitions)
+                        .parallel()
+                        .mapToObj(p -> scan(normalized, maxResults, minSimilarity, filter,
+                                p * partitionSize, Math.min(count, (p + 1) * partitionSize)))
+                        .reduce((a, b) -> {
+                            a.addAll(b);
+                            return a;
+                        })
+                        .orElseGet(() -> new TopK(maxResults));
+            }
+
+            int[] ids = new int[topK.size()];
+            float[] similarities = new float[topK.size()];
+            int size = topK.drainDescending(ids, similarities);
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                long payload = payload(ids[i]);
+                matches.add(new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(similarities[i]),
+                        payloads.readId(payload), Embedding.from(vector(ids[i])), payloads.readSegment(payload)));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 扫描 [start, end) 区间内的行，元数据过滤只对能进入 Top-K 的行求值
+     */
+    private TopK scan(float[] query, int maxResults, float minSimilarity, Filter filter, int start, int end) {
+        TopK topK = new TopK(maxResults);
+        for (int row = start; row < end; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            long position = vectorPosition(row);
+            float similarity = scorer.dot(vectors.segment(position), vectors.offset(position), query);
+            if (similarity < minSimilarity || similarity <= topK.threshold()) {
+                continue;
+            }
+            if (filter != null && !filter.test(payloads.readMetadata(payload(row)))) {
+                continue;
+            }
+            topK.offer(row, similarity);
+        }
+        return topK;
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            if (dimension < 0) {
+                return;
+            }
+            count = 0;
+            deletedCount = 0;
+            deleted.clear();
+            payloads.reset();
+            resetIdIndex();
+            commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除的行多于存活的行时整理，返回是否进行了整理（整理时已提交）
+     */
+    @Override
+    protected boolean compactIfNeeded() throws IOException {
+        if (!needsCompaction(count, deletedCount)) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * 将存活的行按原顺序复制到新一代文件，切换索引头后删除旧一代文件
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        int nextGeneration = generation + 1;
+        Files.deleteIfExists(rowsFile(nextGeneration));
+        Files.deleteIfExists(vectorsFile(nextGeneration));
+        Files.deleteIfExists(payloadsFile(nextGeneration));
+        MappedFile nextRows = openRows(nextGeneration);
+        MappedFile nextVectors = openVectors(nextGeneration);
+        PayloadStore nextPayloads = new PayloadStore(payloadsFile(nextGeneration), 0L);
+        int live = count - deletedCount;
+        nextRows.ensureCapacity((long) live * ROW_SIZE);
+        nextVectors.ensureCapacity(vectorPosition(live));
+        float[] vector = new float[dimension];
+        int next = 0;
+        for (int row = 0; row < count; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            vectors.readFloats(vectorPosition(row), vector);
+            nextVectors.writeFloats(vectorPosition(next), vector);
+            long rowPosition = (long) row * ROW_SIZE;
+            long nextPosition = (long) next * ROW_SIZE;
+            MappedByteBuffer buffer = nextRows.segment(nextPosition);
+            int offset = nextRows.offset(nextPosition);
+            buffer.putLong(offset + ROW_PAYLOAD, payloads.copyTo(payload(row), nextPayloads));
+            buffer.putInt(offset + ROW_FLAGS, 0);
+            buffer.putFloat(offset + ROW_NORM, rows.segment(rowPosition).getFloat(rows.offset(rowPosition) + ROW_NORM));
+            next++;
+        }
+
+        MappedFile previousRows = rows;
+        MappedFile previousVectors = vectors;
+        PayloadStore previousPayloads = payloads;
+        int previousGeneration = generation;
+        rows = nextRows;
+        vectors = nextVectors;
+        payloads = nextPayloads;
+        generation = nextGeneration;
+        count = live;
+        deletedCount = 0;
+        deleted.clear();
+        resetIdIndex();
+        commit();
+        previousRows.close();
+        previousVectors.close();
+        previousPayloads.delete();
+        Files.deleteIfExists(rowsFile(previousGeneration));
+        Files.deleteIfExists(vectorsFile(previousGeneration));
+        log.info("Compacted flat index {} to {} rows in {} ms",
+                directory.getFileName(), count, System.currentTimeMillis() - start);
+    }
+
+    private Path rowsFile(int generation) {
+        return directory.resolve("rows-" + generation + ".bin");
+    }
+
+    private Path vectorsFile(int generation) {
+        return directory.resolve("vectors-" + generation + ".bin");
+    }
+
+    private Path payloadsFile(int generation) {
+        return directory.resolve("payloads-" + generation + ".bin");
+    }
+
+    private long vectorPosition(int row) {
+        return (long) row * vectorSize;
+    }
+
+    private boolean isDeletedRow(int row) {
+        long position = (long) row * ROW_SIZE;
+        return (rows.segment(position).getInt(rows.offset(position) + ROW_FLAGS) & FLAG_DELETED) != 0;
+    }
+
+    @Override
+    protected boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    @Override
+    protected void markDeleted(int row) {
+        long position = (long) row * ROW_SIZE;
+        MappedByteBuffer buffer = rows.segment(position);
+        int offset = rows.offset(position) + ROW_FLAGS;
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+        deleted.set(row);
+        deletedCount++;
+    }
+
+    @Override
+    protected int rowCount() {
+        return count;
+    }
+
+    @Override
+    protected long payload(int row) {
+        long position = (long) row * ROW_SIZE;
+        return rows.segment(position).getLong(rows.offset(position) + ROW_PAYLOAD);
+    }
+
+    private float[] vector(int row) {
+        long position = (long) row * ROW_SIZE;
+        float norm = rows.segment(position).getFloat(rows.offset(position) + ROW_NORM);
+        float[] vector = new float[dimension];
+        vectors.readFloats(vectorPosition(row), vector);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= norm;
+        }
+        return vector;
+    }
+
+    @Override
+    protected PayloadStore payloads() {
+        return payloads;
+    }
+
+    @Override
+    protected void flush() {
+        rows.force();
+        vectors.force();
+        payloads.force();
+    }
+
+    @Override
+    protected void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(generation);
+        out.writeInt(dimension);
+        out.writeInt(count);
+        out.writeInt(deletedCount);
+        out.writeLong(payloads.end());
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (dimension >= 0) {
+                rows.close();
+                vectors.close();
+            }
+            payloads.close();
+        } catch (IOException e) {
+            log.warn("Failed to close flat index {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ai.intentchain.storer.flat;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingStoreFactory;
+import ai.intentchain.core.utils.FactoryUtil;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public class FlatEmbeddingStoreFactory implements EmbeddingStoreFactory {
+
+    public static final String IDENTIFIER = "flat";
+
+    public static final ConfigOption<String> DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            Flat embedding store directory, each store is kept in a sub directory named by the store id.
+                            The project mode does not need to be filled in by default and is stored \
+                            in the project root directory under the .intentchain directory, \
+                            directories with the prefix 'embeddings_'.
+                            """);
+
+    public static final ConfigOption<Integer> PARALLEL_THRESHOLD =
+            ConfigOptions.key("parallel-threshold")
+                    .intType()
+                    .defaultValue(65536)
+                    .withDescription("The number of vectors from which a query is partitioned across cores, " +
+                                     "must be greater than or equal to 2");
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return new LinkedHashSet<>(List.of(DIRECTORY, PARALLEL_THRESHOLD));
+    }
+
+    @Override
+    public Set<ConfigOption<?>> fingerprintOptions() {
+        return Set.of(DIRECTORY);
+    }
+
+    @Override
+    public EmbeddingStore<TextSegment> create(String storeId, ReadableConfig config) {
+        FactoryUtil.validateFactoryOptions(this, config);
+        Integer parallelThreshold = config.get(PARALLEL_THRESHOLD);
+        Preconditions.checkArgument(parallelThreshold >= 2,
+                "'" + PARALLEL_THRESHOLD.key() + "' value must be greater than or equal to 2");
+
+        Path directory = config.getOptional(DIRECTORY)
+                .map(Path::of)
+                .orElseGet(() -> {
+                    try {
+                        Path tempDir = Files.createTempDirectory("intentchain-flat-");
+                        log.info("'{}' is not set, the flat embedding store is kept in {}", DIRECTORY.key(), tempDir);
+                        return tempDir;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return FlatEmbeddingStore.builder()
+                .directory(directory.resolve(storeId))
+                .parallelThreshold(parallelThreshold)
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package ai.intentchain.storer.flat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 标量点积实现，多路累加以打破浮点加法的依赖链
+ */
+final class ScalarVectorScorer implements VectorScorer {
+
+    @Override
+    public float dot(ByteBuffer buffer, int offset, float[] query) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = query.length & ~3;
+        for (; i < bound; i += 4) {
+            int base = offset + (i << 2);
+            s0 += buffer.getFloat(base) * query[i];
+            s1 += buffer.getFloat(base + 4) * query[i + 1];
+            s2 += buffer.getFloat(base + 8) * query[i + 2];
+            s3 += buffer.getFloat(base + 12) * query[i + 3];
+        }
+        for (; i < query.length; i++) {
+            s0 += buffer.getFloat(offset + (i << 2)) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
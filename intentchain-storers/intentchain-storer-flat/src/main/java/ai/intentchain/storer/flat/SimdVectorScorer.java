@@ -0,0 +1,34 @@
+package ai.intentchain.storer.flat;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 基于 JDK Vector API 的点积实现，直接从内存映射缓冲区加载向量，不经过堆内复制
+ */
+final class SimdVectorScorer implements VectorScorer {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(ByteBuffer buffer, int offset, float[] query) {
+        int length = query.length;
+        int bound = SPECIES.loopBound(length);
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromByteBuffer(SPECIES, buffer, offset + (i << 2), ByteOrder.LITTLE_ENDIAN);
+            FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+            sum = v.fma(q, sum);
+        }
+        float dot = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dot += buffer.getFloat(offset + (i << 2)) * query[i];
+        }
+        return dot;
+    }
+}
@@ -0,0 +1,16 @@
+package ai.intentchain.storer.flat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 计算内存映射缓冲区中的向量与查询向量的点积
+ */
+interface VectorScorer {
+
+    /**
+     * @param buffer 小端字节序的向量数据
+     * @param offset 向量在 buffer 中的起始字节偏移
+     * @param query  查询向量，长度即向量维度
+     */
+    float dot(ByteBuffer buffer, int offset, float[] query);
+}
@@ -0,0 +1,49 @@
+package ai.intentchain.storer.flat;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+final class VectorScorers {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final String SIMD_SCORER_CLASS = "ai.intentchain.storer.flat.SimdVectorScorer";
+
+    private static volatile VectorScorer instance;
+
+    private VectorScorers() {
+    }
+
+    /**
+     * 运行时启用了 jdk.incubator.vector 模块（--add-modules jdk.incubator.vector）时使用 SIMD 实现，否则退化为标量实现；
+     * 启动脚本在 JVM 包含该模块时自动启用
+     */
+    static VectorScorer get() {
+        if (instance == null) {
+            synchronized (VectorScorers.class) {
+                if (instance == null) {
+                    instance = create();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static VectorScorer create() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                // 通过反射加载，避免未启用孵化模块时链接失败
+                VectorScorer scorer = (VectorScorer) Class.forName(SIMD_SCORER_CLASS)
+                        .getDeclaredConstructor().newInstance();
+                log.debug("Flat embedding store uses SIMD scoring");
+                return scorer;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Failed to load the SIMD vector scorer, falls back to scalar scoring: {}", e.getMessage());
+            }
+        } else {
+            log.info("Module {} is not enabled, flat embedding store uses scalar scoring. " +
+                     "Add '--add-modules {}' to the JVM options to enable SIMD scoring", VECTOR_MODULE, VECTOR_MODULE);
+        }
+        return new ScalarVectorScorer();
+    }
+}
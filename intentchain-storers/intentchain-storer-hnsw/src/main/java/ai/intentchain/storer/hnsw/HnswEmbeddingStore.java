@@ -0,0 +1,312 @@
+package ai.intentchain.storer.hnsw;
+
+import ai.intentchain.storer.common.AbstractLocalEmbeddingStore;
+import ai.intentchain.storer.common.PayloadStore;
+import ai.intentchain.storer.common.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.*;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * 纯 Java 实现的 HNSW 向量存储，数据以内存映射文件的形式持久化在指定目录下
+ * <p>
+ * 目录结构：
+ * <ul>
+ *     <li>index.hdr：索引头（当前代、维度、图参数、节点数、入口点等），通过临时文件原子替换写入</li>
+ *     <li>nodes-&lt;gen&gt;.bin：定长节点记录（第 0 层邻接表及归一化向量）</li>
+ *     <li>links-&lt;gen&gt;.bin：第 1 层及以上的邻接表</li>
+ *     <li>payloads-&lt;gen&gt;.bin：id、文本及元数据</li>
+ * </ul>
+ * 打开已有索引只需要映射文件和读取索引头，不会重建图。检索可并发执行，写入互斥。
+ * 索引头只保护追加写入的节点：插入时对已有节点邻接表的修改以及删除标记都是原地写入，
+ * 在索引头替换前就可能落盘，因此读取邻接表时会跳过未提交的节点编号。
+ * 删除为逻辑删除，被删除的节点仍参与图遍历以保持连通性。已删除的节点多于存活节点时，
+ * 将存活节点重新插入新一代文件，通过原子替换索引头切换到新一代后删除旧文件。
+ */
+@Slf4j
+public class HnswEmbeddingStore extends AbstractLocalEmbeddingStore {
+
+    private static final int MAGIC = 0x57534E48; // "HNSW"
+    private static final int VERSION = 2;
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+
+    private PayloadStore payloads;
+    // 首次写入时才能确定向量维度，在此之前为空
+    private HnswGraph graph;
+    private int generation;
+    private int deletedCount;
+
+    @Builder
+    public HnswEmbeddingStore(@NonNull Path directory,
+                              Integer m,
+                              Integer efConstruction,
+                              Integer efSearch) {
+        super(directory, "HNSW", MAGIC, VERSION);
+        this.m = Optional.ofNullable(m).orElse(16);
+        this.efConstruction = Optional.ofNullable(efConstruction).orElse(200);
+        this.efSearch = Optional.ofNullable(efSearch).orElse(64);
+
+        try {
+            Files.createDirectories(directory);
+            try (DataInputStream in = openHeader()) {
+                if (in != null) {
+                    this.generation = in.readInt();
+                    int dimension = in.readInt();
+                    int storedM = in.readInt();
+                    int storedEfConstruction = in.readInt();
+                    int count = in.readInt();
+                    int entryPoint = in.readInt();
+                    int maxLevel = in.readInt();
+                    long linksEnd = in.readLong();
+                    long payloadsEnd = in.readLong();
+                    this.deletedCount = in.readInt();
+                    if (storedM != this.m || storedEfConstruction != this.efConstruction) {
+                        log.warn("HNSW index in {} was built with m={}, ef-construction={}, " +
+                                 "the stored parameters are used", directory, storedM, storedEfConstruction);
+                    }
+                    this.payloads = new PayloadStore(payloadsFile(generation), payloadsEnd);
+                    this.graph = new HnswGraph(nodesFile(generation), linksFile(generation),
+                            dimension, storedM, storedEfConstruction, count, entryPoint, maxLevel, linksEnd);
+                    log.debug("Opened HNSW index {} with {} nodes", directory, graph.getCount());
+                } else {
+                    this.payloads = new PayloadStore(payloadsFile(generation), 0L);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open HNSW index in " + directory, e);
+        }
+    }
+
+    @Override
+    protected void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        ensureGraph(embeddings.get(0).dimension());
+        Map<String, Integer> index = idIndex();
+        for (int i = 0; i < ids.size(); i++) {
+            float[] vector = embeddings.get(i).vector();
+            checkDimension(vector, graph.getDimension());
+            String id = ids.get(i);
+            Integer previous = index.get(id);
+            if (previous != null) {
+                // 同一 id 重复写入时覆盖旧节点
+                markDeleted(previous);
+            }
+            float norm = Vectors.norm(vector);
+            long payload = payloads.append(id, embedded == null ? null : embedded.get(i));
+            int node = graph.insert(Vectors.normalize(vector, norm), norm, payload);
+            index.put(id, node);
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        int maxResults = request.maxResults();
+        double minScore = request.minScore();
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (graph == null || graph.getCount() == 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != graph.getDimension()) {
+                throw new IllegalArgumentException(String.format(
+                        "Query embedding dimension %d does not match the index dimension %d",
+                        query.length, graph.getDimension()));
+            }
+            float[] normalized = Vectors.normalize(query, Vectors.norm(query));
+            IntPredicate accept = node -> !graph.isDeleted(node)
+                                          && (filter == null
+                                              || filter.test(payloads.readMetadata(graph.payload(node))));
+
+            // 过滤条件或逻辑删除可能使结果不足，此时逐步扩大检索范围
+            int ef = Math.max(efSearch, maxResults);
+            List<HnswGraph.Candidate> candidates = graph.search(normalized, maxResults, ef, accept);
+            while (candidates.size() < maxResults && ef < graph.getCount()) {
+                ef = Math.min(ef * 2, graph.getCount());
+                candidates = graph.search(normalized, maxResults, ef, accept);
+            }
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(candidates.size());
+            for (HnswGraph.Candidate candidate : candidates) {
+                double score = RelevanceScore.fromCosineSimilarity(candidate.similarity());
+                if (score < minScore) {
+                    break;
+                }
+                long payload = graph.payload(candidate.node());
+                matches.add(new EmbeddingMatch<>(score, payloads.readId(payload),
+                        Embedding.from(graph.vector(candidate.node())), payloads.readSegment(payload)));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            if (graph == null) {
+                return;
+            }
+            graph.reset();
+            payloads.reset();
+            deletedCount = 0;
+            resetIdIndex();
+            commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureGraph(int dimension) {
+        if (graph != null) {
+            return;
+        }
+        try {
+            graph = new HnswGraph(nodesFile(generation), linksFile(generation),
+                    dimension, m, efConstruction, 0, -1, -1, 0L);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create HNSW index in " + directory, e);
+        }
+    }
+
+    /**
+     * 已删除的节点多于存活节点时整理，返回是否进行了整理（整理时已提交）
+     */
+    @Override
+    protected boolean compactIfNeeded() throws IOException {
+        if (!needsCompaction(graph.getCount(), deletedCount)) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * 将存活节点及其负载按原顺序重新插入新一代的图，切换索引头后删除旧一代文件
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        HnswGraph previousGraph = graph;
+        PayloadStore previousPayloads = payloads;
+        int nextGeneration = generation + 1;
+        Files.deleteIfExists(nodesFile(nextGeneration));
+        Files.deleteIfExists(linksFile(nextGeneration));
+        Files.deleteIfExists(payloadsFile(nextGeneration));
+        HnswGraph nextGraph = new HnswGraph(nodesFile(nextGeneration), linksFile(nextGeneration),
+                previousGraph.getDimension(), previousGraph.getM(), previousGraph.getEfConstruction(),
+                0, -1, -1, 0L);
+        PayloadStore nextPayloads = new PayloadStore(payloadsFile(nextGeneration), 0L);
+        float[] vector = new float[previousGraph.getDimension()];
+        for (int node = 0; node < previousGraph.getCount(); node++) {
+            if (previousGraph.isDeleted(node)) {
+                continue;
+            }
+            previousGraph.readVector(node, vector);
+            long payload = previousPayloads.copyTo(previousGraph.payload(node), nextPayloads);
+            nextGraph.insert(vector, previousGraph.norm(node), payload);
+        }
+
+        graph = nextGraph;
+        payloads = nextPayloads;
+        generation = nextGeneration;
+        deletedCount = 0;
+        resetIdIndex();
+        commit();
+        previousGraph.delete();
+        previousPayloads.delete();
+        log.info("Compacted HNSW index {} to {} nodes in {} ms",
+                directory.getFileName(), graph.getCount(), System.currentTimeMillis() - start);
+    }
+
+    private Path nodesFile(int generation) {
+        return directory.resolve("nodes-" + generation + ".bin");
+    }
+
+    private Path linksFile(int generation) {
+        return directory.resolve("links-" + generation + ".bin");
+    }
+
+    private Path payloadsFile(int generation) {
+        return directory.resolve("payloads-" + generation + ".bin");
+    }
+
+    @Override
+    protected int rowCount() {
+        return graph == null ? 0 : graph.getCount();
+    }
+
+    @Override
+    protected boolean isDeleted(int row) {
+        return graph.isDeleted(row);
+    }
+
+    @Override
+    protected void markDeleted(int row) {
+        graph.markDeleted(row);
+        deletedCount++;
+    }
+
+    @Override
+    protected long payload(int row) {
+        return graph.payload(row);
+    }
+
+    @Override
+    protected PayloadStore payloads() {
+        return payloads;
+    }
+
+    @Override
+    protected void flush() {
+        graph.force();
+        payloads.force();
+    }
+
+    @Override
+    protected void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(generation);
+        out.writeInt(graph.getDimension());
+        out.writeInt(graph.getM());
+        out.writeInt(graph.getEfConstruction());
+        out.writeInt(graph.getCount());
+        out.writeInt(graph.getEntryPoint());
+        out.writeInt(graph.getMaxLevel());
+        out.writeLong(graph.getLinksEnd());
+        out.writeLong(payloads.end());
+        out.writeInt(deletedCount);
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (graph != null) {
+                graph.close();
+            }
+            payloads.close();
+        } catch (IOException e) {
+            log.warn("Failed to close HNSW index {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
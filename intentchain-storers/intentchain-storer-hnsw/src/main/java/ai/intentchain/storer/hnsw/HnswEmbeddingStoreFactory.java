@@ -0,0 +1,116 @@
+package ai.intentchain.storer.hnsw;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingStoreFactory;
+import ai.intentchain.core.utils.FactoryUtil;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public class HnswEmbeddingStoreFactory implements EmbeddingStoreFactory {
+
+    public static final String IDENTIFIER = "hnsw";
+
+    public static final ConfigOption<String> DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            HNSW embedding store directory, each store is kept in a sub directory named by the store id.
+                            The project mode does not need to be filled in by default and is stored \
+                            in the project root directory under the .intentchain directory, \
+                            directories with the prefix 'embeddings_'.
+                            """);
+
+    public static final ConfigOption<Integer> M =
+            ConfigOptions.key("m")
+                    .intType()
+                    .defaultValue(16)
+                    .withDescription("The number of bi-directional links created for every node (level 0 uses 2*m), " +
+                                     "must be between 2 and 128");
+
+    public static final ConfigOption<Integer> EF_CONSTRUCTION =
+            ConfigOptions.key("ef-construction")
+                    .intType()
+                    .defaultValue(200)
+                    .withDescription("The size of the dynamic candidate list used while building the graph, " +
+                                     "must be greater than or equal to m");
+
+    public static final ConfigOption<Integer> EF_SEARCH =
+            ConfigOptions.key("ef-search")
+                    .intType()
+                    .defaultValue(64)
+                    .withDescription("The size of the dynamic candidate list used while searching, " +
+                                     "larger values improve recall at the cost of latency");
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return new LinkedHashSet<>(List.of(DIRECTORY, M, EF_CONSTRUCTION, EF_SEARCH));
+    }
+
+    @Override
+    public Set<ConfigOption<?>> fingerprintOptions() {
+        // 图结构依赖 m 与 ef-construction，参数变化时需要重建索引；ef-search 只影响检索
+        return new LinkedHashSet<>(List.of(DIRECTORY, M, EF_CONSTRUCTION));
+    }
+
+    @Override
+    public EmbeddingStore<TextSegment> create(String storeId, ReadableConfig config) {
+        FactoryUtil.validateFactoryOptions(this, config);
+        validateConfigOptions(config);
+
+        Path directory = config.getOptional(DIRECTORY)
+                .map(Path::of)
+                .orElseGet(() -> {
+                    try {
+                        Path tempDir = Files.createTempDirectory("intentchain-hnsw-");
+                        log.info("'{}' is not set, the HNSW embedding store is kept in {}", DIRECTORY.key(), tempDir);
+                        return tempDir;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return HnswEmbeddingStore.builder()
+                .directory(directory.resolve(storeId))
+                .m(config.get(M))
+                .efConstruction(config.get(EF_CONSTRUCTION))
+                .efSearch(config.get(EF_SEARCH))
+                .build();
+    }
+
+    private void validateConfigOptions(ReadableConfig config) {
+        Integer m = config.get(M);
+        Preconditions.checkArgument(m >= 2 && m <= 128,
+                "'" + M.key() + "' value must be between 2 and 128");
+        Integer efConstruction = config.get(EF_CONSTRUCTION);
+        Preconditions.checkArgument(efConstruction >= m,
+                "'" + EF_CONSTRUCTION.key() + "' value must be greater than or equal to '" + M.key() + "'");
+        Integer efSearch = config.get(EF_SEARCH);
+        Preconditions.checkArgument(efSearch >= 1,
+                "'" + EF_SEARCH.key() + "' value must be greater than or equal to 1");
+    }
+}
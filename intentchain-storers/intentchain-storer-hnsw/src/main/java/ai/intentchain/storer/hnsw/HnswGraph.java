@@ -0,0 +1,470 @@
+package ai.intentchain.storer.hnsw;
+
+import ai.intentchain.storer.common.MappedFile;
+import ai.intentchain.storer.common.Vectors;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * 基于内存映射文件的 HNSW 图
+ * <p>
+ * 节点记录定长，保存在 nodes 文件中（小端）：
+ * <pre>
+ * int level | int flags | long payload | long upperLinks | float norm | int level0Count | int[2M] level0Links | float[dim] vector
+ * </pre>
+ * 第 1 层及以上的邻接表保存在 links 文件中，每层为 int count + int[M]。
+ * 新节点只追加写入，但建立反向连接时会原地修改已有节点的邻接表，读取邻接表时会忽略超出节点数的编号。
+ * 向量归一化后存储，相似度即为点积。本类不是线程安全的，由 {@link HnswEmbeddingStore} 负责加锁。
+ */
+class HnswGraph implements AutoCloseable {
+
+    private static final int LEVEL = 0;
+    private static final int FLAGS = 4;
+    private static final int PAYLOAD = 8;
+    private static final int UPPER_LINKS = 16;
+    private static final int NORM = 24;
+    private static final int LEVEL0_COUNT = 28;
+    private static final int LEVEL0_LINKS = 32;
+
+    private static final int FLAG_DELETED = 1;
+
+    private static final int MAX_LEVEL = 16;
+
+    // 检索可并发执行，每个线程复用自己的向量读取缓冲区
+    private static final ThreadLocal<float[]> QUERY_BUFFER = ThreadLocal.withInitial(() -> new float[0]);
+    private static final ThreadLocal<float[]> NODE_BUFFER = ThreadLocal.withInitial(() -> new float[0]);
+
+    @Getter
+    private final int dimension;
+    @Getter
+    private final int m;
+    private final int maxM0;
+    @Getter
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final int vectorOffset;
+    private final int recordSize;
+
+    private final Path nodesFile;
+    private final Path linksFile;
+    private final MappedFile nodes;
+    private final MappedFile links;
+
+    @Getter
+    private int count;
+    @Getter
+    private int entryPoint;
+    @Getter
+    private int maxLevel;
+    @Getter
+    private long linksEnd;
+
+    HnswGraph(@NonNull Path nodesFile, @NonNull Path linksFile,
+              int dimension, int m, int efConstruction,
+              int count, int entryPoint, int maxLevel, long linksEnd) throws IOException {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectorOffset = LEVEL0_LINKS + 4 * maxM0;
+        this.recordSize = (vectorOffset + 4 * dimension + 7) & ~7;
+        this.nodesFile = nodesFile;
+        this.linksFile = linksFile;
+        // 段大小取记录大小的整数倍，保证节点记录不跨段
+        this.nodes = new MappedFile(nodesFile, MappedFile.DEFAULT_SEGMENT_SIZE / recordSize * recordSize);
+        this.links = new MappedFile(linksFile, MappedFile.DEFAULT_SEGMENT_SIZE);
+        this.count = count;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+        this.linksEnd = linksEnd;
+    }
+
+    void reset() {
+        count = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        linksEnd = 0L;
+    }
+
+    long payload(int node) {
+        long position = (long) node * recordSize;
+        return nodes.segment(position).getLong(nodes.offset(position) + PAYLOAD);
+    }
+
+    boolean isDeleted(int node) {
+        long position = (long) node * recordSize;
+        return (nodes.segment(position).getInt(nodes.offset(position) + FLAGS) & FLAG_DELETED) != 0;
+    }
+
+    void markDeleted(int node) {
+        long position = (long) node * recordSize;
+        MappedByteBuffer buffer = nodes.segment(position);
+        int offset = nodes.offset(position) + FLAGS;
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+    }
+
+    float norm(int node) {
+        long position = (long) node * recordSize;
+        return nodes.segment(position).getFloat(nodes.offset(position) + NORM);
+    }
+
+    /**
+     * 读取节点归一化后的向量
+     */
+    void readVector(int node, float[] dst) {
+        nodes.readFloats((long) node * recordSize + vectorOffset, dst);
+    }
+
+    /**
+     * 还原节点的原始向量（归一化向量乘以原始模长）
+     */
+    float[] vector(int node) {
+        long position = (long) node * recordSize;
+        MappedByteBuffer buffer = nodes.segment(position);
+        int offset = nodes.offset(position);
+        float norm = buffer.getFloat(offset + NORM);
+        float[] vector = new float[dimension];
+        nodes.readFloats(position + vectorOffset, vector);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= norm;
+        }
+        return vector;
+    }
+
+    /**
+     * 插入一个已归一化的向量，返回节点编号
+     */
+    int insert(float[] vector, float norm, long payload) {
+        int node = count;
+        int level = randomLevel();
+        try {
+            long position = (long) node * recordSize;
+            nodes.ensureCapacity(position + recordSize);
+            long upperLinks = -1L;
+            if (level > 0) {
+                int blockSize = level * (1 + m) * 4;
+                upperLinks = links.align(linksEnd, blockSize);
+                links.ensureCapacity(upperLinks + blockSize);
+                for (int l = 1; l <= level; l++) {
+                    long countPosition = upperLinksPosition(upperLinks, l);
+                    links.segment(countPosition).putInt(links.offset(countPosition), 0);
+                }
+                linksEnd = upperLinks + blockSize;
+            }
+            MappedByteBuffer buffer = nodes.segment(position);
+            int offset = nodes.offset(position);
+            buffer.putInt(offset + LEVEL, level);
+            buffer.putInt(offset + FLAGS, 0);
+            buffer.putLong(offset + PAYLOAD, payload);
+            buffer.putLong(offset + UPPER_LINKS, upperLinks);
+            buffer.putFloat(offset + NORM, norm);
+            buffer.putInt(offset + LEVEL0_COUNT, 0);
+            int base = offset + vectorOffset;
+            for (int i = 0; i < dimension; i++) {
+                buffer.putFloat(base + 4 * i, vector[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int current = entryPoint;
+        float currentSimilarity = similarity(current, vector);
+        for (int l = maxLevel; l > level; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int neighbor : neighbors(current, l)) {
+                    float s = similarity(neighbor, vector);
+                    if (s > currentSimilarity) {
+                        current = neighbor;
+                        currentSimilarity = s;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, current, currentSimilarity,
+                    efConstruction, l, new BitSet(count));
+            List<Candidate> selected = selectNeighbors(candidates, m);
+            int[] ids = new int[selected.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = selected.get(i).node;
+            }
+            setNeighbors(node, l, ids, ids.length);
+            for (Candidate candidate : selected) {
+                connect(candidate.node, node, l, candidate.similarity);
+            }
+            current = candidates.get(0).node;
+            currentSimilarity = candidates.get(0).similarity;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * 检索与查询向量（已归一化）最相似的候选节点，按相似度降序返回
+     *
+     * @param accept 结果过滤条件，不满足条件的节点仍参与图遍历，但不会出现在结果中
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return Collections.emptyList();
+        }
+        int current = entryPoint;
+        float currentSimilarity = similarity(current, query);
+        for (int l = maxLevel; l > 0; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int neighbor : neighbors(current, l)) {
+                    float s = similarity(neighbor, query);
+                    if (s > currentSimilarity) {
+                        current = neighbor;
+                        currentSimilarity = s;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        List<Candidate> candidates = searchLayer(query, current, currentSimilarity,
+                Math.max(ef, k), 0, new BitSet(count));
+        List<Candidate> results = new ArrayList<>(Math.min(k, candidates.size()));
+        for (Candidate candidate : candidates) {
+            if (accept.test(candidate.node)) {
+                results.add(candidate);
+                if (results.size() >= k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<Candidate> searchLayer(float[] query, int entry, float entrySimilarity,
+                                        int ef, int level, BitSet visited) {
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.reverseOrder());
+        PriorityQueue<Candidate> results = new PriorityQueue<>();
+        Candidate start = new Candidate(entry, entrySimilarity);
+        candidates.add(start);
+        results.add(start);
+        visited.set(entry);
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity < results.peek().similarity) {
+                break;
+            }
+            for (int neighbor : neighbors(candidate.node, level)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float s = similarity(neighbor, query);
+                if (results.size() < ef || s > results.peek().similarity) {
+                    Candidate next = new Candidate(neighbor, s);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.reverseOrder());
+        return sorted;
+    }
+
+    /**
+     * 启发式邻居选择：优先保留彼此差异较大的邻居以维持图的连通性，不足 maxCount 时用被裁剪的候选补齐
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> sortedCandidates, int maxCount) {
+        if (sortedCandidates.size() <= maxCount) {
+            return sortedCandidates;
+        }
+        List<Candidate> selected = new ArrayList<>(maxCount);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= maxCount) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate other : selected) {
+                if (similarity(candidate.node, other.node) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < maxCount; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int node, int neighbor, int level, float similarity) {
+        int[] current = neighbors(node, level);
+        int capacity = level == 0 ? maxM0 : m;
+        if (current.length < capacity) {
+            int[] ids = Arrays.copyOf(current, current.length + 1);
+            ids[current.length] = neighbor;
+            setNeighbors(node, level, ids, ids.length);
+            return;
+        }
+        List<Candidate> candidates = new ArrayList<>(current.length + 1);
+        for (int id : current) {
+            candidates.add(new Candidate(id, similarity(node, id)));
+        }
+        candidates.add(new Candidate(neighbor, similarity));
+        candidates.sort(Comparator.reverseOrder());
+        List<Candidate> selected = selectNeighbors(candidates, capacity);
+        int[] ids = new int[selected.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = selected.get(i).node;
+        }
+        setNeighbors(node, level, ids, ids.length);
+    }
+
+    /**
+     * 读取节点在指定层的邻居
+     * <p>
+     * 插入新节点时会原地修改已提交节点的邻接表，这些修改可能先于索引头落盘。
+     * 进程在两者之间退出后重新打开时，邻接表中可能出现超出已提交节点数的编号，这里将其忽略。
+     */
+    private int[] neighbors(int node, int level) {
+        long position = (long) node * recordSize;
+        MappedByteBuffer buffer = nodes.segment(position);
+        int offset = nodes.offset(position);
+        if (level == 0) {
+            int size = Math.min(buffer.getInt(offset + LEVEL0_COUNT), maxM0);
+            int[] ids = new int[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                int id = buffer.getInt(offset + LEVEL0_LINKS + 4 * i);
+                if (id >= 0 && id < count) {
+                    ids[n++] = id;
+                }
+            }
+            return n == size ? ids : Arrays.copyOf(ids, n);
+        }
+        long linksPosition = upperLinksPosition(buffer.getLong(offset + UPPER_LINKS), level);
+        MappedByteBuffer linksBuffer = links.segment(linksPosition);
+        int linksOffset = links.offset(linksPosition);
+        int size = Math.min(linksBuffer.getInt(linksOffset), m);
+        int[] ids = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int id = linksBuffer.getInt(linksOffset + 4 + 4 * i);
+            if (id >= 0 && id < count) {
+                ids[n++] = id;
+            }
+        }
+        return n == size ? ids : Arrays.copyOf(ids, n);
+    }
+
+    private void setNeighbors(int node, int level, int[] ids, int size) {
+        long position = (long) node * recordSize;
+        MappedByteBuffer buffer = nodes.segment(position);
+        int offset = nodes.offset(position);
+        if (level == 0) {
+            buffer.putInt(offset + LEVEL0_COUNT, size);
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(offset + LEVEL0_LINKS + 4 * i, ids[i]);
+            }
+            return;
+        }
+        long linksPosition = upperLinksPosition(buffer.getLong(offset + UPPER_LINKS), level);
+        MappedByteBuffer linksBuffer = links.segment(linksPosition);
+        int linksOffset = links.offset(linksPosition);
+        linksBuffer.putInt(linksOffset, size);
+        for (int i = 0; i < size; i++) {
+            linksBuffer.putInt(linksOffset + 4 + 4 * i, ids[i]);
+        }
+    }
+
+    private long upperLinksPosition(long upperLinks, int level) {
+        return upperLinks + (long) (level - 1) * (1 + m) * 4;
+    }
+
+    private float similarity(int node, float[] query) {
+        float[] vector = buffer(QUERY_BUFFER);
+        nodes.readFloats((long) node * recordSize + vectorOffset, vector);
+        return Vectors.dot(vector, query);
+    }
+
+    private float similarity(int a, int b) {
+        float[] vector = buffer(NODE_BUFFER);
+        nodes.readFloats((long) a * recordSize + vectorOffset, vector);
+        return similarity(b, vector);
+    }
+
+    private float[] buffer(ThreadLocal<float[]> threadLocal) {
+        float[] vector = threadLocal.get();
+        if (vector.length != dimension) {
+            vector = new float[dimension];
+            threadLocal.set(vector);
+        }
+        return vector;
+    }
+
+    private int randomLevel() {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (-Math.log(random) * levelMultiplier), MAX_LEVEL);
+    }
+
+    void force() {
+        nodes.force();
+        links.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        nodes.close();
+        links.close();
+    }
+
+    /**
+     * 关闭并删除图的数据文件
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(nodesFile);
+        Files.deleteIfExists(linksFile);
+    }
+
+    record Candidate(int node, float similarity) implements Comparable<Candidate> {
+
+        @Override
+        public int compareTo(Candidate o) {
+            return Float.compare(similarity, o.similarity);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package ai.intentchain.storer.ivf;
+
+import ai.intentchain.storer.common.AbstractLocalEmbeddingStore;
+import ai.intentchain.storer.common.PayloadStore;
+import ai.intentchain.storer.common.TopK;
+import ai.intentchain.storer.common.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.*;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 倒排文件（IVF）向量存储
+ * <p>
+ * 训练得到的粗聚类质心常驻内存，向量按最近质心分配到倒排链中，倒排链以块的形式保存在内存映射文件里；
+ * 检索时只扫描与查询最相似的 nprobe 个倒排链。向量数达到 minTrainSize 前只有一个倒排链（等价于精确检索），
+ * 达到后训练质心；此后向量数相对上次训练增长超过 rebalanceGrowth 倍，或已删除的向量多于存活向量时，
+ * 重新训练并将存活向量及其负载写入新一代文件，通过原子替换索引头切换到新一代后删除旧文件。
+ * 目录结构：
+ * <ul>
+ *     <li>index.hdr：索引头（当前代、各倒排链的块位置与大小）</li>
+ *     <li>centroids-&lt;gen&gt;.bin：质心</li>
+ *     <li>rows-&lt;gen&gt;.bin：定长行记录</li>
+ *     <li>lists-&lt;gen&gt;.bin：倒排链数据块</li>
+ *     <li>payloads-&lt;gen&gt;.bin：id、文本及元数据</li>
+ * </ul>
+ */
+@Slf4j
+public class IvfEmbeddingStore extends AbstractLocalEmbeddingStore {
+
+    private static final int MAGIC = 0x31465649; // "IVF1"
+    private static final int VERSION = 2;
+
+
+    private static final int SAMPLES_PER_CENTROID = 64;
+    private static final int TRAINING_ITERATIONS = 10;
+    private static final int MAX_LISTS = 65536;
+
+    private final int nlist;
+    private final int nprobe;
+    private final int minTrainSize;
+    private final double rebalanceGrowth;
+
+    private final ThreadLocal<float[]> scanBuffer = new ThreadLocal<>();
+
+    private PayloadStore payloads;
+    private IvfLists lists;
+    private int deletedCount;
+    // 上次训练时的存活向量数，0 表示尚未训练
+    private int trainedCount;
+    private final BitSet deleted = new BitSet();
+
+    @Builder
+    public IvfEmbeddingStore(@NonNull Path directory,
+                             Integer nlist,
+                             Integer nprobe,
+                             Integer minTrainSize,
+                             Double rebalanceGrowth) {
+        super(directory, "IVF", MAGIC, VERSION);
+        this.nlist = Optional.ofNullable(nlist).orElse(0);
+        this.nprobe = Optional.ofNullable(nprobe).orElse(16);
+        this.minTrainSize = Optional.ofNullable(minTrainSize).orElse(4096);
+        this.rebalanceGrowth = Optional.ofNullable(rebalanceGrowth).orElse(1.0);
+
+        try {
+            Files.createDirectories(directory);
+            long payloadsEnd = 0L;
+            int generation = 0;
+            try (DataInputStream in = openHeader()) {
+                if (in != null) {
+                    int dimension = in.readInt();
+                    generation = in.readInt();
+                    int count = in.readInt();
+                    this.deletedCount = in.readInt();
+                    this.trainedCount = in.readInt();
+                    payloadsEnd = in.readLong();
+                    long listsEnd = in.readLong();
+                    int listCount = in.readInt();
+                    long[] firstBlocks = new long[listCount];
+                    long[] lastBlocks = new long[listCount];
+                    int[] sizes = new int[listCount];
+                    for (int list = 0; list < listCount; list++) {
+                        firstBlocks[list] = in.readLong();
+                        lastBlocks[list] = in.readLong();
+                        sizes[list] = in.readInt();
+                    }
+                    this.lists = new IvfLists(directory, generation, dimension,
+                            IvfLists.readCentroids(directory, generation),
+                            firstBlocks, lastBlocks, sizes, count, listsEnd);
+                    for (int row = 0; row < lists.getCount(); row++) {
+                        if (lists.isDeleted(row)) {
+                            deleted.set(row);
+                        }
+                    }
+                    log.debug("Opened IVF index {} with {} rows in {} lists",
+                            directory, lists.getCount(), lists.listCount());
+                }
+            }
+            this.payloads = new PayloadStore(payloadsFile(generation), payloadsEnd);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open IVF index in " + directory, e);
+        }
+    }
+
+    @Override
+    protected void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded)
+            throws IOException {
+        if (lists == null) {
+            int dimension = embeddings.get(0).dimension();
+            // 训练前只有一个倒排链
+            lists = IvfLists.create(directory, 0, dimension, new float[1][dimension]);
+        }
+        Map<String, Integer> index = idIndex();
+        for (int i = 0; i < ids.size(); i++) {
+            float[] vector = embeddings.get(i).vector();
+            checkDimension(vector, lists.getDimension());
+            String id = ids.get(i);
+            Integer previous = index.get(id);
+            if (previous != null) {
+                // 同一 id 重复写入时覆盖旧记录
+                markDeleted(previous);
+            }
+            float norm = Vectors.norm(vector);
+            long payload = payloads.append(id, embedded == null ? null : embedded.get(i));
+            index.put(id, lists.append(Vectors.normalize(vector, norm), norm, payload));
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        int maxResults = request.maxResults();
+        double minScore = request.minScore();
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (lists == null || lists.getCount() - deletedCount <= 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != lists.getDimension()) {
+                throw new IllegalArgumentException(String.format(
+                        "Query embedding dimension %d does not match the index dimension %d",
+                        query.length, lists.getDimension()));
+            }
+            float[] normalized = Vectors.normalize(query, Vectors.norm(query));
+            // 相关性得分 (cos + 1) / 2 >= minScore 等价于 cos >= 2 * minScore - 1
+            float minSimilarity = (float) (2 * minScore - 1);
+            float[] buffer = scanBuffer();
+            int count = lists.getCount();
+
+            int probes = Math.min(nprobe, lists.listCount());
+            TopK topK;
+            while (true) {
+                TopK current = new TopK(maxResults);
+                for (int list : lists.probe(normalized, probes)) {
+                    lists.scan(list, normalized, buffer, (row, similarity) -> {
+                        if (row >= count || deleted.get(row)
+                            || similarity < minSimilarity || similarity <= current.threshold()) {
+                            return;
+                        }
+                        if (filter != null && !filter.test(payloads.readMetadata(lists.payload(row)))) {
+                            return;
+                        }
+                        current.offer(row, similarity);
+                    });
+                }
+                topK = current;
+                // 过滤条件导致结果不足时扩大探测的倒排链数量
+                if (filter == null || topK.size() >= maxResults || probes >= lists.listCount()) {
+                    break;
+                }
+                probes = Math.min(probes * 2, lists.listCount());
+            }
+
+            int[] rows = new int[topK.size()];
+            float[] similarities = new float[topK.size()];
+            int size = topK.drainDescending(rows, similarities);
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                long payload = lists.payload(rows[i]);
+                matches.add(new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(similarities[i]),
+                        payloads.readId(payload), Embedding.from(vector(rows[i])), payloads.readSegment(payload)));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            if (lists == null) {
+                return;
+            }
+            IvfLists previous = lists;
+            PayloadStore previousPayloads = payloads;
+            int generation = previous.getGeneration() + 1;
+            lists = IvfLists.create(directory, generation, previous.getDimension(),
+                    new float[1][previous.getDimension()]);
+            payloads = createPayloads(generation);
+            deleted.clear();
+            deletedCount = 0;
+            trainedCount = 0;
+            resetIdIndex();
+            commit();
+            previous.delete();
+            previousPayloads.delete();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear IVF index in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 达到训练条件时重新训练质心并重写倒排链，返回是否进行了重建（重建时已提交）
+     */
+    @Override
+    protected boolean compactIfNeeded() throws IOException {
+        int live = lists.getCount() - deletedCount;
+        boolean rebalance;
+        if (trainedCount == 0) {
+            rebalance = live >= minTrainSize;
+        } else {
+            rebalance = (rebalanceGrowth > 0 && live >= trainedCount * (1 + rebalanceGrowth))
+                        || deletedCount > live;
+        }
+        if (!rebalance || live == 0) {
+            return false;
+        }
+        rebuild(live);
+        return true;
+    }
+
+    private void rebuild(int live) throws IOException {
+        long start = System.currentTimeMillis();
+        int dimension = lists.getDimension();
+        int[] liveRows = new int[live];
+        int n = 0;
+        for (int row = 0; row < lists.getCount(); row++) {
+            if (!deleted.get(row)) {
+                liveRows[n++] = row;
+            }
+        }
+
+        int listCount = nlist > 0 ? nlist : (int) Math.round(Math.sqrt(live));
+        listCount = Math.max(1, Math.min(Math.min(listCount, MAX_LISTS), live));
+        Random random = new Random(live);
+        int sampleSize = (int) Math.min(live, (long) listCount * SAMPLES_PER_CENTROID);
+        List<float[]> samples = new ArrayList<>(sampleSize);
+        int[] order = liveRows.clone();
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(order.length - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            float[] vector = new float[dimension];
+            lists.readVector(order[i], vector);
+            samples.add(vector);
+        }
+        float[][] centroids = KMeans.train(samples, listCount, TRAINING_ITERATIONS, random);
+
+        IvfLists previous = lists;
+        int[] assignments = new int[live];
+        IntStream.range(0, live).parallel().forEach(i -> {
+            float[] vector = new float[dimension];
+            previous.readVector(liveRows[i], vector);
+            assignments[i] = KMeans.nearest(centroids, vector);
+        });
+
+        IvfLists next = IvfLists.create(directory, previous.getGeneration() + 1, dimension, centroids);
+        PayloadStore previousPayloads = payloads;
+        PayloadStore nextPayloads = createPayloads(next.getGeneration());
+        float[] vector = new float[dimension];
+        for (int i = 0; i < live; i++) {
+            previous.readVector(liveRows[i], vector);
+            long payload = previousPayloads.copyTo(previous.payload(liveRows[i]), nextPayloads);
+            next.append(assignments[i], vector, previous.norm(liveRows[i]), payload);
+        }
+
+        lists = next;
+        payloads = nextPayloads;
+        deleted.clear();
+        deletedCount = 0;
+        trainedCount = live;
+        resetIdIndex();
+        commit();
+        previous.delete();
+        previousPayloads.delete();
+        log.info("Trained IVF index {} with {} lists over {} vectors in {} ms",
+                directory.getFileName(), listCount, live, System.currentTimeMillis() - start);
+    }
+
+    private PayloadStore createPayloads(int generation) throws IOException {
+        Files.deleteIfExists(payloadsFile(generation));
+        return new PayloadStore(payloadsFile(generation), 0L);
+    }
+
+    private Path payloadsFile(int generation) {
+        return directory.resolve("payloads-" + generation + ".bin");
+    }
+
+    @Override
+    protected int rowCount() {
+        return lists == null ? 0 : lists.getCount();
+    }
+
+    @Override
+    protected boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    @Override
+    protected void markDeleted(int row) {
+        lists.markDeleted(row);
+        deleted.set(row);
+        deletedCount++;
+    }
+
+    private float[] vector(int row) {
+        float[] vector = new float[lists.getDimension()];
+        lists.readVector(row, vector);
+        float norm = lists.norm(row);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= norm;
+        }
+        return vector;
+    }
+
+    private float[] scanBuffer() {
+        int size = IvfLists.MAX_BLOCK_CAPACITY * lists.getDimension();
+        float[] buffer = scanBuffer.get();
+        if (buffer == null || buffer.length != size) {
+            buffer = new float[size];
+            scanBuffer.set(buffer);
+        }
+        return buffer;
+    }
+
+    @Override
+    protected long payload(int row) {
+        return lists.payload(row);
+    }
+
+    @Override
+    protected PayloadStore payloads() {
+        return payloads;
+    }
+
+    @Override
+    protected void flush() {
+        lists.force();
+        payloads.force();
+    }
+
+    @Override
+    protected void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(lists.getDimension());
+        out.writeInt(lists.getGeneration());
+        out.writeInt(lists.getCount());
+        out.writeInt(deletedCount);
+        out.writeInt(trainedCount);
+        out.writeLong(payloads.end());
+        out.writeLong(lists.getListsEnd());
+        out.writeInt(lists.listCount());
+        for (int list = 0; list < lists.listCount(); list++) {
+            out.writeLong(lists.firstBlock(list));
+            out.writeLong(lists.lastBlock(list));
+            out.writeInt(lists.size(list));
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (lists != null) {
+                lists.close();
+            }
+            payloads.close();
+        } catch (IOException e) {
+            log.warn("Failed to close IVF index {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
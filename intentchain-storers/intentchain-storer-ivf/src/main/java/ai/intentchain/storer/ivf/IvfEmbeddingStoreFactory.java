@@ -0,0 +1,122 @@
+package ai.intentchain.storer.ivf;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingStoreFactory;
+import ai.intentchain.core.utils.FactoryUtil;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public class IvfEmbeddingStoreFactory implements EmbeddingStoreFactory {
+
+    public static final String IDENTIFIER = "ivf";
+
+    public static final ConfigOption<String> DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            IVF embedding store directory, each store is kept in a sub directory named by the store id.
+                            The project mode does not need to be filled in by default and is stored \
+                            in the project root directory under the .intentchain directory, \
+                            directories with the prefix 'embeddings_'.
+                            """);
+
+    public static final ConfigOption<Integer> NLIST =
+            ConfigOptions.key("nlist")
+                    .intType()
+                    .defaultValue(0)
+                    .withDescription("The number of inverted lists (coarse centroids), " +
+                                     "0 means the square root of the number of vectors at training time");
+
+    public static final ConfigOption<Integer> NPROBE =
+            ConfigOptions.key("nprobe")
+                    .intType()
+                    .defaultValue(16)
+                    .withDescription("The number of inverted lists scanned per query, " +
+                                     "higher values improve recall at the cost of latency");
+
+    public static final ConfigOption<Integer> MIN_TRAIN_SIZE =
+            ConfigOptions.key("min-train-size")
+                    .intType()
+                    .defaultValue(4096)
+                    .withDescription("The number of vectors from which the centroids are trained, " +
+                                     "smaller stores are searched exhaustively");
+
+    public static final ConfigOption<Double> REBALANCE_GROWTH =
+            ConfigOptions.key("rebalance-growth")
+                    .doubleType()
+                    .defaultValue(1.0)
+                    .withDescription("Retrain the centroids when the number of vectors has grown by this ratio " +
+                                     "since the last training, 0 disables growth based retraining");
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return new LinkedHashSet<>(List.of(DIRECTORY, NLIST, NPROBE, MIN_TRAIN_SIZE, REBALANCE_GROWTH));
+    }
+
+    @Override
+    public Set<ConfigOption<?>> fingerprintOptions() {
+        return new LinkedHashSet<>(List.of(DIRECTORY, NLIST));
+    }
+
+    @Override
+    public EmbeddingStore<TextSegment> create(String storeId, ReadableConfig config) {
+        FactoryUtil.validateFactoryOptions(this, config);
+        Integer nlist = config.get(NLIST);
+        Preconditions.checkArgument(nlist >= 0,
+                "'" + NLIST.key() + "' value must be greater than or equal to 0");
+        Integer nprobe = config.get(NPROBE);
+        Preconditions.checkArgument(nprobe > 0,
+                "'" + NPROBE.key() + "' value must be greater than 0");
+        Integer minTrainSize = config.get(MIN_TRAIN_SIZE);
+        Preconditions.checkArgument(minTrainSize > 0,
+                "'" + MIN_TRAIN_SIZE.key() + "' value must be greater than 0");
+        Double rebalanceGrowth = config.get(REBALANCE_GROWTH);
+        Preconditions.checkArgument(rebalanceGrowth >= 0,
+                "'" + REBALANCE_GROWTH.key() + "' value must be greater than or equal to 0");
+
+        Path directory = config.getOptional(DIRECTORY)
+                .map(Path::of)
+                .orElseGet(() -> {
+                    try {
+                        Path tempDir = Files.createTempDirectory("intentchain-ivf-");
+                        log.info("'{}' is not set, the IVF embedding store is kept in {}", DIRECTORY.key(), tempDir);
+                        return tempDir;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return IvfEmbeddingStore.builder()
+                .directory(directory.resolve(storeId))
+                .nlist(nlist)
+                .nprobe(nprobe)
+                .minTrainSize(minTrainSize)
+                .rebalanceGrowth(rebalanceGrowth)
+                .build();
+    }
+}
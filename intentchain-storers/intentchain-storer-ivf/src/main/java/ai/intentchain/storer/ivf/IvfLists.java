@@ -0,0 +1,308 @@
+package ai.intentchain.storer.ivf;
+
+import ai.intentchain.storer.common.MappedFile;
+import ai.intentchain.storer.common.TopK;
+import ai.intentchain.storer.common.Vectors;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 一代 IVF 倒排表数据：质心、行记录与倒排链
+ * <p>
+ * 每个倒排链由若干块组成，块容量从 {@value #MIN_BLOCK_CAPACITY} 起倍增至 {@value #MAX_BLOCK_CAPACITY}，
+ * 同一块内的向量连续存放，检索时按块顺序读取。块格式（小端）：
+ * <pre>
+ * long next | int capacity | int count | int[capacity] rows | float[capacity * dim] vectors
+ * </pre>
+ * 行记录保存 payload 偏移、向量位置、删除标记和原始模长。本类不是线程安全的，由 {@link IvfEmbeddingStore} 负责加锁。
+ */
+class IvfLists implements AutoCloseable {
+
+    static final int ROW_SIZE = 24;
+    private static final int ROW_PAYLOAD = 0;
+    private static final int ROW_VECTOR = 8;
+    private static final int ROW_FLAGS = 16;
+    private static final int ROW_NORM = 20;
+
+    private static final int BLOCK_NEXT = 0;
+    private static final int BLOCK_CAPACITY = 8;
+    private static final int BLOCK_COUNT = 12;
+    private static final int BLOCK_ROWS = 16;
+
+    static final int MIN_BLOCK_CAPACITY = 16;
+    static final int MAX_BLOCK_CAPACITY = 1024;
+
+    private static final int FLAG_DELETED = 1;
+
+    @Getter
+    private final int generation;
+    @Getter
+    private final int dimension;
+    @Getter
+    private final float[][] centroids;
+    private final long[] firstBlocks;
+    private final long[] lastBlocks;
+    private final int[] sizes;
+
+    private final Path directory;
+    private final MappedFile rows;
+    private final MappedFile lists;
+
+    @Getter
+    private int count;
+    @Getter
+    private long listsEnd;
+
+    IvfLists(@NonNull Path directory, int generation, int dimension, @NonNull float[][] centroids,
+             long[] firstBlocks, long[] lastBlocks, int[] sizes, int count, long listsEnd) throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.dimension = dimension;
+        this.centroids = centroids;
+        this.firstBlocks = firstBlocks;
+        this.lastBlocks = lastBlocks;
+        this.sizes = sizes;
+        this.count = count;
+        this.listsEnd = listsEnd;
+        this.rows = new MappedFile(rowsFile(directory, generation),
+                MappedFile.DEFAULT_SEGMENT_SIZE / ROW_SIZE * ROW_SIZE);
+        this.lists = new MappedFile(listsFile(directory, generation), MappedFile.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * 创建新一代的空倒排表，并持久化质心
+     */
+    static IvfLists create(Path directory, int generation, int dimension, float[][] centroids) throws IOException {
+        int nlist = centroids.length;
+        long[] firstBlocks = new long[nlist];
+        long[] lastBlocks = new long[nlist];
+        Arrays.fill(firstBlocks, -1L);
+        Arrays.fill(lastBlocks, -1L);
+        Files.deleteIfExists(rowsFile(directory, generation));
+        Files.deleteIfExists(listsFile(directory, generation));
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(centroidsFile(directory, generation))))) {
+            out.writeInt(nlist);
+            out.writeInt(dimension);
+            for (float[] centroid : centroids) {
+                for (float v : centroid) {
+                    out.writeFloat(v);
+                }
+            }
+        }
+        return new IvfLists(directory, generation, dimension, centroids,
+                firstBlocks, lastBlocks, new int[nlist], 0, 0L);
+    }
+
+    static float[][] readCentroids(Path directory, int generation) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(centroidsFile(directory, generation))))) {
+            int nlist = in.readInt();
+            int dimension = in.readInt();
+            float[][] centroids = new float[nlist][dimension];
+            for (float[] centroid : centroids) {
+                for (int i = 0; i < dimension; i++) {
+                    centroid[i] = in.readFloat();
+                }
+            }
+            return centroids;
+        }
+    }
+
+    int listCount() {
+        return centroids.length;
+    }
+
+    long firstBlock(int list) {
+        return firstBlocks[list];
+    }
+
+    long lastBlock(int list) {
+        return lastBlocks[list];
+    }
+
+    int size(int list) {
+        return sizes[list];
+    }
+
+    /**
+     * 追加一个已归一化的向量到最近的倒排链，返回行号
+     */
+    int append(float[] vector, float norm, long payload) throws IOException {
+        return append(nearestList(vector), vector, norm, payload);
+    }
+
+    int append(int list, float[] vector, float norm, long payload) throws IOException {
+        long block = lastBlocks[list];
+        int capacity = 0;
+        int used = 0;
+        if (block >= 0) {
+            MappedByteBuffer buffer = lists.segment(block);
+            int offset = lists.offset(block);
+            capacity = buffer.getInt(offset + BLOCK_CAPACITY);
+            used = buffer.getInt(offset + BLOCK_COUNT);
+        }
+        if (block < 0 || used == capacity) {
+            int newCapacity = block < 0 ? MIN_BLOCK_CAPACITY : Math.min(MAX_BLOCK_CAPACITY, capacity * 2);
+            long newBlock = allocateBlock(newCapacity);
+            if (block >= 0) {
+                lists.segment(block).putLong(lists.offset(block) + BLOCK_NEXT, newBlock);
+            } else {
+                firstBlocks[list] = newBlock;
+            }
+            lastBlocks[list] = newBlock;
+            block = newBlock;
+            capacity = newCapacity;
+            used = 0;
+        }
+
+        int row = count;
+        MappedByteBuffer buffer = lists.segment(block);
+        int offset = lists.offset(block);
+        buffer.putInt(offset + BLOCK_ROWS + 4 * used, row);
+        long vectorPosition = block + vectorsOffset(capacity) + (long) used * dimension * 4;
+        lists.writeFloats(vectorPosition, vector);
+        buffer.putInt(offset + BLOCK_COUNT, used + 1);
+
+        long rowPosition = (long) row * ROW_SIZE;
+        rows.ensureCapacity(rowPosition + ROW_SIZE);
+        MappedByteBuffer rowBuffer = rows.segment(rowPosition);
+        int rowOffset = rows.offset(rowPosition);
+        rowBuffer.putLong(rowOffset + ROW_PAYLOAD, payload);
+        rowBuffer.putLong(rowOffset + ROW_VECTOR, vectorPosition);
+        rowBuffer.putInt(rowOffset + ROW_FLAGS, 0);
+        rowBuffer.putFloat(rowOffset + ROW_NORM, norm);
+        sizes[list]++;
+        count++;
+        return row;
+    }
+
+    private long allocateBlock(int capacity) throws IOException {
+        long size = vectorsOffset(capacity) + (long) capacity * dimension * 4;
+        long block = lists.align(listsEnd, (int) size);
+        lists.ensureCapacity(block + size);
+        MappedByteBuffer buffer = lists.segment(block);
+        int offset = lists.offset(block);
+        buffer.putLong(offset + BLOCK_NEXT, -1L);
+        buffer.putInt(offset + BLOCK_CAPACITY, capacity);
+        buffer.putInt(offset + BLOCK_COUNT, 0);
+        listsEnd = block + size;
+        return block;
+    }
+
+    private static int vectorsOffset(int capacity) {
+        return BLOCK_ROWS + 4 * capacity;
+    }
+
+    int nearestList(float[] vector) {
+        return KMeans.nearest(centroids, vector);
+    }
+
+    /**
+     * 返回与查询向量最相似的 nprobe 个倒排链编号
+     */
+    int[] probe(float[] query, int nprobe) {
+        TopK topK = new TopK(Math.min(nprobe, centroids.length));
+        for (int list = 0; list < centroids.length; list++) {
+            topK.offer(list, Vectors.dot(centroids[list], query));
+        }
+        int[] result = new int[topK.size()];
+        topK.drainDescending(result, null);
+        return result;
+    }
+
+    /**
+     * 按块顺序扫描倒排链中的全部向量（包括已删除的行，由调用方过滤）
+     *
+     * @param buffer 至少 {@value #MAX_BLOCK_CAPACITY} * dim 大小的缓冲区
+     */
+    void scan(int list, float[] query, float[] buffer, RowVisitor visitor) {
+        long block = firstBlocks[list];
+        while (block >= 0) {
+            MappedByteBuffer blockBuffer = lists.segment(block);
+            int offset = lists.offset(block);
+            int capacity = blockBuffer.getInt(offset + BLOCK_CAPACITY);
+            int used = blockBuffer.getInt(offset + BLOCK_COUNT);
+            lists.readFloats(block + vectorsOffset(capacity), buffer, used * dimension);
+            for (int slot = 0; slot < used; slot++) {
+                int row = blockBuffer.getInt(offset + BLOCK_ROWS + 4 * slot);
+                visitor.visit(row, Vectors.dot(buffer, slot * dimension, query, dimension));
+            }
+            block = blockBuffer.getLong(offset + BLOCK_NEXT);
+        }
+    }
+
+    long payload(int row) {
+        long position = (long) row * ROW_SIZE;
+        return rows.segment(position).getLong(rows.offset(position) + ROW_PAYLOAD);
+    }
+
+    float norm(int row) {
+        long position = (long) row * ROW_SIZE;
+        return rows.segment(position).getFloat(rows.offset(position) + ROW_NORM);
+    }
+
+    /**
+     * 读取行对应的归一化向量
+     */
+    void readVector(int row, float[] dst) {
+        long position = (long) row * ROW_SIZE;
+        lists.readFloats(rows.segment(position).getLong(rows.offset(position) + ROW_VECTOR), dst);
+    }
+
+    boolean isDeleted(int row) {
+        long position = (long) row * ROW_SIZE;
+        return (rows.segment(position).getInt(rows.offset(position) + ROW_FLAGS) & FLAG_DELETED) != 0;
+    }
+
+    void markDeleted(int row) {
+        long position = (long) row * ROW_SIZE;
+        MappedByteBuffer buffer = rows.segment(position);
+        int offset = rows.offset(position) + ROW_FLAGS;
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+    }
+
+    void force() {
+        rows.force();
+        lists.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.close();
+        lists.close();
+    }
+
+    /**
+     * 关闭并删除本代的数据文件
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(rowsFile(directory, generation));
+        Files.deleteIfExists(listsFile(directory, generation));
+        Files.deleteIfExists(centroidsFile(directory, generation));
+    }
+
+    private static Path rowsFile(Path directory, int generation) {
+        return directory.resolve("rows-" + generation + ".bin");
+    }
+
+    private static Path listsFile(Path directory, int generation) {
+        return directory.resolve("lists-" + generation + ".bin");
+    }
+
+    private static Path centroidsFile(Path directory, int generation) {
+        return directory.resolve("centroids-" + generation + ".bin");
+    }
+
+    @FunctionalInterface
+    interface RowVisitor {
+        void visit(int row, float similarity);
+    }
+}
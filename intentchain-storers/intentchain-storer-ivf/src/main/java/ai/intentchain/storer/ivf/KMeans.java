@@ -0,0 +1,86 @@
+package ai.intentchain.storer.ivf;
+
+import ai.intentchain.storer.common.Vectors;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 球面 k-means：样本与质心均为单位向量，以点积作为相似度，质心每轮取簇内均值后重新归一化
+ */
+final class KMeans {
+
+    private KMeans() {
+    }
+
+    static float[][] train(List<float[]> samples, int k, int iterations, Random random) {
+        int dimension = samples.get(0).length;
+        float[][] centroids = new float[k][];
+        int[] order = IntStream.range(0, samples.size()).toArray();
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(order.length - i);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            centroids[i] = samples.get(order[i]).clone();
+        }
+
+        int[] assignments = new int[samples.size()];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            float[][] current = centroids;
+            IntStream.range(0, samples.size())
+                    .parallel()
+                    .forEach(i -> assignments[i] = nearest(current, samples.get(i)));
+
+            float[][] sums = new float[k][dimension];
+            int[] counts = new int[k];
+            for (int i = 0; i < samples.size(); i++) {
+                float[] sum = sums[assignments[i]];
+                float[] sample = samples.get(i);
+                for (int d = 0; d < dimension; d++) {
+                    sum[d] += sample[d];
+                }
+                counts[assignments[i]]++;
+            }
+            float[][] next = new float[k][];
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // 空簇用随机样本重新初始化
+                    next[c] = samples.get(random.nextInt(samples.size())).clone();
+                } else {
+                    next[c] = normalize(sums[c]);
+                }
+            }
+            centroids = next;
+        }
+        return centroids;
+    }
+
+    static int nearest(float[][] centroids, float[] vector) {
+        int best = 0;
+        float bestSimilarity = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            float similarity = Vectors.dot(centroids[c], vector);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sum = 0.0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        float norm = (float) Math.sqrt(sum);
+        if (norm > 0f) {
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,107 @@
+package ai.intentchain.storer.quantized;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * 向量量化方式
+ * <p>
+ * 量化编码只用于第一轮候选召回，最终得分由全精度向量重新计算。
+ */
+public enum Quantization {
+
+    /**
+     * 逐向量最大绝对值缩放的 int8 标量量化，内存为 float32 的 1/4
+     */
+    INT8 {
+        @Override
+        public int codeSize(int dimension) {
+            return dimension;
+        }
+
+        @Override
+        public float encode(float[] vector, byte[] codes, int offset) {
+            float max = 0f;
+            for (float v : vector) {
+                max = Math.max(max, Math.abs(v));
+            }
+            float scale = max == 0f ? 0f : max / 127f;
+            float inverse = scale == 0f ? 0f : 1f / scale;
+            for (int i = 0; i < vector.length; i++) {
+                codes[offset + i] = (byte) Math.round(vector[i] * inverse);
+            }
+            return scale;
+        }
+
+        @Override
+        public float score(byte[] query, float queryScale, byte[] codes, int offset, float scale, int codeSize) {
+            int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            int bound = codeSize & ~3;
+            for (; i < bound; i += 4) {
+                s0 += query[i] * codes[offset + i];
+                s1 += query[i + 1] * codes[offset + i + 1];
+                s2 += query[i + 2] * codes[offset + i + 2];
+                s3 += query[i + 3] * codes[offset + i + 3];
+            }
+            for (; i < codeSize; i++) {
+                s0 += query[i] * codes[offset + i];
+            }
+            return (s0 + s1 + s2 + s3) * queryScale * scale;
+        }
+    },
+
+    /**
+     * 符号位二值量化，以汉明距离近似余弦距离，内存为 float32 的 1/32
+     */
+    BINARY {
+        @Override
+        public int codeSize(int dimension) {
+            return (dimension + 63) / 64 * 8;
+        }
+
+        @Override
+        public float encode(float[] vector, byte[] codes, int offset) {
+            int size = codeSize(vector.length);
+            for (int i = 0; i < size; i++) {
+                codes[offset + i] = 0;
+            }
+            for (int i = 0; i < vector.length; i++) {
+                if (vector[i] > 0f) {
+                    codes[offset + (i >>> 3)] |= (byte) (1 << (i & 7));
+                }
+            }
+            return 1f;
+        }
+
+        @Override
+        public float score(byte[] query, float queryScale, byte[] codes, int offset, float scale, int codeSize) {
+            int hamming = 0;
+            for (int i = 0; i < codeSize; i += 8) {
+                long a = (long) LONGS.get(query, i);
+                long b = (long) LONGS.get(codes, offset + i);
+                hamming += Long.bitCount(a ^ b);
+            }
+            return -hamming;
+        }
+    };
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * 单个向量编码后的字节数
+     */
+    public abstract int codeSize(int dimension);
+
+    /**
+     * 将归一化后的向量编码写入 codes[offset, offset + codeSize)，返回解码所需的缩放系数
+     */
+    public abstract float encode(float[] vector, byte[] codes, int offset);
+
+    /**
+     * 计算查询编码与存储编码的近似相似度，值越大越相似
+     */
+    public abstract float score(byte[] query, float queryScale, byte[] codes, int offset, float scale, int codeSize);
+}
@@ -0,0 +1,563 @@
+package ai.intentchain.storer.quantized;
+
+import ai.intentchain.storer.common.AbstractLocalEmbeddingStore;
+import ai.intentchain.storer.common.MappedFile;
+import ai.intentchain.storer.common.PayloadStore;
+import ai.intentchain.storer.common.TopK;
+import ai.intentchain.storer.common.Vectors;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.*;
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 量化向量存储
+ * <p>
+ * 堆内只保留 int8 或二值量化编码用于第一轮扫描，召回 maxResults * oversampling 个候选后，
+ * 再用内存映射文件中的全精度向量重新计算余弦相似度并排序。删除为逻辑删除，已删除的行多于存活的行时，
+ * 将存活的行写入新一代文件并重建堆内编码，通过原子替换索引头切换后删除旧文件。目录结构：
+ * <ul>
+ *     <li>index.hdr：索引头（当前代、维度、行数等），通过临时文件原子替换写入</li>
+ *     <li>rows-&lt;gen&gt;.bin：定长行记录（payload 偏移、删除标记、模长、量化缩放系数）</li>
+ *     <li>codes-&lt;gen&gt;.bin：量化编码，打开时整体加载到堆内</li>
+ *     <li>vectors-&lt;gen&gt;.bin：归一化后的全精度向量，仅在重排时按需读取</li>
+ *     <li>payloads-&lt;gen&gt;.bin：id、文本及元数据</li>
+ * </ul>
+ */
+@Slf4j
+public class QuantizedEmbeddingStore extends AbstractLocalEmbeddingStore {
+
+    private static final int MAGIC = 0x544E5551; // "QUNT"
+    private static final int VERSION = 2;
+
+    private static final int ROW_SIZE = 24;
+    private static final int ROW_PAYLOAD = 0;
+    private static final int ROW_FLAGS = 8;
+    private static final int ROW_NORM = 12;
+    private static final int ROW_SCALE = 16;
+
+    private static final int FLAG_DELETED = 1;
+
+    // 堆内编码按块分配，避免单个数组超过 2GB 以及扩容时整体复制
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private static final int RECALL_K = 10;
+
+    private final double oversampling;
+    private final int recallSampleSize;
+
+    private PayloadStore payloads;
+    private int generation;
+    private Quantization quantization;
+    private int dimension = -1;
+    private int codeSize;
+    private int vectorStride;
+    private MappedFile rows;
+    private MappedFile codes;
+    private MappedFile vectors;
+
+    private int count;
+    private int deletedCount;
+    private final List<byte[]> codeChunks = new ArrayList<>();
+    private float[] scales = new float[0];
+    private final BitSet deleted = new BitSet();
+    private boolean modified;
+
+    @Builder
+    public QuantizedEmbeddingStore(@NonNull Path directory,
+                                   Quantization quantization,
+                                   Double oversampling,
+                                   Integer recallSampleSize) {
+        super(directory, "quantized", MAGIC, VERSION);
+        this.quantization = Optional.ofNullable(quantization).orElse(Quantization.INT8);
+        this.oversampling = Optional.ofNullable(oversampling).orElse(4.0);
+        this.recallSampleSize = Optional.ofNullable(recallSampleSize).orElse(0);
+
+        try {
+            Files.createDirectories(directory);
+            long payloadsEnd = 0L;
+            try (DataInputStream in = openHeader()) {
+                if (in != null) {
+                    this.generation = in.readInt();
+                    int storedDimension = in.readInt();
+                    Quantization storedQuantization = Quantization.values()[in.readInt()];
+                    this.count = in.readInt();
+                    this.deletedCount = in.readInt();
+                    payloadsEnd = in.readLong();
+                    if (storedQuantization != this.quantization) {
+                        log.warn("Quantized index in {} was built with {} quantization, the stored one is used",
+                                directory, storedQuantization);
+                        this.quantization = storedQuantization;
+                    }
+                    openFiles(storedDimension);
+                    load();
+                    log.debug("Opened quantized index {} with {} rows", directory, count);
+                }
+            }
+            this.payloads = new PayloadStore(dataFile("payloads", generation), payloadsEnd);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open quantized index in " + directory, e);
+        }
+    }
+
+    private void openFiles(int dimension) throws IOException {
+        this.dimension = dimension;
+        this.codeSize = quantization.codeSize(dimension);
+        this.vectorStride = (dimension * 4 + 7) & ~7;
+        this.rows = openRows(generation);
+        this.codes = openCodes(generation);
+        this.vectors = openVectors(generation);
+    }
+
+    // 段大小取块大小/记录大小的整数倍，保证块和记录不跨段
+    private MappedFile openRows(int generation) throws IOException {
+        return new MappedFile(dataFile("rows", generation),
+                MappedFile.DEFAULT_SEGMENT_SIZE / ROW_SIZE * ROW_SIZE);
+    }
+
+    private MappedFile openCodes(int generation) throws IOException {
+        long chunkBytes = (long) CHUNK_ROWS * codeSize;
+        return new MappedFile(dataFile("codes", generation),
+                Math.max(1, MappedFile.DEFAULT_SEGMENT_SIZE / chunkBytes) * chunkBytes);
+    }
+
+    private MappedFile openVectors(int generation) throws IOException {
+        return new MappedFile(dataFile("vectors", generation),
+                MappedFile.DEFAULT_SEGMENT_SIZE / vectorStride * vectorStride);
+    }
+
+    private Path dataFile(String name, int generation) {
+        return directory.resolve(name + "-" + generation + ".bin");
+    }
+
+    /**
+     * 将量化编码、缩放系数和删除标记加载到堆内
+     */
+    private void load() {
+        scales = new float[Math.max(count, 16)];
+        for (int row = 0; row < count; row++) {
+            long position = (long) row * ROW_SIZE;
+            MappedByteBuffer buffer = rows.segment(position);
+            int offset = rows.offset(position);
+            scales[row] = buffer.getFloat(offset + ROW_SCALE);
+            if ((buffer.getInt(offset + ROW_FLAGS) & FLAG_DELETED) != 0) {
+                deleted.set(row);
+            }
+        }
+        for (int start = 0; start < count; start += CHUNK_ROWS) {
+            byte[] chunk = new byte[CHUNK_ROWS * codeSize];
+            long position = (long) start * codeSize;
+            int length = Math.min(CHUNK_ROWS, count - start) * codeSize;
+            codes.segment(position).get(codes.offset(position), chunk, 0, length);
+            codeChunks.add(chunk);
+        }
+    }
+
+    @Override
+    protected void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded)
+            throws IOException {
+        if (dimension < 0) {
+            openFiles(embeddings.get(0).dimension());
+        }
+        Map<String, Integer> index = idIndex();
+        for (int i = 0; i < ids.size(); i++) {
+            float[] vector = embeddings.get(i).vector();
+            checkDimension(vector, dimension);
+            String id = ids.get(i);
+            Integer previous = index.get(id);
+            if (previous != null) {
+                // 同一 id 重复写入时覆盖旧记录
+                markDeleted(previous);
+            }
+            int row = append(vector, payloads.append(id, embedded == null ? null : embedded.get(i)));
+            index.put(id, row);
+        }
+    }
+
+    private int append(float[] vector, long payload) throws IOException {
+        int row = count;
+        float norm = Vectors.norm(vector);
+        float[] normalized = Vectors.normalize(vector, norm);
+
+        int chunkIndex = row / CHUNK_ROWS;
+        if (chunkIndex == codeChunks.size()) {
+            codeChunks.add(new byte[CHUNK_ROWS * codeSize]);
+        }
+        byte[] chunk = codeChunks.get(chunkIndex);
+        int chunkOffset = (row % CHUNK_ROWS) * codeSize;
+        float scale = quantization.encode(normalized, chunk, chunkOffset);
+
+        long codePosition = (long) row * codeSize;
+        codes.ensureCapacity(codePosition + codeSize);
+        codes.segment(codePosition).put(codes.offset(codePosition), chunk, chunkOffset, codeSize);
+
+        long vectorPosition = (long) row * vectorStride;
+        vectors.ensureCapacity(vectorPosition + vectorStride);
+        vectors.writeFloats(vectorPosition, normalized);
+
+        long rowPosition = (long) row * ROW_SIZE;
+        rows.ensureCapacity(rowPosition + ROW_SIZE);
+        MappedByteBuffer buffer = rows.segment(rowPosition);
+        int offset = rows.offset(rowPosition);
+        buffer.putLong(offset + ROW_PAYLOAD, payload);
+        buffer.putInt(offset + ROW_FLAGS, 0);
+        buffer.putFloat(offset + ROW_NORM, norm);
+        buffer.putFloat(offset + ROW_SCALE, scale);
+
+        if (row == scales.length) {
+            scales = Arrays.copyOf(scales, Math.max(16, scales.length * 2));
+        }
+        scales[row] = scale;
+        count++;
+        modified = true;
+        return row;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        int maxResults = request.maxResults();
+        double minScore = request.minScore();
+
+        lock.readLock().lock();
+        try {
+            if (count - deletedCount <= 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException(String.format(
+                        "Query embedding dimension %d does not match the index dimension %d",
+                        query.length, dimension));
+            }
+            float[] normalized = Vectors.normalize(query, Vectors.norm(query));
+            TopK topK = search(normalized, maxResults, request.filter());
+            int[] ids = new int[topK.size()];
+            float[] similarities = new float[topK.size()];
+            int size = topK.drainDescending(ids, similarities);
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                double score = RelevanceScore.fromCosineSimilarity(similarities[i]);
+                if (score < minScore) {
+                    break;
+                }
+                long payload = payload(ids[i]);
+                matches.add(new EmbeddingMatch<>(score, payloads.readId(payload),
+                        Embedding.from(vector(ids[i])), payloads.readSegment(payload)));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 先用量化编码召回候选，再用全精度向量重排；过滤条件导致结果不足时逐步扩大候选数量
+     */
+    private TopK search(float[] query, int maxResults, Filter filter) {
+        byte[] queryCodes = new byte[codeSize];
+        float queryScale = quantization.encode(query, queryCodes, 0);
+        int live = count - deletedCount;
+        int candidates = (int) Math.min(live, Math.max(maxResults, Math.ceil(maxResults * oversampling)));
+        float[] buffer = new float[dimension];
+        while (true) {
+            int[] rowIds = firstPass(queryCodes, queryScale, candidates);
+            TopK topK = new TopK(maxResults);
+            for (int row : rowIds) {
+                if (filter != null && !filter.test(payloads.readMetadata(payload(row)))) {
+                    continue;
+                }
+                vectors.readFloats((long) row * vectorStride, buffer);
+                topK.offer(row, Vectors.dot(buffer, query));
+            }
+            if (topK.size() >= maxResults || candidates >= live) {
+                return topK;
+            }
+            candidates = (int) Math.min(live, (long) candidates * 2);
+        }
+    }
+
+    private int[] firstPass(byte[] queryCodes, float queryScale, int candidates) {
+        TopK topK = new TopK(candidates);
+        for (int chunkIndex = 0; chunkIndex < codeChunks.size(); chunkIndex++) {
+            byte[] chunk = codeChunks.get(chunkIndex);
+            int start = chunkIndex * CHUNK_ROWS;
+            int end = Math.min(count, start + CHUNK_ROWS);
+            for (int row = start; row < end; row++) {
+                if (deleted.get(row)) {
+                    continue;
+                }
+                topK.offer(row, quantization.score(queryCodes, queryScale,
+                        chunk, (row - start) * codeSize, scales[row], codeSize));
+            }
+        }
+        int[] rowIds = new int[topK.size()];
+        topK.drainDescending(rowIds, null);
+        return rowIds;
+    }
+
+    /**
+     * 以库中已有向量作为查询，比较量化检索与精确检索的 Top-K 结果，返回平均召回率
+     *
+     * @param sampleSize 抽样查询数量
+     * @param k          比较的结果数量
+     */
+    public double measureRecall(int sampleSize, int k) {
+        lock.readLock().lock();
+        try {
+            int live = count - deletedCount;
+            if (live <= 0 || sampleSize <= 0) {
+                return 1.0;
+            }
+            Random random = new Random(42);
+            float[] query = new float[dimension];
+            float[] buffer = new float[dimension];
+            double total = 0.0;
+            int samples = 0;
+            for (int attempt = 0; samples < sampleSize && attempt < sampleSize * 4; attempt++) {
+                int sample = random.nextInt(count);
+                if (deleted.get(sample)) {
+                    continue;
+                }
+                vectors.readFloats((long) sample * vectorStride, query);
+                TopK approximate = search(query, k, null);
+                TopK exact = new TopK(k);
+                for (int row = 0; row < count; row++) {
+                    if (!deleted.get(row)) {
+                        vectors.readFloats((long) row * vectorStride, buffer);
+                        exact.offer(row, Vectors.dot(buffer, query));
+                    }
+                }
+                int[] approximateIds = new int[approximate.size()];
+                approximate.drainDescending(approximateIds, null);
+                int[] exactIds = new int[exact.size()];
+                exact.drainDescending(exactIds, null);
+                Set<Integer> expected = new HashSet<>();
+                for (int id : exactIds) {
+                    expected.add(id);
+                }
+                int hits = 0;
+                for (int id : approximateIds) {
+                    if (expected.contains(id)) {
+                        hits++;
+                    }
+                }
+                total += (double) hits / exactIds.length;
+                samples++;
+            }
+            return samples == 0 ? 1.0 : total / samples;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            if (dimension < 0) {
+                return;
+            }
+            count = 0;
+            deletedCount = 0;
+            deleted.clear();
+            codeChunks.clear();
+            scales = new float[16];
+            payloads.reset();
+            resetIdIndex();
+            modified = true;
+            commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除的行多于存活的行时整理，返回是否进行了整理（整理时已提交）
+     */
+    @Override
+    protected boolean compactIfNeeded() throws IOException {
+        if (!needsCompaction(count, deletedCount)) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * 将存活的行按原顺序复制到新一代文件，同时重建堆内编码与缩放系数，切换索引头后删除旧一代文件
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        int nextGeneration = generation + 1;
+        for (String name : List.of("rows", "codes", "vectors", "payloads")) {
+            Files.deleteIfExists(dataFile(name, nextGeneration));
+        }
+        MappedFile nextRows = openRows(nextGeneration);
+        MappedFile nextCodes = openCodes(nextGeneration);
+        MappedFile nextVectors = openVectors(nextGeneration);
+        PayloadStore nextPayloads = new PayloadStore(dataFile("payloads", nextGeneration), 0L);
+        int live = count - deletedCount;
+        nextRows.ensureCapacity((long) live * ROW_SIZE);
+        nextCodes.ensureCapacity((long) live * codeSize);
+        nextVectors.ensureCapacity((long) live * vectorStride);
+        List<byte[]> nextChunks = new ArrayList<>();
+        float[] nextScales = new float[Math.max(live, 16)];
+        float[] vector = new float[dimension];
+        int next = 0;
+        for (int row = 0; row < count; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            if (next % CHUNK_ROWS == 0) {
+                nextChunks.add(new byte[CHUNK_ROWS * codeSize]);
+            }
+            byte[] chunk = nextChunks.get(next / CHUNK_ROWS);
+            int chunkOffset = (next % CHUNK_ROWS) * codeSize;
+            System.arraycopy(codeChunks.get(row / CHUNK_ROWS), (row % CHUNK_ROWS) * codeSize,
+                    chunk, chunkOffset, codeSize);
+            long codePosition = (long) next * codeSize;
+            nextCodes.segment(codePosition).put(nextCodes.offset(codePosition), chunk, chunkOffset, codeSize);
+
+            vectors.readFloats((long) row * vectorStride, vector);
+            nextVectors.writeFloats((long) next * vectorStride, vector);
+
+            long rowPosition = (long) row * ROW_SIZE;
+            MappedByteBuffer buffer = rows.segment(rowPosition);
+            int offset = rows.offset(rowPosition);
+            long nextPosition = (long) next * ROW_SIZE;
+            MappedByteBuffer nextBuffer = nextRows.segment(nextPosition);
+            int nextOffset = nextRows.offset(nextPosition);
+            long payload = payloads.copyTo(buffer.getLong(offset + ROW_PAYLOAD), nextPayloads);
+            nextBuffer.putLong(nextOffset + ROW_PAYLOAD, payload);
+            nextBuffer.putInt(nextOffset + ROW_FLAGS, 0);
+            nextBuffer.putFloat(nextOffset + ROW_NORM, buffer.getFloat(offset + ROW_NORM));
+            nextBuffer.putFloat(nextOffset + ROW_SCALE, scales[row]);
+            nextScales[next] = scales[row];
+            next++;
+        }
+
+        MappedFile previousRows = rows;
+        MappedFile previousCodes = codes;
+        MappedFile previousVectors = vectors;
+        PayloadStore previousPayloads = payloads;
+        int previousGeneration = generation;
+        rows = nextRows;
+        codes = nextCodes;
+        vectors = nextVectors;
+        payloads = nextPayloads;
+        generation = nextGeneration;
+        codeChunks.clear();
+        codeChunks.addAll(nextChunks);
+        scales = nextScales;
+        count = live;
+        deletedCount = 0;
+        deleted.clear();
+        resetIdIndex();
+        commit();
+        previousRows.close();
+        previousCodes.close();
+        previousVectors.close();
+        previousPayloads.delete();
+        for (String name : List.of("rows", "codes", "vectors")) {
+            Files.deleteIfExists(dataFile(name, previousGeneration));
+        }
+        log.info("Compacted quantized index {} to {} rows in {} ms",
+                directory.getFileName(), count, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    protected int rowCount() {
+        return count;
+    }
+
+    @Override
+    protected boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    @Override
+    protected void markDeleted(int row) {
+        long position = (long) row * ROW_SIZE;
+        MappedByteBuffer buffer = rows.segment(position);
+        int offset = rows.offset(position) + ROW_FLAGS;
+        buffer.putInt(offset, buffer.getInt(offset) | FLAG_DELETED);
+        deleted.set(row);
+        deletedCount++;
+        modified = true;
+    }
+
+    @Override
+    protected long payload(int row) {
+        long position = (long) row * ROW_SIZE;
+        return rows.segment(position).getLong(rows.offset(position) + ROW_PAYLOAD);
+    }
+
+    private float[] vector(int row) {
+        long position = (long) row * ROW_SIZE;
+        float norm = rows.segment(position).getFloat(rows.offset(position) + ROW_NORM);
+        float[] vector = new float[dimension];
+        vectors.readFloats((long) row * vectorStride, vector);
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= norm;
+        }
+        return vector;
+    }
+
+    @Override
+    protected PayloadStore payloads() {
+        return payloads;
+    }
+
+    @Override
+    protected void flush() {
+        rows.force();
+        codes.force();
+        vectors.force();
+        payloads.force();
+    }
+
+    @Override
+    protected void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(generation);
+        out.writeInt(dimension);
+        out.writeInt(quantization.ordinal());
+        out.writeInt(count);
+        out.writeInt(deletedCount);
+        out.writeLong(payloads.end());
+    }
+
+    @Override
+    public void close() {
+        if (recallSampleSize > 0 && modified && count - deletedCount > 0) {
+            log.info("Quantized index {} ({}, oversampling {}) recall@{}: {}", directory.getFileName(),
+                    quantization, oversampling, RECALL_K,
+                    String.format("%.4f", measureRecall(recallSampleSize, RECALL_K)));
+        }
+        lock.writeLock().lock();
+        try {
+            if (dimension >= 0) {
+                rows.close();
+                codes.close();
+                vectors.close();
+            }
+            payloads.close();
+        } catch (IOException e) {
+            log.warn("Failed to close quantized index {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ai.intentchain.storer.quantized;
+
+import ai.intentchain.core.configuration.ConfigOption;
+import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.ReadableConfig;
+import ai.intentchain.core.factories.EmbeddingStoreFactory;
+import ai.intentchain.core.utils.FactoryUtil;
+import com.google.common.base.Preconditions;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+public class QuantizedEmbeddingStoreFactory implements EmbeddingStoreFactory {
+
+    public static final String IDENTIFIER = "quantized";
+
+    public static final ConfigOption<String> DIRECTORY =
+            ConfigOptions.key("directory")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("""
+                            Quantized embedding store directory, each store is kept in a sub directory named by the store id.
+                            The project mode does not need to be filled in by default and is stored \
+                            in the project root directory under the .intentchain directory, \
+                            directories with the prefix 'embeddings_'.
+                            """);
+
+    public static final ConfigOption<Quantization> QUANTIZATION =
+            ConfigOptions.key("quantization")
+                    .enumType(Quantization.class)
+                    .defaultValue(Quantization.INT8)
+                    .withDescription("The quantization used for the first-pass candidate scan: " +
+                                     "INT8 (4x smaller than float32) or BINARY (32x smaller, lower recall)");
+
+    public static final ConfigOption<Double> OVERSAMPLING =
+            ConfigOptions.key("oversampling")
+                    .doubleType()
+                    .defaultValue(4.0)
+                    .withDescription("The number of first-pass candidates rescored with full-precision vectors, " +
+                                     "as a multiple of max results, must be greater than or equal to 1.0");
+
+    public static final ConfigOption<Integer> RECALL_SAMPLE_SIZE =
+            ConfigOptions.key("recall-sample-size")
+                    .intType()
+                    .defaultValue(0)
+                    .withDescription("When greater than 0, the recall@10 of the quantized search against exact search " +
+                                     "is measured on this many sampled vectors and logged after the store is modified");
+
+    @Override
+    public String factoryIdentifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public Set<ConfigOption<?>> requiredOptions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<ConfigOption<?>> optionalOptions() {
+        return new LinkedHashSet<>(List.of(DIRECTORY, QUANTIZATION, OVERSAMPLING, RECALL_SAMPLE_SIZE));
+    }
+
+    @Override
+    public Set<ConfigOption<?>> fingerprintOptions() {
+        // 量化编码随索引持久化，量化方式变化时需要重建索引；oversampling 只影响检索
+        return new LinkedHashSet<>(List.of(DIRECTORY, QUANTIZATION));
+    }
+
+    @Override
+    public EmbeddingStore<TextSegment> create(String storeId, ReadableConfig config) {
+        FactoryUtil.validateFactoryOptions(this, config);
+        validateConfigOptions(config);
+
+        Path directory = config.getOptional(DIRECTORY)
+                .map(Path::of)
+                .orElseGet(() -> {
+                    try {
+                        Path tempDir = Files.createTempDirectory("intentchain-quantized-");
+                        log.info("'{}' is not set, the quantized embedding store is kept in {}",
+                                DIRECTORY.key(), tempDir);
+                        return tempDir;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return QuantizedEmbeddingStore.builder()
+                .directory(directory.resolve(storeId))
+                .quantization(config.get(QUANTIZATION))
+                .oversampling(config.get(OVERSAMPLING))
+                .recallSampleSize(config.get(RECALL_SAMPLE_SIZE))
+                .build();
+    }
+
+    private void validateConfigOptions(ReadableConfig config) {
+        Double oversampling = config.get(OVERSAMPLING);
+        Preconditions.checkArgument(oversampling >= 1.0,
+                "'" + OVERSAMPLING.key() + "' value must be greater than or equal to 1.0");
+        Integer recallSampleSize = config.get(RECALL_SAMPLE_SIZE);
+        Preconditions.checkArgument(recallSampleSize >= 0,
+                "'" + RECALL_SAMPLE_SIZE.key() + "' value must be greater than or equal to 0");
+    }
+}
@@ -121,6 +121,21 @@ public enum DistanceMetric {
         };
     }
     
+    /**
+     * 将相似度分数转换为距离上限，用于在 SQL 中下推最小分数过滤
+     *
+     * @param score 相似度分数，范围 [0, 1]
+     * @return 对应的最大距离；若该度量的分数与距离不是单调关系则返回 null
+     */
+    public Double convertScoreToDistance(double score) {
+        return switch (this) {
+            case COSINE -> 2.0 * (1.0 - score);
+            // 内积分数取绝对值，与距离不是单调关系，无法下推
+            case INNER_PRODUCT -> null;
+            case L1, L2 -> score > 0.0 ? 1.0 / score - 1.0 : null;
+        };
+    }
+
     @Override
     public String toString() {
         return value;
@@ -1,5 +1,7 @@
 package ai.intentchain.storer.tidb;
 
+import ai.intentchain.core.store.BulkLoadEmbeddingStore;
+import ai.intentchain.core.store.ScannableEmbeddingStore;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zaxxer.hikari.HikariConfig;
@@ -21,16 +23,18 @@ import lombok.extern.slf4j.Slf4j;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * TiDB 向量存储实现
  */
 @Slf4j
-public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, ScannableEmbeddingStore, BulkLoadEmbeddingStore,
+        AutoCloseable {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final TiDBMetadataFilterMapper FILTER_MAPPER = new TiDBMetadataFilterMapper();
 
     // SQL 语句模板
     private static final String CREATE_TABLE_TEMPLATE = """
@@ -38,10 +42,28 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
                 id VARCHAR(36) PRIMARY KEY,
                 embedding VECTOR(%d) COMMENT 'hnsw(distance=%s)',
                 text TEXT,
-                metadata JSON
+                metadata JSON%s
             )
             """;
 
+    // 将元数据键投影为带二级索引的虚拟生成列，按标签等条件过滤时可走索引而非全表扫描。
+    // 带 WHERE 条件的检索不会使用向量索引，而是对二级索引筛选出的行精确计算距离，
+    // 适用于单个标签下行数有限的场景；TiDB 不支持按标签建立部分向量索引。
+    // 列长度由 projectedMetadataMaxLength 决定，超长的值在写入前即被拒绝，避免被截断后过滤结果出错
+    private static final String PROJECTED_COLUMN_TEMPLATE = """
+            %s VARCHAR(%d) AS (metadata->>'$.%s') VIRTUAL""";
+
+    private static final String PROJECTED_INDEX_TEMPLATE = """
+            INDEX idx_%s (%s)""";
+
+    private static final String ADD_PROJECTED_COLUMN_TEMPLATE = """
+            ALTER TABLE %s ADD COLUMN %s
+            """;
+
+    private static final String ADD_PROJECTED_INDEX_TEMPLATE = """
+            ALTER TABLE %s ADD %s
+            """;
+
     private static final String ALTER_TABLE_TIFLASH_TEMPLATE = """
             ALTER TABLE %s SET TIFLASH REPLICA 1
             """;
@@ -55,19 +77,42 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
             """;
 
     private static final String INSERT_TEMPLATE = """
-            INSERT INTO %s (id, embedding, text, metadata) VALUES (?, ?, ?, ?)
+            INSERT INTO %s (id, embedding, text, metadata) VALUES %s
             """;
 
+    private static final String INSERT_VALUES_ROW = "(?, ?, ?, ?)";
+
+    // 单条语句的占位符数量不能超过 65535
+    private static final int MAX_ROWS_PER_INSERT = 65535 / 4;
+
+    // 每行在语句中的固定开销：占位符行、行间分隔符以及每个值两侧的引号
+    private static final int INSERT_ROW_OVERHEAD_BYTES = INSERT_VALUES_ROW.length() + 2 + 4 * 2;
+
+    // 默认只投影 id、text、metadata 及距离，避免每条命中都回传并解析整条向量
+    private static final String SEARCH_COLUMNS = "id, text, metadata";
+
+    private static final String SEARCH_COLUMNS_WITH_EMBEDDING = "id, embedding, text, metadata";
+
     private static final String SEARCH_QUERY_TEMPLATE = """
-            SELECT id, embedding, text, metadata,
+            SELECT %s,
                    %s(embedding, ?) AS distance
-            FROM %s
+            FROM %s%s
             ORDER BY distance
             LIMIT ?
             """;
 
+    // 距离阈值在外层过滤，内层保持 ORDER BY ... LIMIT 形式以便无过滤条件时可使用向量索引
+    private static final String DISTANCE_CUTOFF_TEMPLATE = """
+            SELECT * FROM (%s) AS r WHERE r.distance <= ? ORDER BY r.distance
+            """;
+
+    // 按主键分页遍历全表，避免 OFFSET 分页的重复扫描
+    private static final String SCAN_QUERY_TEMPLATE = """
+            SELECT id, embedding, text, metadata FROM %s WHERE id > ? ORDER BY id LIMIT ?
+            """;
+
     private static final String DELETE_BY_IDS_TEMPLATE = """
-            DELETE FROM %s WHERE id = ?
+            DELETE FROM %s WHERE id IN (%s)
             """;
 
     private static final String DELETE_BY_FILTER_TEMPLATE = """
@@ -82,6 +127,17 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
     private final String tableName;
     private final Integer dimension;
     private final DistanceMetric distanceMetric;
+    private final Boolean returnEmbeddings;
+    private final Map<String, String> projectedColumns;
+    private final Integer projectedMetadataMaxLength;
+    private final TiDBMetadataFilterMapper filterMapper;
+
+    private final Long insertMaxBytes;
+    private final Integer deleteBatchSize;
+    private final Integer writeParallelism;
+    private final Boolean deferIndexBuild;
+    private final Boolean createVectorIndex;
+    private ExecutorService writeExecutor;
 
     @Builder
     public TiDBEmbeddingStore(String jdbcUrl,
@@ -101,10 +157,38 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
                               Long idleTimeout,
                               Long maxLifetime,
                               Long leakDetectionThreshold,
-                              Boolean createVectorIndex) {
+                              Boolean createVectorIndex,
+                              Boolean returnEmbeddings,
+                              List<String> projectedMetadataKeys,
+                              Integer projectedMetadataMaxLength,
+                              Long insertMaxBytes,
+                              Integer deleteBatchSize,
+                              Integer writeParallelism,
+                              Boolean deferIndexBuild) {
         this.tableName = tableName;
         this.dimension = dimension;
         this.distanceMetric = distanceMetric;
+        this.returnEmbeddings = Optional.ofNullable(returnEmbeddings).orElse(false);
+
+        this.projectedColumns = new LinkedHashMap<>();
+        for (String key : Optional.ofNullable(projectedMetadataKeys).orElse(Collections.emptyList())) {
+            if (!key.matches("^[a-zA-Z0-9_]+$")) {
+                throw new IllegalArgumentException("Invalid projected metadata key: " + key);
+            }
+            this.projectedColumns.put(key, "meta_" + key);
+        }
+        this.projectedMetadataMaxLength = Optional.ofNullable(projectedMetadataMaxLength).orElse(255);
+        if (this.projectedMetadataMaxLength < 1) {
+            throw new IllegalArgumentException("projectedMetadataMaxLength must be greater than 0");
+        }
+        this.filterMapper = new TiDBMetadataFilterMapper(this.projectedColumns);
+
+        this.insertMaxBytes = Optional.ofNullable(insertMaxBytes).orElse(4L * 1024 * 1024); // 4mb
+        this.deleteBatchSize = Optional.ofNullable(deleteBatchSize).orElse(1000);
+        this.writeParallelism = Optional.ofNullable(writeParallelism).orElse(1);
+        this.deferIndexBuild = Optional.ofNullable(createTable).orElse(true)
+                               && Optional.ofNullable(deferIndexBuild).orElse(false);
+        this.createVectorIndex = Optional.ofNullable(createVectorIndex).orElse(false);
 
         // 初始化数据源
         HikariConfig config = new HikariConfig();
@@ -122,6 +206,11 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         if (password != null) {
             config.setPassword(password);
         }
+        // 使用服务端预编译语句：参数及结果集走二进制协议传输，同时复用执行计划
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "256");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "8192");
         config.setMaximumPoolSize(Optional.ofNullable(maxPoolSize).orElse(10));
         config.setMinimumIdle(Optional.ofNullable(minIdleConnections).orElse(2));
         config.setConnectionTimeout(Optional.ofNullable(connectionTimeout).orElse(30000L)); // 30s
@@ -136,30 +225,69 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         }
         if (Boolean.TRUE.equals(Optional.ofNullable(createTable).orElse(true))) {
             createTableIfNotExists();
-            if (Boolean.TRUE.equals(Optional.ofNullable(createVectorIndex).orElse(false))) {
-                createVectorIndex();
+            addProjectedColumns();
+            // 批量导入模式下，TiFlash 副本及向量索引推迟到构建成功完成（finishBulkLoad）后再创建
+            if (!this.deferIndexBuild) {
+                createTiFlashReplica();
+                if (this.createVectorIndex) {
+                    createVectorIndex();
+                }
             }
         }
     }
 
     private void createTableIfNotExists() {
-        String createTableSql = String.format(CREATE_TABLE_TEMPLATE, tableName, dimension, distanceMetric.getValue());
+        String projectedDefinitions = projectedColumns.entrySet().stream()
+                .map(e -> ",\n" + String.format(PROJECTED_COLUMN_TEMPLATE, e.getValue(),
+                                  projectedMetadataMaxLength, e.getKey())
+                          + ",\n" + String.format(PROJECTED_INDEX_TEMPLATE, e.getValue(), e.getValue()))
+                .collect(Collectors.joining());
+        String createTableSql = String.format(CREATE_TABLE_TEMPLATE,
+                tableName, dimension, distanceMetric.getValue(), projectedDefinitions);
 
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(createTableSql);
             log.info("Table {} created successfully or already exists", tableName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create table", e);
+        }
+    }
 
-            // 创建 TiFlash 副本（如果尚未创建）
-            try {
-                String alterTableSql = String.format(ALTER_TABLE_TIFLASH_TEMPLATE, tableName);
-                stmt.execute(alterTableSql);
-                log.info("TiFlash replica created or already exists");
-            } catch (SQLException e) {
-                log.warn("Failed to create TiFlash replica (may already exist): {}", e.getMessage());
+    private void createTiFlashReplica() {
+        // 创建 TiFlash 副本（如果尚未创建）
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            String alterTableSql = String.format(ALTER_TABLE_TIFLASH_TEMPLATE, tableName);
+            stmt.execute(alterTableSql);
+            log.info("TiFlash replica created or already exists");
+        } catch (SQLException e) {
+            log.warn("Failed to create TiFlash replica (may already exist): {}", e.getMessage());
+        }
+    }
+
+    private void addProjectedColumns() {
+        if (projectedColumns.isEmpty()) {
+            return;
+        }
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, String> entry : projectedColumns.entrySet()) {
+                String column = entry.getValue();
+                try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, tableName, column)) {
+                    if (rs.next()) {
+                        continue;
+                    }
+                }
+                // 已存在的表补充投影列及其索引
+                stmt.execute(String.format(ADD_PROJECTED_COLUMN_TEMPLATE, tableName,
+                        String.format(PROJECTED_COLUMN_TEMPLATE, column, projectedMetadataMaxLength, entry.getKey())));
+                stmt.execute(String.format(ADD_PROJECTED_INDEX_TEMPLATE, tableName,
+                        String.format(PROJECTED_INDEX_TEMPLATE, column, column)));
+                log.info("Projected metadata key '{}' to indexed column {}", entry.getKey(), column);
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to create table", e);
+            log.warn("Failed to add projected metadata columns: {}", e.getMessage());
         }
     }
 
@@ -217,28 +345,8 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
 
     @Override
     public List<String> addAll(List<Embedding> embeddings) {
-        List<String> ids = new ArrayList<>(embeddings.size());
-        String insertSql = String.format(INSERT_TEMPLATE, tableName);
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-
-            for (Embedding embedding : embeddings) {
-                String id = UUID.randomUUID().toString();
-                pstmt.setString(1, id);
-                pstmt.setString(2, embeddingToString(embedding));
-                pstmt.setString(3, null);
-                pstmt.setString(4, null);
-                pstmt.addBatch();
-                ids.add(id);
-            }
-
-            pstmt.executeBatch();
-            log.debug("Batch added {} embeddings", embeddings.size());
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to batch add embeddings", e);
-        }
-
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        insertAll(ids, embeddings, null);
         return ids;
     }
 
@@ -246,51 +354,177 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         if (embeddings.size() != textSegments.size()) {
             throw new IllegalArgumentException("The number of embeddings and textSegments must match");
         }
+        List<String> ids = embeddings.stream().map(e -> UUID.randomUUID().toString()).toList();
+        insertAll(ids, embeddings, textSegments);
+        return ids;
+    }
 
-        List<String> ids = new ArrayList<>(embeddings.size());
-        String insertSql = String.format(INSERT_TEMPLATE, tableName);
+    private void addInternal(String id, Embedding embedding, TextSegment textSegment) {
+        insertAll(Collections.singletonList(id), Collections.singletonList(embedding),
+                Collections.singletonList(textSegment));
+        log.debug("Embedding added: id={}", id);
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-
-            for (int i = 0; i < embeddings.size(); i++) {
-                String id = UUID.randomUUID().toString();
-                Embedding embedding = embeddings.get(i);
-                TextSegment textSegment = textSegments.get(i);
-
-                pstmt.setString(1, id);
-                pstmt.setString(2, embeddingToString(embedding));
-                pstmt.setString(3, textSegment != null ? textSegment.text() : null);
-                pstmt.setString(4, textSegment != null ? metadataToJson(textSegment.metadata()) : null);
-                pstmt.addBatch();
-                ids.add(id);
+    /**
+     * 批量写入：按字节数切分为多行 INSERT 语句，并由多个写线程分摊到连接池中并行执行
+     */
+    private void insertAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        // 按拼接后语句的 UTF-8 字节数切分，与服务端的 max_allowed_packet 限制一致
+        long statementBytes = INSERT_TEMPLATE.length() + tableName.length();
+        List<List<String[]>> chunks = new ArrayList<>();
+        List<String[]> chunk = new ArrayList<>();
+        long chunkBytes = statementBytes;
+        for (int i = 0; i < ids.size(); i++) {
+            TextSegment textSegment = (embedded != null && i < embedded.size()) ? embedded.get(i) : null;
+            if (textSegment != null) {
+                checkProjectedMetadata(ids.get(i), textSegment.metadata());
+            }
+            String[] row = new String[]{
+                    ids.get(i),
+                    embeddingToString(embeddings.get(i)),
+                    textSegment != null ? textSegment.text() : null,
+                    textSegment != null ? metadataToJson(textSegment.metadata()) : null
+            };
+            long rowBytes = INSERT_ROW_OVERHEAD_BYTES;
+            for (String value : row) {
+                rowBytes += encodedLength(value);
             }
+            if (!chunk.isEmpty() && (chunkBytes + rowBytes > insertMaxBytes || chunk.size() >= MAX_ROWS_PER_INSERT)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = statementBytes;
+            }
+            chunk.add(row);
+            chunkBytes += rowBytes;
+        }
+        chunks.add(chunk);
 
-            pstmt.executeBatch();
-            log.debug("Batch added {} embeddings with text segments", embeddings.size());
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to batch add embeddings", e);
+        runChunks(chunks, this::insertChunk, "Failed to batch add embeddings");
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        if (chunks.size() > 1) {
+            log.info("Batch added {} embeddings in {} statements, {} ms ({} rows/s)",
+                    ids.size(), chunks.size(), elapsedMillis, ids.size() * 1000L / elapsedMillis);
+        } else {
+            log.debug("Batch added {} embeddings, {} ms", ids.size(), elapsedMillis);
         }
+    }
 
-        return ids;
+    /**
+     * 投影列的长度有限，超长的值会导致写入失败或被截断，写入前拒绝
+     */
+    private void checkProjectedMetadata(String id, Metadata metadata) {
+        if (projectedColumns.isEmpty() || metadata == null) {
+            return;
+        }
+        for (String key : projectedColumns.keySet()) {
+            Object value = metadata.toMap().get(key);
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.codePointCount(0, text.length()) > projectedMetadataMaxLength) {
+                throw new IllegalArgumentException(String.format(
+                        "The projected metadata '%s' of embedding %s is longer than %d characters, " +
+                        "increase projected-metadata-max-length", key, id, projectedMetadataMaxLength));
+            }
+        }
     }
 
-    private void addInternal(String id, Embedding embedding, TextSegment textSegment) {
-        String insertSql = String.format(INSERT_TEMPLATE, tableName);
+    /**
+     * 字符串参数拼接进语句后的字节数：UTF-8 编码长度，需转义的字符（引号、反斜杠、换行等）各多占一个字节
+     */
+    private static long encodedLength(String value) {
+        if (value == null) {
+            return 4; // NULL
+        }
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += switch (c) {
+                    case '\'', '"', '\\', '\0', '\n', '\r', '\u001a' -> 2;
+                    default -> 1;
+                };
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // 代理对编码为 4 个字节，低位代理不再单独计数
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
 
+    private void insertChunk(List<String[]> rows) throws SQLException {
+        String valuesSql = String.join(", ", Collections.nCopies(rows.size(), INSERT_VALUES_ROW));
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+             PreparedStatement pstmt = conn.prepareStatement(String.format(INSERT_TEMPLATE, tableName, valuesSql))) {
+            int index = 1;
+            for (String[] row : rows) {
+                for (String value : row) {
+                    pstmt.setString(index++, value);
+                }
+            }
+            pstmt.executeUpdate();
+        }
+    }
 
-            pstmt.setString(1, id);
-            pstmt.setString(2, embeddingToString(embedding));
-            pstmt.setString(3, textSegment != null ? textSegment.text() : null);
-            pstmt.setString(4, textSegment != null ? metadataToJson(textSegment.metadata()) : null);
+    private <T> void runChunks(List<List<T>> chunks, ChunkWriter<T> writer, String errorMessage) {
+        if (writeParallelism <= 1 || chunks.size() <= 1) {
+            try {
+                for (List<T> chunk : chunks) {
+                    writer.write(chunk);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(errorMessage, e);
+            }
+            return;
+        }
+        ExecutorService executor = writeExecutor();
+        List<Future<?>> futures = new ArrayList<>(chunks.size());
+        for (List<T> chunk : chunks) {
+            futures.add(executor.submit(() -> {
+                writer.write(chunk);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(errorMessage, e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(errorMessage, e.getCause());
+        }
+    }
 
-            pstmt.executeUpdate();
-            log.debug("Embedding added: id={}", id);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to add embedding", e);
+    private synchronized ExecutorService writeExecutor() {
+        if (writeExecutor == null) {
+            writeExecutor = Executors.newFixedThreadPool(writeParallelism, r -> {
+                Thread thread = new Thread(r, "tidb-writer-" + tableName);
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        return writeExecutor;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> chunk) throws SQLException;
     }
 
     @Override
@@ -299,8 +533,24 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         int maxResults = request.maxResults();
         double minScore = request.minScore();
 
-        String distanceFunction = getDistanceFunction();
-        String searchSql = String.format(SEARCH_QUERY_TEMPLATE, distanceFunction, tableName);
+        // 元数据过滤条件下推至 WHERE 子句，此时不使用向量索引
+        String whereClause = "";
+        if (request.filter() != null) {
+            try {
+                whereClause = "\nWHERE " + filterMapper.map(request.filter());
+            } catch (UnsupportedOperationException e) {
+                throw new UnsupportedFeatureException("Unsupported Filter type: " + e.getMessage());
+            }
+        }
+        String searchSql = String.format(SEARCH_QUERY_TEMPLATE,
+                returnEmbeddings ? SEARCH_COLUMNS_WITH_EMBEDDING : SEARCH_COLUMNS,
+                distanceMetric.getSqlFunction(), tableName, whereClause);
+
+        // 最小分数转换为距离上限下推
+        Double maxDistance = minScore > 0.0 ? distanceMetric.convertScoreToDistance(minScore) : null;
+        if (maxDistance != null) {
+            searchSql = String.format(DISTANCE_CUTOFF_TEMPLATE, searchSql.strip());
+        }
 
         List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
 
@@ -309,11 +559,13 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
 
             pstmt.setString(1, embeddingToString(referenceEmbedding));
             pstmt.setInt(2, maxResults);
+            if (maxDistance != null) {
+                pstmt.setDouble(3, maxDistance);
+            }
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     String id = rs.getString("id");
-                    String embeddingStr = rs.getString("embedding");
                     String text = rs.getString("text");
                     String metadataJson = rs.getString("metadata");
                     double distance = rs.getDouble("distance");
@@ -321,14 +573,13 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
                     // 将距离转换为相似度分数（0-1之间）
                     double score = convertDistanceToScore(distance);
 
-                    // 过滤掉低于最小分数的结果
+                    // 过滤掉低于最小分数的结果（无法下推距离阈值的度量）
                     if (score < minScore) {
                         continue;
                     }
 
-                    // 解析向量
-                    float[] vector = parseVector(embeddingStr);
-                    Embedding embedding = new Embedding(vector);
+                    // 仅在需要时解析向量
+                    Embedding embedding = returnEmbeddings ? new Embedding(parseVector(rs.getString("embedding"))) : null;
 
                     // 构建 TextSegment
                     TextSegment textSegment = null;
@@ -347,8 +598,41 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         return new EmbeddingSearchResult<>(matches);
     }
 
-    private String getDistanceFunction() {
-        return distanceMetric.getSqlFunction();
+    @Override
+    public void scan(int batchSize, @NonNull BatchConsumer consumer) {
+        String scanSql = String.format(SCAN_QUERY_TEMPLATE, tableName);
+        String lastId = "";
+        int total = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(scanSql)) {
+            while (true) {
+                pstmt.setString(1, lastId);
+                pstmt.setInt(2, batchSize);
+                List<String> ids = new ArrayList<>(batchSize);
+                List<Embedding> embeddings = new ArrayList<>(batchSize);
+                List<TextSegment> textSegments = new ArrayList<>(batchSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getString("id"));
+                        embeddings.add(new Embedding(parseVector(rs.getString("embedding"))));
+                        String text = rs.getString("text");
+                        textSegments.add(text == null ? null : TextSegment.from(text, parseMetadata(rs.getString("metadata"))));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                consumer.accept(ids, embeddings, textSegments);
+                total += ids.size();
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to scan embeddings", e);
+        }
+        log.debug("Scanned {} records from table {}", total, tableName);
     }
 
     private double convertDistanceToScore(double distance) {
@@ -356,19 +640,34 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
     }
 
     private String embeddingToString(Embedding embedding) {
-        return embedding.vectorAsList().stream().map(Object::toString)
-                .collect(Collectors.joining(",", "[", "]"));
+        // 直接遍历原始 float 数组，避免装箱及 Stream 开销
+        float[] vector = embedding.vector();
+        StringBuilder sb = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
     }
 
     private float[] parseVector(String vectorStr) {
-        // 去掉方括号并分割
-        String content = vectorStr.substring(1, vectorStr.length() - 1);
-        String[] parts = content.split(",");
-        float[] vector = new float[parts.length];
-        for (int i = 0; i < parts.length; i++) {
-            vector[i] = Float.parseFloat(parts[i].trim());
+        // 按维度预分配数组，逐段解析，避免 split 产生的中间字符串数组
+        float[] vector = new float[dimension];
+        int count = 0;
+        int start = 1;
+        int end = vectorStr.length() - 1;
+        while (start < end) {
+            int comma = vectorStr.indexOf(',', start);
+            int stop = comma < 0 || comma > end ? end : comma;
+            if (count == vector.length) {
+                vector = Arrays.copyOf(vector, vector.length * 2);
+            }
+            vector[count++] = Float.parseFloat(vectorStr.substring(start, stop).trim());
+            start = stop + 1;
         }
-        return vector;
+        return count == vector.length ? vector : Arrays.copyOf(vector, count);
     }
 
     private String metadataToJson(Metadata metadata) {
@@ -419,28 +718,7 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
             );
         }
 
-        String insertSql = String.format(INSERT_TEMPLATE, tableName);
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-
-            for (int i = 0; i < embeddings.size(); i++) {
-                String id = ids.get(i);
-                Embedding embedding = embeddings.get(i);
-                TextSegment textSegment = (embedded != null && i < embedded.size()) ? embedded.get(i) : null;
-
-                pstmt.setString(1, id);
-                pstmt.setString(2, embeddingToString(embedding));
-                pstmt.setString(3, textSegment != null ? textSegment.text() : null);
-                pstmt.setString(4, textSegment != null ? metadataToJson(textSegment.metadata()) : null);
-                pstmt.addBatch();
-            }
-
-            pstmt.executeBatch();
-            log.debug("Batch added {} embeddings (with specified IDs)", embeddings.size());
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to batch add embeddings", e);
-        }
+        insertAll(ids, embeddings, embedded);
     }
 
     @Override
@@ -449,21 +727,25 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
             return;
         }
 
-        String deleteSql = String.format(DELETE_BY_IDS_TEMPLATE, tableName);
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
-
-            for (String id : ids) {
-                pstmt.setString(1, id);
-                pstmt.addBatch();
-            }
-
-            int[] deleted = pstmt.executeBatch();
-            int totalDeleted = Arrays.stream(deleted).sum();
-            log.debug("Batch deleted {} records", totalDeleted);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to batch delete embeddings", e);
+        // 按 IN (...) 分批删除，避免逐条 DELETE 的往返开销
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += deleteBatchSize) {
+            chunks.add(idList.subList(from, Math.min(from + deleteBatchSize, idList.size())));
         }
+        AtomicInteger totalDeleted = new AtomicInteger();
+        runChunks(chunks, chunk -> {
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         String.format(DELETE_BY_IDS_TEMPLATE, tableName, placeholders))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                totalDeleted.addAndGet(pstmt.executeUpdate());
+            }
+        }, "Failed to batch delete embeddings");
+        log.debug("Batch deleted {} records", totalDeleted.get());
     }
 
     @Override
@@ -471,7 +753,7 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         ValidationUtils.ensureNotNull(filter, "filter");
 
         try {
-            String whereClause = FILTER_MAPPER.map(filter);
+            String whereClause = filterMapper.map(filter);
             String deleteSql = String.format(DELETE_BY_FILTER_TEMPLATE, tableName, whereClause);
 
             try (Connection conn = dataSource.getConnection();
@@ -501,8 +783,23 @@ public class TiDBEmbeddingStore implements EmbeddingStore<TextSegment>, AutoClos
         }
     }
 
+    @Override
+    public void finishBulkLoad() {
+        if (!deferIndexBuild) {
+            return;
+        }
+        log.info("Bulk load finished, start building TiFlash replica and vector index of {}", tableName);
+        createTiFlashReplica();
+        if (createVectorIndex) {
+            createVectorIndex();
+        }
+    }
+
     @Override
     public void close() {
+        if (writeExecutor != null) {
+            writeExecutor.shutdown();
+        }
         if (dataSource instanceof HikariDataSource) {
             ((HikariDataSource) dataSource).close();
             log.info("DataSource closed");
@@ -2,6 +2,7 @@ package ai.intentchain.storer.tidb;
 
 import ai.intentchain.core.configuration.ConfigOption;
 import ai.intentchain.core.configuration.ConfigOptions;
+import ai.intentchain.core.configuration.MemorySize;
 import ai.intentchain.core.configuration.ReadableConfig;
 import ai.intentchain.core.factories.EmbeddingStoreFactory;
 import ai.intentchain.core.utils.FactoryUtil;
@@ -105,6 +106,62 @@ public class TiDBEmbeddingStoreFactory implements EmbeddingStoreFactory {
                     .withDescription("Whether to create a vector index to improve search performance. " +
                                      "Only effective for 'cosine' and 'l2' distance metrics.");
 
+    public static final ConfigOption<Boolean> RETURN_EMBEDDINGS =
+            ConfigOptions.key("return-embeddings")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether search results include the stored embedding vectors. " +
+                                     "Disabled by default, since classification only needs the score, text and label.");
+
+    public static final ConfigOption<List<String>> PROJECTED_METADATA_KEYS =
+            ConfigOptions.key("projected-metadata-keys")
+                    .stringType()
+                    .asList()
+                    .noDefaultValue()
+                    .withDescription("Metadata keys (e.g., label) projected into indexed generated columns. " +
+                                     "Search filters on these keys use the secondary index " +
+                                     "instead of scanning the whole table. A filtered search does not use " +
+                                     "the vector index: distances are computed exactly over the rows matched " +
+                                     "by the filter, so it suits labels with a limited number of rows.");
+
+    public static final ConfigOption<Integer> PROJECTED_METADATA_MAX_LENGTH =
+            ConfigOptions.key("projected-metadata-max-length")
+                    .intType()
+                    .defaultValue(255)
+                    .withDescription("Maximum length in characters of the projected metadata columns. " +
+                                     "Writes with a longer value for a projected key are rejected. " +
+                                     "It only applies when the column is created, existing columns keep their length.");
+
+    public static final ConfigOption<MemorySize> INSERT_MAX_BYTES =
+            ConfigOptions.key("insert-max-bytes")
+                    .memoryType()
+                    .defaultValue(MemorySize.ofMebiBytes(4))
+                    .withDescription("Maximum size of a single multi-row INSERT statement in UTF-8 bytes, keep it below " +
+                                     "the server max_allowed_packet. " +
+                                     "Batch writes are split into statements of at most this size.");
+
+    public static final ConfigOption<Integer> DELETE_BATCH_SIZE =
+            ConfigOptions.key("delete-batch-size")
+                    .intType()
+                    .defaultValue(1000)
+                    .withDescription("Maximum number of ids removed with one 'DELETE ... WHERE id IN (...)' statement.");
+
+    public static final ConfigOption<Integer> WRITE_PARALLELISM =
+            ConfigOptions.key("write-parallelism")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription("Number of parallel writers used for batch inserts and deletes. " +
+                                     "Each writer uses its own pooled connection, so it should not exceed '" +
+                                     "max-pool-size'.");
+
+    public static final ConfigOption<Boolean> DEFER_INDEX_BUILD =
+            ConfigOptions.key("defer-index-build")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether to create the TiFlash replica and vector index only after " +
+                                     "the bulk load has finished (once, at the end of a successful project build), " +
+                                     "instead of maintaining them while every row is written.");
+
     public static final ConfigOption<Integer> MAX_POOL_SIZE =
             ConfigOptions.key("max-pool-size")
                     .intType()
@@ -156,7 +213,8 @@ public class TiDBEmbeddingStoreFactory implements EmbeddingStoreFactory {
         return new LinkedHashSet<>(List.of(
                 JDBC_URL, HOST, PORT, USERNAME, DATABASE,
                 TABLE_PREFIX, DISTANCE_METRIC, CREATE_TABLE, DROP_TABLE_FIRST,
-                CREATE_VECTOR_INDEX, MAX_POOL_SIZE, MIN_IDLE_CONNECTIONS, CONNECTION_TIMEOUT,
+                CREATE_VECTOR_INDEX, RETURN_EMBEDDINGS, PROJECTED_METADATA_KEYS, PROJECTED_METADATA_MAX_LENGTH,
+                INSERT_MAX_BYTES, DELETE_BATCH_SIZE, WRITE_PARALLELISM, DEFER_INDEX_BUILD, MAX_POOL_SIZE, MIN_IDLE_CONNECTIONS, CONNECTION_TIMEOUT,
                 IDLE_TIMEOUT, MAX_LIFETIME, LEAK_DETECTION_THRESHOLD
         ));
     }
@@ -191,6 +249,14 @@ public class TiDBEmbeddingStoreFactory implements EmbeddingStoreFactory {
         config.getOptional(CREATE_TABLE).ifPresent(builder::createTable);
         config.getOptional(DROP_TABLE_FIRST).ifPresent(builder::dropTableFirst);
         config.getOptional(CREATE_VECTOR_INDEX).ifPresent(builder::createVectorIndex);
+        config.getOptional(RETURN_EMBEDDINGS).ifPresent(builder::returnEmbeddings);
+        config.getOptional(PROJECTED_METADATA_KEYS).ifPresent(builder::projectedMetadataKeys);
+        config.getOptional(PROJECTED_METADATA_MAX_LENGTH).ifPresent(builder::projectedMetadataMaxLength);
+
+        config.getOptional(INSERT_MAX_BYTES).ifPresent(m -> builder.insertMaxBytes(m.getBytes()));
+        config.getOptional(DELETE_BATCH_SIZE).ifPresent(builder::deleteBatchSize);
+        config.getOptional(WRITE_PARALLELISM).ifPresent(builder::writeParallelism);
+        config.getOptional(DEFER_INDEX_BUILD).ifPresent(builder::deferIndexBuild);
 
         config.getOptional(MAX_POOL_SIZE).ifPresent(builder::maxPoolSize);
         config.getOptional(MIN_IDLE_CONNECTIONS).ifPresent(builder::minIdleConnections);
@@ -214,6 +280,14 @@ public class TiDBEmbeddingStoreFactory implements EmbeddingStoreFactory {
         Integer maxPoolSize = config.get(MAX_POOL_SIZE);
         Preconditions.checkArgument(maxPoolSize > 0,
                 "'" + MAX_POOL_SIZE.key() + "' value must be greater than 0");
+        Preconditions.checkArgument(config.get(INSERT_MAX_BYTES).getBytes() > 0,
+                "'" + INSERT_MAX_BYTES.key() + "' value must be greater than 0");
+        Integer deleteBatchSize = config.get(DELETE_BATCH_SIZE);
+        Preconditions.checkArgument(deleteBatchSize > 0,
+                "'" + DELETE_BATCH_SIZE.key() + "' value must be greater than 0");
+        Integer writeParallelism = config.get(WRITE_PARALLELISM);
+        Preconditions.checkArgument(writeParallelism > 0 && writeParallelism <= maxPoolSize,
+                "'" + WRITE_PARALLELISM.key() + "' value must be between 1 and '" + MAX_POOL_SIZE.key() + "'");
         Integer minIdleConnections = config.get(MIN_IDLE_CONNECTIONS);
         Preconditions.checkArgument(minIdleConnections >= 0,
                 "'" + MIN_IDLE_CONNECTIONS.key() + "' value must be greater than or equal to 0");
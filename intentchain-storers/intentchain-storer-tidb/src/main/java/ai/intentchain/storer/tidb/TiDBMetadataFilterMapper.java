@@ -8,6 +8,7 @@ import dev.langchain4j.store.embedding.filter.logical.Or;
 
 import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -37,8 +38,23 @@ public class TiDBMetadataFilterMapper {
                     new AbstractMap.SimpleEntry<>(Object.class, "CHAR"))
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
+    /**
+     * 已投影为（带索引的）生成列的元数据键，key: 元数据键，value: 列名
+     */
+    private final Map<String, String> projectedColumns;
+
+    public TiDBMetadataFilterMapper() {
+        this(Collections.emptyMap());
+    }
+
+    public TiDBMetadataFilterMapper(Map<String, String> projectedColumns) {
+        this.projectedColumns = projectedColumns;
+    }
+
     /**
      * 将 Filter 映射为 SQL WHERE 子句
+     * <p>
+     * 每个条件及每个逻辑组合都带括号，组合后不受 and / or 优先级的影响
      */
     public String map(Filter filter) {
         if (filter instanceof IsEqualTo eq) {
@@ -71,24 +87,24 @@ public class TiDBMetadataFilterMapper {
 
     private String mapEqual(IsEqualTo isEqualTo) {
         String key = formatKey(isEqualTo.key(), isEqualTo.comparisonValue().getClass());
-        return format("%s is not null and %s = %s", key, key, formatValue(isEqualTo.comparisonValue()));
+        return format("(%s is not null and %s = %s)", key, key, formatValue(isEqualTo.comparisonValue()));
     }
 
     private String mapNotEqual(IsNotEqualTo isNotEqualTo) {
         String key = formatKey(isNotEqualTo.key(), isNotEqualTo.comparisonValue().getClass());
-        return format("%s is null or %s != %s", key, key, formatValue(isNotEqualTo.comparisonValue()));
+        return format("(%s is null or %s != %s)", key, key, formatValue(isNotEqualTo.comparisonValue()));
     }
 
     private String mapGreaterThan(IsGreaterThan isGreaterThan) {
         return format(
-                "%s > %s",
+                "(%s > %s)",
                 formatKey(isGreaterThan.key(), isGreaterThan.comparisonValue().getClass()),
                 formatValue(isGreaterThan.comparisonValue()));
     }
 
     private String mapGreaterThanOrEqual(IsGreaterThanOrEqualTo isGreaterThanOrEqualTo) {
         return format(
-                "%s >= %s",
+                "(%s >= %s)",
                 formatKey(
                         isGreaterThanOrEqualTo.key(),
                         isGreaterThanOrEqualTo.comparisonValue().getClass()),
@@ -97,14 +113,14 @@ public class TiDBMetadataFilterMapper {
 
     private String mapLessThan(IsLessThan isLessThan) {
         return format(
-                "%s < %s",
+                "(%s < %s)",
                 formatKey(isLessThan.key(), isLessThan.comparisonValue().getClass()),
                 formatValue(isLessThan.comparisonValue()));
     }
 
     private String mapLessThanOrEqual(IsLessThanOrEqualTo isLessThanOrEqualTo) {
         return format(
-                "%s <= %s",
+                "(%s <= %s)",
                 formatKey(
                         isLessThanOrEqualTo.key(),
                         isLessThanOrEqualTo.comparisonValue().getClass()),
@@ -112,16 +128,16 @@ public class TiDBMetadataFilterMapper {
     }
 
     private String mapIn(IsIn isIn) {
-        return format("%s in %s", formatKeyAsString(isIn.key()), formatValuesAsString(isIn.comparisonValues()));
+        return format("(%s in %s)", formatKeyAsString(isIn.key()), formatValuesAsString(isIn.comparisonValues()));
     }
 
     private String mapNotIn(IsNotIn isNotIn) {
         String key = formatKeyAsString(isNotIn.key());
-        return format("%s is null or %s not in %s", key, key, formatValuesAsString(isNotIn.comparisonValues()));
+        return format("(%s is null or %s not in %s)", key, key, formatValuesAsString(isNotIn.comparisonValues()));
     }
 
     private String mapAnd(And and) {
-        return format("%s and %s", map(and.left()), map(and.right()));
+        return format("(%s and %s)", map(and.left()), map(and.right()));
     }
 
     private String mapNot(Not not) {
@@ -144,10 +160,10 @@ public class TiDBMetadataFilterMapper {
         String sqlType = SQL_TYPE_MAP.get(valueType);
         if (sqlType.equals("CHAR")) {
             // 对于字符串类型，直接使用 ->> 操作符
-            return format("metadata->>'$.%s'", escapeJsonPath(key));
+            return formatKeyAsString(key);
         } else {
             // 对于数值类型，使用 CAST 进行类型转换
-            return format("CAST(metadata->>'$.%s' AS %s)", escapeJsonPath(key), sqlType);
+            return format("CAST(%s AS %s)", formatKeyAsString(key), sqlType);
         }
     }
 
@@ -156,6 +172,11 @@ public class TiDBMetadataFilterMapper {
      * 用于 IN 和 NOT IN 操作
      */
     String formatKeyAsString(String key) {
+        // 已投影的键直接引用生成列，以便使用其二级索引
+        String column = projectedColumns.get(key);
+        if (column != null) {
+            return column;
+        }
         return format("metadata->>'$.%s'", escapeJsonPath(key));
     }
 